@@ -9,20 +9,22 @@ import rp.warehouse.nxt.localisation.Ranges;
 import rp.warehouse.nxt.motion.MotionController;
 import rp.warehouse.nxt.motion.Movement;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 
 /**
  * This class is for communicating with the PC using the given protocol
+ * <p>
+ * Moves are put in a queue as they arrive and done one after another on a separate thread, so the next move is
+ * already known when the robot reaches a junction and commands keep being read while it is moving.
  * @author dxj786
  */
 public class Communication extends Thread {
     private static final HashMap<Integer, Movement.Direction> commandTranslate = new HashMap<>();
-    private final DataInputStream fromPC;
-    private final DataOutputStream toPC;
+    private final MessageCodec codec;
     private final MotionController robotMovement;
-    private boolean open = true;
+    private volatile boolean open = true;
+    private final MoveQueue moves = new MoveQueue();
+    private final Thread mover;
     private final RobotInterfaceController robotInterface;
     private final Ranges rangeFind;
 
@@ -31,13 +33,20 @@ public class Communication extends Thread {
 
         BTConnection connection = Bluetooth.waitForConnection();
 
-        fromPC = connection.openDataInputStream();
-        toPC = connection.openDataOutputStream();
+        codec = new MessageCodec(connection.openInputStream(), connection.openOutputStream());
 
         robotMovement = movement;
         robotInterface = new RobotInterfaceController(this);
 
         rangeFind = new Ranges(robotMovement);
+
+        mover = new Thread() {
+            @Override
+            public void run() {
+                doMoves();
+            }
+        };
+        mover.setDaemon(true);
     }
 
     /**
@@ -55,10 +64,10 @@ public class Communication extends Thread {
      */
     @Override
     public void run() {
+        mover.start();
         try {
             receiveCommand();
-            fromPC.close();
-            toPC.close();
+            codec.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -72,42 +81,64 @@ public class Communication extends Thread {
     private void receiveCommand() throws IOException {
         while (open) {
             // Read command from pc
-            Integer command = fromPC.readInt();
-
-            // Movement command
-            if (command >= Protocol.NORTH && command <= Protocol.WEST) {
-                robotMovement.move(commandTranslate.get(command));
-                sendCommand(1);
+            int command = codec.read();
+
+            // Movement command, done on the mover thread
+            if (command == Protocol.MOVE) {
+                int sequence = codec.readInt();
+                Movement.Direction direction = commandTranslate.get(codec.readInt());
+                try {
+                    moves.put(sequence, direction);
+                } catch (InterruptedException e) {
+                    return;
+                }
 
             // Pickup and dropoff command
             } else if (command == Protocol.PICKUP) {
-                robotInterface.pickup(fromPC.readInt());
+                robotInterface.pickup(codec.readInt());
 
             // Localisation
             } else if (command == Protocol.LOCALISE) {
                 float[] ranges = rangeFind.getRanges();
-                sendCommand(Protocol.LOCALISE);
                 for (float range : ranges) {
                     System.out.println(range);
-                    sendFloat(range);
                 }
+                sendFloats(Protocol.LOCALISE, ranges);
 
             // Set direction facing once localised
             } else if (command == Protocol.SETDIR) {
-                robotMovement.setDirection(fromPC.readInt());
+                robotMovement.setDirection(codec.readInt());
+            }
+        }
+    }
+
+    /**
+     * Does the queued moves in order, answering each one once the robot is at the junction
+     */
+    private void doMoves() {
+        while (open) {
+            try {
+                moves.awaitMove();
+            } catch (InterruptedException e) {
+                return;
             }
+
+            boolean done = robotMovement.move(moves.getDirection(), moves);
+            int sequence = moves.getSequence();
+            moves.remove();
+            sendCommand(done ? Protocol.OK : Protocol.FAIL, sequence);
         }
     }
 
     /**
-     * Sends a Protocol command to the PC
+     * Sends a Protocol command to the PC, with its values in the same message
      *
-     * @param command int defined in protocol. Must be >= CANCEL
+     * @param command int defined in protocol
+     * @param values values of the command
      */
-    public void sendCommand(int command) {
+    public void sendCommand(int command, int... values) {
         try {
-            toPC.writeInt(command);
-            toPC.flush();
+            codec.send(command, values);
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
@@ -115,13 +146,17 @@ public class Communication extends Thread {
     }
 
     /**
-     * Sends a float for localisation
-     * @param data float to send
+     * Sends a Protocol command made of floats, for localisation
+     *
+     * @param command int defined in protocol
+     * @param values floats to send
      */
-    private void sendFloat(float data) {
+    private void sendFloats(int command, float[] values) {
         try {
-            toPC.writeFloat(data);
-            toPC.flush();
+            synchronized (codec) {
+                codec.writeFloats(command, values);
+                codec.flush();
+            }
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
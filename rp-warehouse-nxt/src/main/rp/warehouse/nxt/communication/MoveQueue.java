@@ -0,0 +1,71 @@
+package rp.warehouse.nxt.communication;
+
+import rp.warehouse.nxt.motion.Movement;
+
+/**
+ * Moves sent by the PC that haven't been done yet, oldest first. The oldest move stays at the front while it is
+ * being done, so the robot can see what comes after it.
+ * @author agent
+ */
+public class MoveQueue implements Movement.Upcoming {
+    private final int[] sequences = new int[Protocol.WINDOW];
+    private final Movement.Direction[] directions = new Movement.Direction[Protocol.WINDOW];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Adds a move to the back of the queue, waiting if it is full
+     * @param sequence sequence number of the move
+     * @param direction direction of the move
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void put(int sequence, Movement.Direction direction) throws InterruptedException {
+        while (size == sequences.length) {
+            wait();
+        }
+        int tail = (head + size) % sequences.length;
+        sequences[tail] = sequence;
+        directions[tail] = direction;
+        size++;
+        notifyAll();
+    }
+
+    /**
+     * Waits until there is a move in the queue
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitMove() throws InterruptedException {
+        while (size == 0) {
+            wait();
+        }
+    }
+
+    /**
+     * @return sequence number of the move at the front
+     */
+    public synchronized int getSequence() {
+        return sequences[head];
+    }
+
+    /**
+     * @return direction of the move at the front
+     */
+    public synchronized Movement.Direction getDirection() {
+        return directions[head];
+    }
+
+    @Override
+    public synchronized Movement.Direction getNext() {
+        return size > 1 ? directions[(head + 1) % directions.length] : null;
+    }
+
+    /**
+     * Removes the move at the front, once it is done
+     */
+    public synchronized void remove() {
+        directions[head] = null;
+        head = (head + 1) % sequences.length;
+        size--;
+        notifyAll();
+    }
+}
@@ -17,5 +17,11 @@ public class Protocol {
     public static final int LOCALISE = 9;
     public static final int DROPOFF = 10;
     public static final int SETDIR = 11;
+    // Followed by a sequence number and a direction. Answered by OK or FAIL and the same sequence number once the
+    // move is finished, so several moves can be sent without waiting for each one.
+    public static final int MOVE = 12;
+
+    // Most moves that can be sent before the first of them is answered
+    public static final int WINDOW = 3;
 
 }
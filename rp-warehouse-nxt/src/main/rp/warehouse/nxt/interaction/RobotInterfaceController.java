@@ -110,8 +110,7 @@ public class RobotInterfaceController {
 			LCD.drawString("Amount confirmed", TEXT_WIDTH, TEXT_HEIGHT);
 			/* The number of jobs is sent */
 			if (waiting) {
-				communicator.sendCommand(Protocol.PICKUP);
-				communicator.sendCommand(jobAmount);
+				communicator.sendCommand(Protocol.PICKUP, jobAmount);
 				waiting = false;
 				jobAmount = 0;
 			} else {
@@ -178,8 +177,7 @@ public class RobotInterfaceController {
 		if (toPickup < 1) {
 			LCD.drawString("Confirm dropoff", TEXT_WIDTH, TEXT_HEIGHT);
 			Button.waitForAnyPress();
-			communicator.sendCommand(Protocol.PICKUP);
-			communicator.sendCommand(0);
+			communicator.sendCommand(Protocol.PICKUP, 0);
 		} else {
 			waiting = true;
 			LCD.drawString("Pickup amount: " + toPickup, TEXT_WIDTH, TEXT_HEIGHT);
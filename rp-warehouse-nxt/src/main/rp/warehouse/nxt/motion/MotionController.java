@@ -23,6 +23,8 @@ public class MotionController implements Movement {
 	private LightSensor leftSensor;
 	private LightSensor rightSensor;
 	private Direction previousDirection;
+	// Whether the robot carried on through the last junction without stopping
+	private boolean moving = false;
 
 	/**
 	 * Constructor
@@ -68,6 +70,19 @@ public class MotionController implements Movement {
 	 * @return True if the action is completed, False if something went wrong
 	 */
 	public boolean move(Direction direction) {
+		return move(direction, null);
+	}
+
+	/**
+	 * Moves the robot in the specified based on the direction it was previously facing. If the next move is
+	 * already known and is straight on, the robot doesn't stop at the junction.
+	 * 
+	 * @param direction the direction to move in
+	 * @param upcoming the moves after this one, or null if there aren't any
+	 * @return True if the action is completed, False if something went wrong
+	 */
+	@Override
+	public boolean move(Direction direction, Upcoming upcoming) {
 
 		int rotation = 0;
 
@@ -139,20 +154,29 @@ public class MotionController implements Movement {
 		}
 
 		previousDirection = direction;
-		return travel(rotation);
+		return travel(rotation, upcoming);
 	}
 
 	/**
 	 * Helper for move function.
 	 * Does line checking and junction detection.
 	 * @param rotation amount to rotate
+	 * @param upcoming the moves after this one, or null if there aren't any
 	 * @return True if the movement is completed, False if not
 	 */
-	private boolean travel(int rotation) {
+	private boolean travel(int rotation, Upcoming upcoming) {
 		boolean junction = false;
 
-		pilot.rotate(rotation);
-		pilot.forward();
+		if (rotation != 0 || !moving) {
+			pilot.rotate(rotation);
+			pilot.forward();
+		}
+
+		// carrying on from the last junction, so get off it before looking for the next one
+		while (moving && leftSensor.getLightValue() < leftLineLimit && rightSensor.getLightValue() < rightLineLimit) {
+			pilot.steer(0);
+		}
+		moving = false;
 
 
 		while (!junction) {
@@ -174,6 +198,12 @@ public class MotionController implements Movement {
 			}
 
 		}
+		// keep going if the next move is straight on
+		if (upcoming != null && upcoming.getNext() == previousDirection) {
+			moving = true;
+			return true;
+		}
+
 		// returns true once it has reached a junction
 		pilot.travel(0.08);
 		pilot.stop();
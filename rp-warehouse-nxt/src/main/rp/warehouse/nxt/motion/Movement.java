@@ -9,5 +9,23 @@ public interface Movement {
         NORTH, EAST, SOUTH, WEST
     }
 
+    /**
+     * Gives the move after the current one, if it is known yet
+     */
+    interface Upcoming {
+        /**
+         * @return the direction of the next move, or null if there isn't one yet
+         */
+        Direction getNext();
+    }
+
     boolean move(Direction direction);
+
+    /**
+     * Moves to the next junction, carrying on through it without stopping if the next move is straight on
+     * @param direction the direction to move in
+     * @param upcoming the moves after this one
+     * @return True if the action is completed, False if something went wrong
+     */
+    boolean move(Direction direction, Upcoming upcoming);
 }
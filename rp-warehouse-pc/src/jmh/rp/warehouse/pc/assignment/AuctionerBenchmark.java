@@ -0,0 +1,73 @@
+package rp.warehouse.pc.assignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseGenerator;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.input.Job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigning every job to three robots by auction on the original warehouse
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuctionerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int jobs;
+
+    private List<Job> generated;
+    private List<RobotLocation> robots;
+    private Auctioner auctioner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        WarehouseLayout layout = WarehouseGenerator.layout(12, 8);
+        Warehouse.setLayout(layout);
+        generated = WarehouseGenerator.jobs(layout, jobs, 4, new Random(1));
+        robots = Arrays.asList(new RobotLocation(0, 0, 3), new RobotLocation(11, 7, 3), new RobotLocation(0, 7, 3));
+    }
+
+    /**
+     * The auctioner uses up its jobs, so each call gets a fresh copy
+     */
+    @Setup(Level.Invocation)
+    public void copyJobs() {
+        List<Job> copy = new ArrayList<>(generated.size());
+        for (Job job : generated) {
+            copy.add(new Job(job));
+        }
+        auctioner = new Auctioner(copy, robots);
+    }
+
+    @Benchmark
+    public List<Queue<Task>> assign() {
+        return auctioner.assign();
+    }
+}
@@ -0,0 +1,62 @@
+package rp.warehouse.pc.assignment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.WarehouseGenerator;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.input.Job;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting one more item into a robot's order of picks
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TSPBenchmark {
+
+    @Param({"5", "20", "50"})
+    public int picks;
+
+    private TSP tsp;
+    private Queue<Task> current;
+    private Task item;
+    private final Location start = new Location(0, 0);
+
+    @Setup
+    public void setup() {
+        WarehouseLayout layout = WarehouseGenerator.layout(12, 8);
+        tsp = new TSP(layout.getDistances(), layout.getDropOffs());
+
+        List<Job> jobs = WarehouseGenerator.jobs(layout, 1, picks + 1, new Random(1));
+        List<Task> tasks = jobs.get(0).getItems();
+        current = new LinkedList<>(tasks.subList(0, picks));
+        item = tasks.get(picks);
+    }
+
+    @Benchmark
+    public ItemOrder insertMinimumEdge() {
+        return tsp.insertMinimumEdge(item, current, start);
+    }
+}
@@ -0,0 +1,57 @@
+package rp.warehouse.pc.data;
+
+import rp.warehouse.pc.input.Job;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates warehouses and jobs of any size for benchmarks
+ *
+ * @author agent
+ */
+public class WarehouseGenerator {
+
+    /**
+     * Generates a warehouse with aisles like the original one: a shelf in every third column, leaving the top two
+     * rows and bottom row free, and a drop-off in the middle of the top row.
+     *
+     * @param width  number of grid columns
+     * @param height number of grid rows
+     * @return the layout
+     */
+    public static WarehouseLayout layout(int width, int height) {
+        List<int[]> shelves = new ArrayList<>();
+        for (int x = 1; x < width - 1; x += 3) {
+            shelves.add(new int[]{x, 1, x, height - 3});
+        }
+        return new WarehouseLayout(width, height, 0.30f, 0.15f, 0.15f, 0.30f * width, 0.30f * height, shelves,
+                Collections.singletonList(new Location(width / 2, height - 1)));
+    }
+
+    /**
+     * Generates jobs with items at random free points
+     *
+     * @param layout the layout
+     * @param count  number of jobs
+     * @param items  number of items in each job
+     * @param random source of randomness, so runs can be repeated
+     * @return the jobs
+     */
+    public static List<Job> jobs(WarehouseLayout layout, int count, int items, Random random) {
+        List<Location> free = layout.getFreeLocations();
+        List<Job> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ArrayList<Task> tasks = new ArrayList<>(items);
+            for (int j = 0; j < items; j++) {
+                Item item = new Item("item" + j, random.nextFloat() * 10, random.nextFloat() * 5,
+                        free.get(random.nextInt(free.size())));
+                tasks.add(new Task(item, 1 + random.nextInt(3), "job" + i));
+            }
+            jobs.add(new Job("job" + i, tasks));
+        }
+        return jobs;
+    }
+}
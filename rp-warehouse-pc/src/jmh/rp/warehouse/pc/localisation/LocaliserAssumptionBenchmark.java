@@ -0,0 +1,62 @@
+package rp.warehouse.pc.localisation;
+
+import lejos.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering the four heading assumptions as a robot drives down the first aisle, as in TestLocaliserAssumption.
+ * The whole of the Localiser needs a robot connection, so this covers the filtering it does for each move.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocaliserAssumptionBenchmark {
+
+	private final byte[] opposite = new byte[] { 0, 3, 2, 1 };
+	private WarehouseMap map;
+	private Ranges[] walk;
+
+	@Setup
+	public void setup() {
+		Warehouse.setLayout(WarehouseLayout.createDefault());
+		map = new WarehouseMap();
+
+		// Facing south from the top left corner, down to the bottom
+		walk = new Ranges[8];
+		for (int i = 0; i < walk.length; i++) {
+			walk[i] = Ranges.rotate(map.getRanges(new Point(0, 7 - i)), opposite[Ranges.DOWN]);
+		}
+	}
+
+	@Benchmark
+	public int localise() {
+		int points = 0;
+		for (byte direction = 0; direction < 4; direction++) {
+			LocaliserAssumption assumption = new LocaliserAssumption(direction, map);
+			assumption.start(walk[0]);
+			for (int i = 1; i < walk.length; i++) {
+				assumption.update(Ranges.UP, walk[i]);
+			}
+			points += assumption.getNumberOfPoints();
+		}
+		return points;
+	}
+}
@@ -0,0 +1,82 @@
+package rp.warehouse.pc.route;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseGenerator;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.Robot;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Planning a route for one robot with others standing around the warehouse. Robots are mocks, as a real robot needs
+ * a connection to a brick, so they stay where they are and reservations build up like on a busy floor.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePlanBenchmark {
+
+    @Param({"12", "30", "60"})
+    public int width;
+
+    @Param({"1", "3", "10"})
+    public int robots;
+
+    private List<Robot> robotList;
+    private List<Location> goals;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        WarehouseLayout layout = WarehouseGenerator.layout(width, width * 2 / 3);
+        Warehouse.setLayout(layout);
+
+        List<Location> free = layout.getFreeLocations();
+        Collections.shuffle(free, new Random(1));
+
+        robotList = new ArrayList<>();
+        for (int i = 0; i < robots; i++) {
+            Robot robot = mock(Robot.class);
+            Location location = free.get(i);
+            when(robot.getLocation()).thenReturn(new RobotLocation(location.getX(), location.getY(), 3));
+            robotList.add(robot);
+        }
+        goals = free.subList(robots, free.size());
+
+        RoutePlan.setGreedy();
+        RoutePlan.setRobots(robotList);
+    }
+
+    @Benchmark
+    public Route plan() {
+        Robot robot = robotList.get(next % robots);
+        Location goal = goals.get(next % goals.size());
+        next++;
+        return RoutePlan.plan(robot, goal);
+    }
+}
@@ -1,32 +1,66 @@
 package rp.warehouse.pc;
 
 import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.robot.utils.RewardCounter;
 import rp.warehouse.pc.input.Job;
 import rp.warehouse.pc.input.JobInput;
+import rp.warehouse.pc.input.JobStream;
 import rp.warehouse.pc.input.Jobs;
 import rp.warehouse.pc.management.LoadingView;
 import rp.warehouse.pc.route.RobotsControl;
 import rp.warehouse.pc.selection.JobSelector;
 
-import java.io.FileNotFoundException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 public class Main {
     private static final Logger logger = Logger.getLogger(Main.class);
+    // Directory of job files followed while running, and the port jobs can be sent to
+    private static final String INCOMING = "./incoming";
+    private static final int JOB_PORT = 4242;
+    // Time each move takes when running simulated robots, in milliseconds
+    private static final long SIMULATED_MOVE_TIME = 500;
 
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) throws IOException {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> logger.info("|-----------------------------[Application Closed]----------------------------------|")));
 
+        // Use the layout file if there is one, otherwise the original warehouse
+        if (new File("./warehouse.csv").exists()) {
+            Warehouse.load("./warehouse.csv");
+        }
+        Warehouse.loadDistances(new File("."));
+
         new LoadingView();
-        Jobs jobs = new JobInput("./items.csv", "./jobs.csv", "./locations.csv", "").getJobs();
+        JobInput input = new JobInput("./items.csv", "./jobs.csv", "./locations.csv", "", new File("./inputs.bin"));
+        Jobs jobs = input.getJobs();
 
         ArrayList<Job> jobsList = jobs.getJobs();
 
         JobSelector jobSelector = new JobSelector(jobsList, 0, false, 0f);
         List<Job> jobs1 = jobSelector.sortPredicted("./prediction.csv");
 
-        RobotsControl.run(jobs1);
+        // "--simulate <robots>" runs without real robots
+        if (args.length >= 2 && args[0].equals("--simulate")) {
+            RobotsControl.simulate(jobs1, Integer.parseInt(args[1]), SIMULATED_MOVE_TIME);
+        } else {
+            RobotsControl.run(jobs1);
+        }
+
+        // Keep taking jobs while the robots are running
+        JobStream stream = new JobStream(input, newJobs -> {
+            RewardCounter.addJobs(newJobs);
+            ArrayList<Job> sorted = new ArrayList<>(newJobs);
+            jobSelector.sortByReward(sorted);
+            RobotsControl.addJobs(sorted);
+        });
+        if (new File(INCOMING).isDirectory()) {
+            stream.watch(Paths.get(INCOMING));
+        }
+        stream.listen(JOB_PORT);
 
         logger.debug("Main thread ending");
     }
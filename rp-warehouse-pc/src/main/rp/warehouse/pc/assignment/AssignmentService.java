@@ -0,0 +1,167 @@
+package rp.warehouse.pc.assignment;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.input.Job;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Keeps the queue of items for each robot while the robots are running, so work can move between them
+ * <p>
+ * Robots take items from the front of their own queue. A robot that runs out takes the back half of the longest
+ * queue, and jobs that come in later are auctioned onto the ends of the queues. A robot with nothing left to do or
+ * take is parked, and woken again when new jobs come in.
+ *
+ * @author agent
+ */
+public class AssignmentService {
+
+    private static final Logger logger = Logger.getLogger(AssignmentService.class);
+
+    private final List<LinkedBlockingDeque<Task>> queues;
+    private final TSP tsp;
+    // What wakes each parked robot, or null while the robot is running
+    private final Runnable[] parked;
+
+    /**
+     * @param assigned The items first assigned to each robot, in order
+     * @param tsp      The costs used to order items that are moved
+     */
+    public AssignmentService(List<Queue<Task>> assigned, TSP tsp) {
+        this.queues = new ArrayList<>(assigned.size());
+        for (Queue<Task> items : assigned) {
+            queues.add(new LinkedBlockingDeque<>(items));
+        }
+        this.tsp = tsp;
+        this.parked = new Runnable[assigned.size()];
+    }
+
+    /**
+     * @param robot The robot's index
+     * @return The queue the robot takes its items from. Safe to use from the robot's thread.
+     */
+    public Queue<Task> getQueue(int robot) {
+        return queues.get(robot);
+    }
+
+    /**
+     * Gives an idle robot the back half of the longest queue, ordered from where the robot is. The last item of a
+     * queue is only taken if its robot is parked, as otherwise the robot will get to it.
+     * <p>
+     * Items are kept together with the rest of their job, in the order the jobs were in, so only the items within
+     * each job are put in a new order.
+     *
+     * @param into The queue of the robot that needs work
+     * @param from Where the robot is
+     * @param load The weight the robot is carrying
+     * @return Whether any items were moved
+     */
+    public synchronized boolean steal(Queue<Task> into, Location from, float load) {
+        LinkedBlockingDeque<Task> victim = null;
+        for (int i = 0; i < queues.size(); i++) {
+            LinkedBlockingDeque<Task> queue = queues.get(i);
+            int least = parked[i] == null ? 2 : 1;
+            if (queue != into && queue.size() >= least && (victim == null || queue.size() > victim.size())) {
+                victim = queue;
+            }
+        }
+        if (victim == null) {
+            return false;
+        }
+
+        // The owner can still be taking items from the front, so only take from the back one at a time
+        LinkedList<Task> stolen = new LinkedList<>();
+        for (int i = Math.max(1, victim.size() / 2); i > 0; i--) {
+            Task task = victim.pollLast();
+            if (task == null) {
+                break;
+            }
+            stolen.addFirst(task);
+        }
+        if (stolen.isEmpty()) {
+            return false;
+        }
+
+        List<Task> order = new ArrayList<>(stolen.size());
+        Location start = from;
+        while (!stolen.isEmpty()) {
+            // Each job carries on from where the one before it finished
+            int job = stolen.peek().getJob();
+            Queue<Task> run = new LinkedList<>();
+            while (!stolen.isEmpty() && stolen.peek().getJob() == job) {
+                run = tsp.insertMinimumEdge(stolen.poll(), run, start, load).getOrder();
+            }
+            order.addAll(run);
+            load = tsp.getLoad(load, run);
+            start = order.get(order.size() - 1).getItem().getLocation();
+        }
+        into.addAll(order);
+        logger.info("Moved " + order.size() + " items to an idle robot");
+        return true;
+    }
+
+    /**
+     * Parks a robot that has nothing left to do. If items were added to its queue since it last looked, it is woken
+     * straight away.
+     *
+     * @param robot The robot's index
+     * @param wake  Starts the robot again. Must not block, as it is called while new jobs are being assigned.
+     */
+    public synchronized void park(int robot, Runnable wake) {
+        if (!queues.get(robot).isEmpty()) {
+            wake.run();
+            return;
+        }
+        parked[robot] = wake;
+        logger.debug("Robot " + robot + " parked");
+    }
+
+    /**
+     * Auctions jobs that came in after the robots started, carrying on from the end of each robot's queue
+     *
+     * @param jobs      The new jobs, in order
+     * @param locations Where each robot is
+     */
+    public synchronized void addJobs(List<Job> jobs, List<? extends Location> locations) {
+        // Carry on from where each robot will be, with what it will be carrying, after its queue
+        List<Location> starts = new ArrayList<>(queues.size());
+        float[] loads = new float[queues.size()];
+        for (int i = 0; i < queues.size(); i++) {
+            Task last = queues.get(i).peekLast();
+            starts.add(last == null ? locations.get(i) : last.getItem().getLocation());
+            loads[i] = tsp.getLoad(0, queues.get(i));
+        }
+
+        List<Queue<Task>> assigned = new Auctioner(new ArrayList<>(jobs), starts, tsp, loads).assign();
+        for (int i = 0; i < queues.size(); i++) {
+            queues.get(i).addAll(assigned.get(i));
+        }
+        logger.debug("Assigned " + jobs.size() + " new jobs");
+
+        // Parked robots either have new items or can take some from the others
+        for (int i = 0; i < parked.length; i++) {
+            Runnable wake = parked[i];
+            if (wake != null) {
+                parked[i] = null;
+                wake.run();
+            }
+        }
+    }
+
+    /**
+     * @return The number of items waiting in every queue
+     */
+    public int size() {
+        int size = 0;
+        for (Queue<Task> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+}
@@ -3,13 +3,17 @@ package rp.warehouse.pc.assignment;
 import org.apache.log4j.Logger;
 import rp.warehouse.pc.data.Location;
 import rp.warehouse.pc.data.Task;
-import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.robot.Robot;
 import rp.warehouse.pc.input.Job;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 // It all works I think
 // This is the big boy you want to make to replace SimpleAssigner
@@ -21,18 +25,57 @@ import java.util.Queue;
  */
 public class Auctioner {
 
-    private static final TSP tsp = new TSP();
+    private final TSP tsp;
     private static final Logger logger = Logger.getLogger(Auctioner.class);
+    // Fewest robot and item pairs worth pricing in parallel
+    private static final int PARALLEL_THRESHOLD = 64;
     private List<Job> jobs;
     private List<Location> robots;
+    // Weight each robot is carrying after the jobs assigned so far
+    private float[] loads;
+    private final ForkJoinPool pool;
 
     /**
      * @param jobs   List of ordered jobs
      * @param robots List of robot locations
      */
-    public Auctioner(List<Job> jobs, List<RobotLocation> robots) {
+    public Auctioner(List<Job> jobs, List<? extends Location> robots) {
+        this(jobs, robots, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param jobs   List of ordered jobs
+     * @param robots List of robot locations
+     * @param pool   The pool bids are worked out on
+     */
+    public Auctioner(List<Job> jobs, List<? extends Location> robots, ForkJoinPool pool) {
+        this(jobs, robots, new TSP(Warehouse.getDistances(), Warehouse.getDropOffs(), Robot.WEIGHTLIMIT),
+                new float[robots.size()], pool);
+    }
+
+    /**
+     * @param jobs   List of ordered jobs
+     * @param robots List of robot locations
+     * @param tsp    The costs used to order items
+     * @param loads  The weight each robot is carrying at its location
+     */
+    public Auctioner(List<Job> jobs, List<? extends Location> robots, TSP tsp, float[] loads) {
+        this(jobs, robots, tsp, loads, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param jobs   List of ordered jobs
+     * @param robots List of robot locations
+     * @param tsp    The costs used to order items
+     * @param loads  The weight each robot is carrying at its location
+     * @param pool   The pool bids are worked out on
+     */
+    public Auctioner(List<Job> jobs, List<? extends Location> robots, TSP tsp, float[] loads, ForkJoinPool pool) {
         this.jobs = jobs;
         this.robots = new ArrayList<>(robots);
+        this.tsp = tsp;
+        this.loads = loads.clone();
+        this.pool = pool;
     }
 
     /**
@@ -46,6 +89,9 @@ public class Auctioner {
      * Will Auction off the items in a job. Each robot bids on the item closest to
      * their location. Winner is the bid with the lowest cost, winner is assigned
      * their chosen item. Repeat until all the items in the job are assigned
+     * <p>
+     * A robot's cost for an item only changes when the robot wins an item, so the best order for every robot and
+     * item is worked out once per job, and after that only the winner's orders are worked out again.
      */
     private List<Queue<Task>> auction() {
         List<Queue<Task>> assignedItems = new ArrayList<>();
@@ -64,23 +110,39 @@ public class Auctioner {
             }
 
             ArrayList<Task> unassignedItems = job.getItems();
+            List<Task> items = new ArrayList<>(unassignedItems);
+            boolean[] assigned = new boolean[items.size()];
+            ItemOrder[][] orders = new ItemOrder[robots.size()][items.size()];
+            // Stops of each robot's tour, kept until it wins another item
+            int[][] xs = new int[robots.size()][items.size() + 1];
+            int[][] ys = new int[robots.size()][items.size() + 1];
+            float[][] ws = new float[robots.size()][items.size() + 1];
+            for (int i = 0; i < robots.size(); i++) {
+                tsp.getStops(assigning.get(i), robots.get(i), loads[i], xs[i], ys[i], ws[i]);
+            }
+            price(orders, assigning, items, assigned, xs, ys, ws, 0, robots.size());
 
             // Auction items
-            while (!unassignedItems.isEmpty()) {
-                ArrayList<Bid> bids = new ArrayList<>();
+            for (int remaining = items.size(); remaining > 0; remaining--) {
+                Bid winner = null;
                 for (int i = 0; i < assigning.size(); i++) {
-                    bids.add(getBid(job, assigning.get(i), i));
-                }
-
-                Bid winner = bids.get(0);
-                for (Bid bid : bids) {
-                    if (bid.getItemOrder().getPathCost() < winner.getItemOrder().getPathCost()) {
+                    Bid bid = getBid(orders[i], items, assigned, i);
+                    if (winner == null || bid.getItemOrder().getPathCost() < winner.getItemOrder().getPathCost()) {
                         winner = bid;
                     }
                 }
 
                 assigning.set(winner.getOwner(), winner.getItemOrder().getOrder());
+                for (int i = 0; i < items.size(); i++) {
+                    if (!assigned[i] && items.get(i) == winner.getItem()) {
+                        assigned[i] = true;
+                        break;
+                    }
+                }
                 unassignedItems.remove(winner.getItem());
+                int owner = winner.getOwner();
+                tsp.getStops(assigning.get(owner), robots.get(owner), loads[owner], xs[owner], ys[owner], ws[owner]);
+                price(orders, assigning, items, assigned, xs, ys, ws, owner, owner + 1);
                 logger.trace("Item assigned to robot " + robots.get(winner.getOwner()));
             }
 
@@ -91,8 +153,9 @@ public class Auctioner {
                 }
             }
 
-            // Update locations
+            // Update loads and locations
             for (int i = 0; i < assignedItems.size(); i++) {
+                loads[i] = tsp.getLoad(loads[i], assigning.get(i));
                 LinkedList<Task> robotTasks = (LinkedList<Task>) assignedItems.get(i);
                 if (!robotTasks.isEmpty()) {
                     robots.remove(i);
@@ -106,26 +169,59 @@ public class Auctioner {
         return assignedItems;
     }
 
+    /**
+     * Works out the best order for some robots with each item still in the auction, in parallel if there are enough
+     *
+     * @param orders    The best orders, by robot then item
+     * @param assigning The items each robot has won so far
+     * @param items     The items in the job
+     * @param assigned  Which items have been won
+     * @param xs        The x co-ordinates of each robot's stops
+     * @param ys        The y co-ordinates of each robot's stops
+     * @param ws        The weights of each robot's stops
+     * @param from      The first robot to work out
+     * @param to        One after the last robot to work out
+     */
+    private void price(ItemOrder[][] orders, List<Queue<Task>> assigning, List<Task> items, boolean[] assigned,
+                       int[][] xs, int[][] ys, float[][] ws, int from, int to) {
+        final int count = items.size();
+        IntStream pairs = IntStream.range(from * count, to * count).filter(pair -> !assigned[pair % count]);
+        IntConsumer work = pair -> {
+            int robot = pair / count;
+            orders[robot][pair % count] = tsp.insertMinimumEdge(items.get(pair % count), assigning.get(robot),
+                    xs[robot], ys[robot], ws[robot]);
+        };
+
+        if ((to - from) * count < PARALLEL_THRESHOLD) {
+            pairs.forEach(work);
+        } else {
+            pool.submit(() -> pairs.parallel().forEach(work)).join();
+        }
+    }
+
     /**
      * Chooses the closest item in the job to a robot and 'bids' on it
      *
-     * @param job          The job
-     * @param currentItems The items the robot has won
-     * @param robot        The robot bidding
+     * @param orders   The robot's best order with each item
+     * @param items    The items in the job
+     * @param assigned Which items have been won
+     * @param robot    The robot bidding
      * @return The robot's bid
      */
-    private Bid getBid(Job job, Queue<Task> currentItems, int robot) {
+    private Bid getBid(ItemOrder[] orders, List<Task> items, boolean[] assigned, int robot) {
         Task bidItem = null;
         int bidVal = Integer.MAX_VALUE;
         ItemOrder bidOrder = null;
 
-        for (Task task : job.getItems()) {
-            ItemOrder newOrder = tsp.insertMinimumEdge(task, currentItems, robots.get(robot));
-            int newCost = newOrder.getPathCost();
-            if (newCost < bidVal) {
-                bidItem = task;
+        for (int i = 0; i < items.size(); i++) {
+            if (assigned[i]) {
+                continue;
+            }
+            int newCost = orders[i].getPathCost();
+            if (bidOrder == null || newCost < bidVal) {
+                bidItem = items.get(i);
                 bidVal = newCost;
-                bidOrder = newOrder;
+                bidOrder = orders[i];
             }
         }
         return new Bid(bidItem, robot, bidOrder);
@@ -1,9 +1,12 @@
 package rp.warehouse.pc.assignment;
 
+import rp.warehouse.pc.data.DistanceOracle;
 import rp.warehouse.pc.data.Location;
 import rp.warehouse.pc.data.Task;
 
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 /**
@@ -13,8 +16,46 @@ import java.util.Queue;
  */
 public class TSP {
 
+    private final DistanceOracle distances;
+    private final List<Location> dropOffs;
+    private final float capacity;
+
     /**
-     * Gets the item order which gives the lowest cost
+     * Uses the Manhattan distance between locations
+     */
+    public TSP() {
+        this(null);
+    }
+
+    /**
+     * @param distances The travel distances around the warehouse, or null to use the Manhattan distance
+     */
+    public TSP(DistanceOracle distances) {
+        this(distances, Collections.<Location>emptyList());
+    }
+
+    /**
+     * @param distances The travel distances around the warehouse, or null to use the Manhattan distance
+     * @param dropOffs  The drop-off points, the nearest of which is added to the end of every order
+     */
+    public TSP(DistanceOracle distances, List<Location> dropOffs) {
+        this(distances, dropOffs, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param distances The travel distances around the warehouse, or null to use the Manhattan distance
+     * @param dropOffs  The drop-off points, the nearest of which is added to the end of every order
+     * @param capacity  The most weight a robot can carry. When the next item won't fit, the robot goes by way of a
+     *                  drop-off to get it, like {@link rp.warehouse.pc.data.robot.Robot} does.
+     */
+    public TSP(DistanceOracle distances, List<Location> dropOffs, float capacity) {
+        this.distances = distances;
+        this.dropOffs = dropOffs;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the item order which gives the lowest cost, for a robot starting with nothing in its cargo
      *
      * @param item          The item being considered
      * @param currentPicks  The items the robot has won
@@ -22,57 +63,312 @@ public class TSP {
      * @return The lowest cost order with considered item
      */
     public ItemOrder insertMinimumEdge(Task item, Queue<Task> currentPicks, Location robotLocation) {
-        final LinkedList<Task> current = new LinkedList<>(currentPicks);
+        return insertMinimumEdge(item, currentPicks, robotLocation, 0);
+    }
+
+    /**
+     * Gets the item order which gives the lowest cost
+     * <p>
+     * If everything fits in the cargo, the cost of putting the item between two stops is the change it makes to the
+     * tour, {@code d(a, item) + d(item, b) - d(a, b)}, so each position is checked in constant time. Otherwise the
+     * drop-off trips after the item can change, so the tour is followed on from the item until it drops off at the
+     * same place it did before, after which nothing changes. Only the chosen order is built.
+     *
+     * @param item          The item being considered
+     * @param currentPicks  The items the robot has won
+     * @param robotLocation The robot's current location
+     * @param load          The weight the robot is already carrying
+     * @return The lowest cost order with considered item
+     */
+    public ItemOrder insertMinimumEdge(Task item, Queue<Task> currentPicks, Location robotLocation, float load) {
+        final int size = currentPicks.size() + 1;
+        final int[] xs = new int[size];
+        final int[] ys = new int[size];
+        final float[] ws = new float[size];
+        getStops(currentPicks, robotLocation, load, xs, ys, ws);
+        return insertMinimumEdge(item, currentPicks, xs, ys, ws);
+    }
 
-        if (current.isEmpty()) {
-            LinkedList<Task> order = new LinkedList<>();
-            order.add(item);
-            return new ItemOrder(getTotalDistance(robotLocation, order), order);
+    /**
+     * Gets the item order which gives the lowest cost, with the stops of the tour already worked out by
+     * {@link #getStops(Queue, Location, float, int[], int[], float[])}, so they can be kept between calls
+     *
+     * @param item         The item being considered
+     * @param currentPicks The items the robot has won
+     * @param xs           The x co-ordinates of the robot and then each item
+     * @param ys           The y co-ordinates of the robot and then each item
+     * @param ws           The weight the robot is carrying and then of each item
+     * @return The lowest cost order with considered item
+     */
+    public ItemOrder insertMinimumEdge(Task item, Queue<Task> currentPicks, int[] xs, int[] ys, float[] ws) {
+        final int size = currentPicks.size() + 1;
+        float total = 0;
+        int i;
+        for (i = 0; i < size; i++) {
+            total += ws[i];
         }
 
-        int lowest = Integer.MAX_VALUE;
-        LinkedList<Task> lowestOrder = new LinkedList<>();
-        for (int i = 0; i < currentPicks.size() + 1; i++) {
-            LinkedList<Task> newOrder = new LinkedList<>(current);
-            newOrder.add(i, item);
-            int cost = getTotalDistance(robotLocation, newOrder);
-            if (cost < lowest) {
-                lowest = cost;
-                lowestOrder = newOrder;
+        final Location location = item.getItem().getLocation();
+        final int x = location.getX();
+        final int y = location.getY();
+        final float w = getWeight(item);
+        final int last = size - 1;
+
+        int lowest;
+        int position;
+        if (total + w <= capacity) {
+            int tour = getTotalDistance(xs, ys, ws, size);
+
+            // Put the item after the last pick, changing which drop-off is nearest
+            lowest = tour + getDistance(xs[last], ys[last], x, y) + getDropOffDistance(x, y)
+                    - getDropOffDistance(xs[last], ys[last]);
+            position = last;
+            for (i = last - 1; i >= 0; i--) {
+                int cost = tour + getDistance(xs[i], ys[i], x, y) + getDistance(x, y, xs[i + 1], ys[i + 1])
+                        - getDistance(xs[i], ys[i], xs[i + 1], ys[i + 1]);
+                if (cost <= lowest) {
+                    lowest = cost;
+                    position = i;
+                }
+            }
+        } else {
+            // Cost of getting to each stop, what is in the cargo after it and whether it was got by way of a drop-off
+            final int[] reached = new int[size];
+            final float[] loads = new float[size];
+            final boolean[] trips = new boolean[size];
+            loads[0] = ws[0];
+            for (i = 1; i < size; i++) {
+                trips[i] = isFull(loads[i - 1], ws[i]);
+                reached[i] = reached[i - 1] + getDistance(xs[i - 1], ys[i - 1], xs[i], ys[i], trips[i]);
+                loads[i] = (trips[i] ? 0 : loads[i - 1]) + ws[i];
+            }
+            final int tour = reached[last] + getDropOffDistance(xs[last], ys[last]);
+
+            lowest = Integer.MAX_VALUE;
+            position = last;
+            for (i = 0; i < size; i++) {
+                boolean trip = isFull(loads[i], w);
+                int cost = reached[i] + getDistance(xs[i], ys[i], x, y, trip);
+                float cargo = (trip ? 0 : loads[i]) + w;
+                int fromX = x;
+                int fromY = y;
+
+                int j = i + 1;
+                for (; j < size && cost < lowest; j++) {
+                    trip = isFull(cargo, ws[j]);
+                    if (trip && trips[j] && j > i + 1) {
+                        // Same trip to the same stop as before, so the rest of the tour is the same
+                        cost += tour - reached[j - 1];
+                        break;
+                    }
+                    cost += getDistance(fromX, fromY, xs[j], ys[j], trip);
+                    cargo = (trip ? 0 : cargo) + ws[j];
+                    fromX = xs[j];
+                    fromY = ys[j];
+                }
+                if (j == size) {
+                    cost += getDropOffDistance(fromX, fromY);
+                }
+
+                if (cost < lowest) {
+                    lowest = cost;
+                    position = i;
+                }
             }
         }
-        return new ItemOrder(lowest, lowestOrder);
+
+        LinkedList<Task> order = new LinkedList<>(currentPicks);
+        order.add(position, item);
+        return new ItemOrder(lowest, order);
     }
 
     /**
-     * Calculates the total path cost given an order of items
+     * Works out the stops of a tour, starting with the robot
+     *
+     * @param currentPicks  The items the robot has won
+     * @param robotLocation The robot's current location
+     * @param load          The weight the robot is already carrying
+     * @param xs            Filled with the x co-ordinates of the robot and then each item
+     * @param ys            Filled with the y co-ordinates of the robot and then each item
+     * @param ws            Filled with the weight the robot is carrying and then of each item
+     */
+    public void getStops(Queue<Task> currentPicks, Location robotLocation, float load, int[] xs, int[] ys,
+                         float[] ws) {
+        xs[0] = robotLocation.getX();
+        ys[0] = robotLocation.getY();
+        ws[0] = load;
+        int i = 1;
+        for (Task task : currentPicks) {
+            Location location = task.getItem().getLocation();
+            xs[i] = location.getX();
+            ys[i] = location.getY();
+            ws[i] = getWeight(task);
+            i++;
+        }
+    }
+
+    /**
+     * Calculates the total path cost given an order of items, including getting to the nearest drop-off if there
+     * are any
      *
      * @param start The start location
      * @param items The items (in order of visiting)
      * @return The total path cost
      */
     public int getTotalDistance(Location start, LinkedList<Task> items) {
-        LinkedList<Location> locations = new LinkedList<Location>();
-        locations.add(start);
-        for (Task item : items) {
-            locations.add(item.getItem().getLocation());
+        return getTotalDistance(start, items.toArray(new Task[0]));
+    }
+
+    /**
+     * Calculates the total path cost given an order of items, for a robot starting with nothing in its cargo,
+     * including getting to the nearest drop-off if there are any
+     *
+     * @param start The start location
+     * @param items The items (in order of visiting)
+     * @return The total path cost
+     */
+    public int getTotalDistance(Location start, Task[] items) {
+        final int size = items.length + 1;
+        final int[] xs = new int[size];
+        final int[] ys = new int[size];
+        final float[] ws = new float[size];
+        xs[0] = start.getX();
+        ys[0] = start.getY();
+        for (int i = 1; i < size; i++) {
+            xs[i] = items[i - 1].getItem().getLocation().getX();
+            ys[i] = items[i - 1].getItem().getLocation().getY();
+            ws[i] = getWeight(items[i - 1]);
         }
+        return getTotalDistance(xs, ys, ws, size);
+    }
 
+    /**
+     * Calculates the total path cost of visiting locations in order, including getting to the nearest drop-off if
+     * there are any
+     *
+     * @param xs   The x co-ordinates of the locations
+     * @param ys   The y co-ordinates of the locations
+     * @param ws   The weight picked up at each location, with the weight already carried at the start
+     * @param size The number of locations, at least 1
+     * @return The total path cost
+     */
+    public int getTotalDistance(int[] xs, int[] ys, float[] ws, int size) {
         int cost = 0;
-        for (int i = 0; i < (locations.size() - 1); i++) {
-            cost += getDistance(locations.get(i), locations.get(i + 1));
+        float load = ws[0];
+        for (int i = 1; i < size; i++) {
+            boolean trip = isFull(load, ws[i]);
+            cost += getDistance(xs[i - 1], ys[i - 1], xs[i], ys[i], trip);
+            load = (trip ? 0 : load) + ws[i];
+        }
+        return cost + getDropOffDistance(xs[size - 1], ys[size - 1]);
+    }
+
+    /**
+     * Works out what a robot is carrying after picking up items in order
+     *
+     * @param load  The weight the robot is carrying before
+     * @param items The items (in order of visiting)
+     * @return The weight the robot is carrying after
+     */
+    public float getLoad(float load, Iterable<Task> items) {
+        for (Task item : items) {
+            float weight = getWeight(item);
+            load = (isFull(load, weight) ? 0 : load) + weight;
+        }
+        return load;
+    }
+
+    /**
+     * @return Whether the robot has to drop off before picking up an item, which it does unless the cargo is empty
+     */
+    private boolean isFull(float load, float weight) {
+        return load > 0 && load + weight > capacity;
+    }
+
+    private float getWeight(Task task) {
+        return task.getItem().getWeight() * task.getCount();
+    }
+
+    private int getDistance(int x1, int y1, int x2, int y2, boolean trip) {
+        return trip ? getTripDistance(x1, y1, x2, y2) : getDistance(x1, y1, x2, y2);
+    }
+
+    /**
+     * Calculates the distance to the nearest drop-off
+     *
+     * @param from The location to go from
+     * @return Distance to the nearest drop-off, or 0 if there aren't any
+     */
+    public int getDropOffDistance(Location from) {
+        return getDropOffDistance(from.getX(), from.getY());
+    }
+
+    /**
+     * Calculates the distance to the nearest drop-off
+     *
+     * @param x The x co-ordinate to go from
+     * @param y The y co-ordinate to go from
+     * @return Distance to the nearest drop-off, or 0 if there aren't any
+     */
+    public int getDropOffDistance(int x, int y) {
+        int nearest = dropOffs.isEmpty() ? 0 : Integer.MAX_VALUE;
+        for (int i = 0; i < dropOffs.size(); i++) {
+            Location dropOff = dropOffs.get(i);
+            nearest = Math.min(nearest, getDistance(x, y, dropOff.getX(), dropOff.getY()));
+        }
+        return nearest;
+    }
+
+    /**
+     * Calculates the distance of going from one grid point to another by way of a drop-off, choosing the drop-off
+     * that makes the trip shortest
+     *
+     * @param x1 x co-ordinate to go from
+     * @param y1 y co-ordinate to go from
+     * @param x2 x co-ordinate to go to
+     * @param y2 y co-ordinate to go to
+     * @return Distance of the trip, or the distance between the points if there aren't any drop-offs
+     */
+    public int getTripDistance(int x1, int y1, int x2, int y2) {
+        if (dropOffs.isEmpty()) {
+            return getDistance(x1, y1, x2, y2);
+        }
+        int shortest = Integer.MAX_VALUE;
+        for (int i = 0; i < dropOffs.size(); i++) {
+            Location dropOff = dropOffs.get(i);
+            shortest = Math.min(shortest, getDistance(x1, y1, dropOff.getX(), dropOff.getY())
+                    + getDistance(dropOff.getX(), dropOff.getY(), x2, y2));
         }
-        return cost;
+        return shortest;
     }
 
     /**
-     * Calculates distance between two locations
+     * Calculates distance between two locations, going around shelves if the warehouse distances are known
      *
      * @param from
      * @param to
      * @return Distance between two locations
      */
     public int getDistance(Location from, Location to) {
-        return Math.abs(from.getX() - to.getX()) + Math.abs(from.getY() - to.getY());
+        return getDistance(from.getX(), from.getY(), to.getX(), to.getY());
+    }
+
+    /**
+     * Calculates distance between two grid points, going around shelves if the warehouse distances are known
+     *
+     * @param x1 x co-ordinate to go from
+     * @param y1 y co-ordinate to go from
+     * @param x2 x co-ordinate to go to
+     * @param y2 y co-ordinate to go to
+     * @return Distance between the points
+     */
+    public int getDistance(int x1, int y1, int x2, int y2) {
+        if (distances != null) {
+            int distance = distances.getDistance(x1, y1, x2, y2);
+            if (distance != DistanceOracle.UNREACHABLE) {
+                return distance;
+            }
+        }
+        return Math.abs(x1 - x2) + Math.abs(y1 - y2);
     }
 }
@@ -0,0 +1,184 @@
+package rp.warehouse.pc.assignment;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Shortens the orders given by the Auctioner with 2-opt and Or-opt moves
+ * <p>
+ * The cost of an order is the distance a robot drives doing it, as given by {@link TSP}, including the trips to a
+ * drop-off it makes when the next item won't fit in its cargo. Jobs are done in the order they were assigned, so items are only moved
+ * around within the same job.
+ *
+ * @author agent
+ */
+public class TourImprover {
+
+    private static final Logger logger = Logger.getLogger(TourImprover.class);
+    // Longest run of items Or-opt moves at once
+    private static final int SEGMENT = 3;
+
+    private final TSP tsp;
+    private final long budgetMillis;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param tsp          The costs to use, with the robots' capacity
+     * @param budgetMillis How long to spend improving all of the orders
+     */
+    public TourImprover(TSP tsp, long budgetMillis) {
+        this(tsp, budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param tsp          The costs to use, with the robots' capacity
+     * @param budgetMillis How long to spend improving all of the orders
+     * @param pool         The pool robots' orders are improved on
+     */
+    public TourImprover(TSP tsp, long budgetMillis, ForkJoinPool pool) {
+        this.tsp = tsp;
+        this.budgetMillis = budgetMillis;
+        this.pool = pool;
+    }
+
+    /**
+     * Improves every robot's order at the same time
+     *
+     * @param orders The items assigned to each robot, in order
+     * @param starts Where each robot starts
+     * @return The improved orders
+     */
+    public List<Queue<Task>> improve(List<Queue<Task>> orders, List<? extends Location> starts) {
+        final long deadline = System.currentTimeMillis() + budgetMillis;
+        final List<Queue<Task>> improved = new ArrayList<>(orders);
+        pool.submit(() -> IntStream.range(0, orders.size()).parallel()
+                .forEach(i -> improved.set(i, improve(orders.get(i), starts.get(i), deadline)))).join();
+        return improved;
+    }
+
+    /**
+     * Improves one robot's order until no move makes it shorter or time runs out
+     *
+     * @param order    The items assigned to the robot, in order
+     * @param start    Where the robot starts
+     * @param deadline The time to stop at
+     * @return The improved order
+     */
+    Queue<Task> improve(Queue<Task> order, Location start, long deadline) {
+        Task[] tasks = order.toArray(new Task[0]);
+        Task[] candidate = new Task[tasks.length];
+        int before = getCost(start, tasks);
+        int cost = before;
+
+        boolean improving = true;
+        while (improving && System.currentTimeMillis() < deadline) {
+            improving = false;
+
+            // 2-opt: reverse a run of items
+            for (int i = 0; i < tasks.length && !improving; i++) {
+                for (int j = i + 1; j < tasks.length && sameJob(tasks, i, j); j++) {
+                    System.arraycopy(tasks, 0, candidate, 0, tasks.length);
+                    reverse(candidate, i, j);
+                    int newCost = getCost(start, candidate);
+                    if (newCost < cost) {
+                        cost = accept(candidate, tasks, newCost);
+                        improving = true;
+                        break;
+                    }
+                }
+            }
+
+            // Or-opt: move a short run of items somewhere else in its job
+            for (int length = 1; length <= SEGMENT && !improving; length++) {
+                for (int i = 0; i + length <= tasks.length && !improving; i++) {
+                    if (!sameJob(tasks, i, i + length - 1)) {
+                        continue;
+                    }
+                    for (int to = 0; to + length <= tasks.length; to++) {
+                        if (to == i || !sameJob(tasks, i, to) || !sameJob(tasks, i, to + length - 1)) {
+                            continue;
+                        }
+                        move(tasks, candidate, i, length, to);
+                        int newCost = getCost(start, candidate);
+                        if (newCost < cost) {
+                            cost = accept(candidate, tasks, newCost);
+                            improving = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (cost < before) {
+            logger.debug("Order shortened from " + before + " to " + cost);
+        }
+        LinkedList<Task> improved = new LinkedList<>();
+        for (Task task : tasks) {
+            improved.add(task);
+        }
+        return improved;
+    }
+
+    /**
+     * Calculates the distance a robot drives doing items in order, including trips to drop off
+     *
+     * @param start The robot's location
+     * @param tasks The items in order
+     * @return The distance driven
+     */
+    public int getCost(Location start, Task[] tasks) {
+        return tasks.length == 0 ? 0 : tsp.getTotalDistance(start, tasks);
+    }
+
+    private int accept(Task[] candidate, Task[] tasks, int cost) {
+        System.arraycopy(candidate, 0, tasks, 0, tasks.length);
+        return cost;
+    }
+
+    private boolean sameJob(Task[] tasks, int i, int j) {
+        return tasks[i].getJob() == tasks[j].getJob();
+    }
+
+    private void reverse(Task[] tasks, int i, int j) {
+        for (; i < j; i++, j--) {
+            Task swap = tasks[i];
+            tasks[i] = tasks[j];
+            tasks[j] = swap;
+        }
+    }
+
+    /**
+     * Copies the items into the candidate with a run of them moved
+     *
+     * @param tasks     The items
+     * @param candidate Where to put the new order
+     * @param from      The start of the run
+     * @param length    The length of the run
+     * @param to        Where the run starts after the move
+     */
+    private void move(Task[] tasks, Task[] candidate, int from, int length, int to) {
+        int k = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            if (i >= from && i < from + length) {
+                continue;
+            }
+            if (k == to) {
+                System.arraycopy(tasks, from, candidate, k, length);
+                k += length;
+            }
+            candidate[k++] = tasks[i];
+        }
+        if (k == to) {
+            System.arraycopy(tasks, from, candidate, k, length);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package rp.warehouse.pc.communication;
+
+import lejos.pc.comm.NXTComm;
+import lejos.pc.comm.NXTCommException;
+import lejos.pc.comm.NXTCommFactory;
+import lejos.pc.comm.NXTInfo;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bluetooth connection to an NXT brick
+ * @author agent
+ */
+public class BluetoothTransport implements Transport {
+    private static final Logger logger = Logger.getLogger(BluetoothTransport.class);
+    private final NXTComm nxtComm;
+
+    /**
+     * @param ID   Robot ID - hexadecimal string
+     * @param name Robot name string
+     * @throws IOException If could not connect to the robot
+     */
+    public BluetoothTransport(final String ID, final String name) throws IOException {
+        try {
+            logger.trace(name + ": Creating factory");
+            nxtComm = NXTCommFactory.createNXTComm(NXTCommFactory.BLUETOOTH);
+            logger.trace(name + ": Creating NXTInfo");
+            NXTInfo nxt = new NXTInfo(NXTCommFactory.BLUETOOTH, name, ID);
+            logger.trace(name + ": Opening NXTComm");
+            nxtComm.open(nxt);
+
+        } catch (NXTCommException e) {
+            logger.error("Unable to open NXT Connection: " + e.getMessage());
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return nxtComm.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return nxtComm.getOutputStream();
+    }
+
+    @Override
+    public void close() throws IOException {
+        nxtComm.close();
+    }
+}
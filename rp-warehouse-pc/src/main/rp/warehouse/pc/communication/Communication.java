@@ -1,58 +1,67 @@
 package rp.warehouse.pc.communication;
 
-import lejos.pc.comm.NXTComm;
-import lejos.pc.comm.NXTCommException;
-import lejos.pc.comm.NXTCommFactory;
-import lejos.pc.comm.NXTInfo;
 import org.apache.log4j.Logger;
 import rp.warehouse.pc.data.robot.Robot;
 import rp.warehouse.pc.localisation.Ranges;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.channels.SocketChannel;
 
 /**
  * Class to communicate with a given robot
+ * <p>
+ * Moves are numbered and up to {@link Protocol#WINDOW} of them can be waiting on the NXT at once, which answers
+ * each one as it reaches the junction, so the robot can go on to the next move without stopping for a round trip.
+ * <p>
+ * Messages are either read by {@link #run()} on a thread of its own, or without blocking by an {@link EventLoop}
+ * shared with other robots. Either way, a robot can check on moves and pickups without waiting with
+ * {@link #canQueueMovement()}, {@link #hasFinishedMoving()}, {@link #requestLoading(int)} and
+ * {@link #pollLoading()}.
  * @author dxj786
  */
 public class Communication implements Runnable {
     private static final Logger logger = Logger.getLogger(Communication.class);
+    /**
+     * Returned by {@link #pollLoading()} when the NXT hasn't answered yet
+     */
+    public static final int NO_REPLY = Integer.MIN_VALUE;
     private final String name;
-    private final DataInputStream fromNXT;
-    private final DataOutputStream toNXT;
+    private final Transport transport;
+    private final MessageCodec codec;
     private final Object waitForMovement = new Object();
     private final Object waitForPickup = new Object();
     private final Object waitForRanges = new Object();
     private final float[] ranges = new float[4];
     private Robot robot;
-    private volatile int pickupCount = 0;
-    private boolean open = true;
+    private volatile int pickupCount = NO_REPLY;
+    private volatile boolean open = true;
+    // Called after messages have been handled, when on an event loop
+    private Runnable onReceived;
+    // Sequence numbers of the last move sent and the last move answered
+    private int sent = 0;
+    private int acknowledged = 0;
 
     /**
+     * Connects to a robot over Bluetooth
+     *
      * @param ID   Robot ID - hexadecimal string
      * @param name Robot name string
      * @throws IOException If could not create the robot
      */
     public Communication(final String ID, final String name) throws IOException {
-        this.name = name;
-
-        NXTComm nxtComm;
-        try {
-            logger.trace(name + ": Creating factory");
-            nxtComm = NXTCommFactory.createNXTComm(NXTCommFactory.BLUETOOTH);
-            logger.trace(name + ": Creating NXTInfo");
-            NXTInfo nxt = new NXTInfo(NXTCommFactory.BLUETOOTH, name, ID);
-            logger.trace(name + ": Opening NXTComm");
-            nxtComm.open(nxt);
-
-        } catch (NXTCommException e) {
-            logger.error("Unable to open NXT Connection: " + e.getMessage());
-            throw new IOException(e);
-        }
+        this(new BluetoothTransport(ID, name), name);
+    }
 
-        fromNXT = new DataInputStream(nxtComm.getInputStream());
-        toNXT = new DataOutputStream(nxtComm.getOutputStream());
+    /**
+     * @param transport connection to the robot
+     * @param name      Robot name string
+     * @throws IOException If the connection has failed
+     */
+    public Communication(final Transport transport, final String name) throws IOException {
+        this.name = name;
+        this.transport = transport;
+        codec = new MessageCodec(transport.getInputStream(), transport.getOutputStream());
     }
 
     public void setRobot(Robot robot) {
@@ -68,13 +77,16 @@ public class Communication implements Runnable {
             receiveData();
 
             // When finished, flush and close
-            fromNXT.close();
-            toNXT.flush();
-            toNXT.close();
+            codec.flush();
+            codec.close();
+            transport.close();
 
         } catch (IOException e) {
-            logger.error("Bluetooth IO Error: " + e.getMessage());
+            logger.error("Connection IO Error: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // Don't leave anything waiting on a robot that has gone
+            close();
         }
     }
 
@@ -88,68 +100,134 @@ public class Communication implements Runnable {
 
             // Read input and act accordingly
             logger.trace(name + ": Waiting to receive");
-            int input = fromNXT.readInt();
-            logger.trace(name + ": Received " + input);
-            switch (input) {
-
-                // Feedback from movement
-                case Protocol.OK:
-                case Protocol.FAIL: {
-                    synchronized (waitForMovement) {
-                        waitForMovement.notifyAll();
-                    }
-                    break;
+            handle(codec.read());
+        }
+    }
+
+    /**
+     * Reads whatever has arrived from the NXT without blocking, and handles every whole message. Used by
+     * {@link EventLoop} instead of {@link #run()}.
+     *
+     * @return false once the connection has ended
+     */
+    boolean receiveAvailable() {
+        if (!open) {
+            return false;
+        }
+        try {
+            SocketChannel channel = getChannel();
+            int count = channel == null ? codec.receiveAvailable() : codec.receive(channel);
+            if (count < 0) {
+                throw new EOFException("Stream ended");
+            }
+
+            boolean received = false;
+            int input;
+            while (open && (input = codec.poll()) != MessageCodec.NONE) {
+                handle(input);
+                received = true;
+            }
+            if (received && onReceived != null) {
+                onReceived.run();
+            }
+        } catch (IOException e) {
+            logger.error(name + ": Connection IO Error: " + e.getMessage());
+            close();
+            try {
+                transport.close();
+            } catch (IOException closeError) {
+                logger.debug(name + ": Couldn't close connection: " + closeError.getMessage());
+            }
+        }
+        return open;
+    }
+
+    /**
+     * @return the channel of the connection, or null if it can only be read through its stream
+     */
+    SocketChannel getChannel() {
+        return transport.getChannel();
+    }
+
+    /**
+     * @param onReceived called after messages from the NXT have been handled, on the thread that read them
+     */
+    void setOnReceived(Runnable onReceived) {
+        this.onReceived = onReceived;
+    }
+
+    /**
+     * Acts on a message from the NXT according to protocol
+     *
+     * @param input the type of the message
+     * @throws IOException If the message isn't complete
+     */
+    private void handle(int input) throws IOException {
+        logger.trace(name + ": Received " + input);
+        switch (input) {
+
+            // Feedback from movement
+            case Protocol.OK:
+            case Protocol.FAIL: {
+                int sequence = codec.readInt();
+                if (input == Protocol.FAIL) {
+                    logger.warn(name + ": Move " + sequence + " failed");
                 }
+                synchronized (waitForMovement) {
+                    acknowledged = Math.max(acknowledged, sequence);
+                    waitForMovement.notifyAll();
+                }
+                break;
+            }
 
-                // Commands from RobotInterface
-                case Protocol.CANCEL: {
-                    robot.cancelJob();
+            // Commands from RobotInterface
+            case Protocol.CANCEL: {
+                robot.cancelJob();
+                synchronized (waitForPickup) {
                     pickupCount = -1;
-                    synchronized (waitForPickup) {
-                        waitForPickup.notifyAll();
-                    }
-                    break;
+                    waitForPickup.notifyAll();
                 }
+                break;
+            }
 
-                case Protocol.PICKUP: {
-                    input = fromNXT.readInt();
-                    logger.trace(name + ": Received " + input);
-                    synchronized (waitForPickup) {
-                        pickupCount = input;
-                        waitForPickup.notifyAll();
-                    }
-                    break;
+            case Protocol.PICKUP: {
+                input = codec.readInt();
+                logger.trace(name + ": Received " + input);
+                synchronized (waitForPickup) {
+                    pickupCount = input;
+                    waitForPickup.notifyAll();
                 }
+                break;
+            }
 
-                case Protocol.LOCALISE: {
-                    for (int i = 0; i < 4; i++) {
-                        float range = fromNXT.readFloat();
-                        logger.trace(name + ": Range read " + range);
-                        ranges[i] = range;
-                    }
-                    synchronized (waitForRanges) {
-                        waitForRanges.notifyAll();
-                    }
-                    break;
+            case Protocol.LOCALISE: {
+                for (int i = 0; i < 4; i++) {
+                    float range = codec.readFloat();
+                    logger.trace(name + ": Range read " + range);
+                    ranges[i] = range;
+                }
+                synchronized (waitForRanges) {
+                    waitForRanges.notifyAll();
                 }
+                break;
             }
         }
     }
 
     /**
-     * Send data to the robot according to the protocol
+     * Send a message to the robot according to the protocol
      *
-     * @param data int: defined in communication.Protocol
+     * @param type   int: defined in communication.Protocol
+     * @param values the values of the message
      */
-    private void sendData(final int data) {
+    private void sendData(final int type, final int... values) {
         try {
-            logger.debug(name + ": Sending " + data);
-            toNXT.writeInt(data);
-            toNXT.flush();
-            logger.trace(name + ": Sent " + data);
+            logger.debug(name + ": Sending " + type);
+            codec.send(type, values);
+            logger.trace(name + ": Sent " + type);
         } catch (IOException e) {
-            logger.error("Bluetooth IO Error in send: " + e.getMessage());
-            open = false;
+            logger.error("Connection IO Error in send: " + e.getMessage());
+            close();
         }
     }
 
@@ -159,15 +237,48 @@ public class Communication implements Runnable {
      * @param direction - Protocol.NORTH, EAST, SOUTH, or WEST
      */
     public void sendMovement(final int direction) {
+        awaitMovement(queueMovement(direction));
+    }
+
+    /**
+     * Sends a movement command to the NXT without waiting for it to finish. Only waits if there are already
+     * {@link Protocol#WINDOW} moves the NXT hasn't finished.
+     *
+     * @param direction - Protocol.NORTH, EAST, SOUTH, or WEST
+     * @return the sequence number of the move
+     */
+    public int queueMovement(final int direction) {
         assert direction >= Protocol.NORTH;
         assert direction <= Protocol.WEST;
 
         try {
-            logger.trace(name + ": Sending direction: " + direction);
             synchronized (waitForMovement) {
-                sendData(direction);
+                while (open && sent - acknowledged >= Protocol.WINDOW) {
+                    waitForMovement.wait();
+                }
+                sent++;
+                logger.trace(name + ": Sending direction " + direction + " as move " + sent);
+                sendData(Protocol.MOVE, sent, direction);
+                return sent;
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted somehow: " + e.getMessage());
+            return sent;
+        }
+    }
+
+    /**
+     * Waits for a move and every move sent before it to finish
+     *
+     * @param sequence the sequence number of the move
+     */
+    public void awaitMovement(final int sequence) {
+        try {
+            synchronized (waitForMovement) {
                 logger.trace("Waiting");
-                waitForMovement.wait();
+                while (open && acknowledged < sequence) {
+                    waitForMovement.wait();
+                }
                 logger.trace("Finished waiting");
             }
         } catch (InterruptedException e) {
@@ -175,6 +286,44 @@ public class Communication implements Runnable {
         }
     }
 
+    /**
+     * Waits for every move sent so far to finish
+     */
+    public void awaitMovements() {
+        int last;
+        synchronized (waitForMovement) {
+            last = sent;
+        }
+        awaitMovement(last);
+    }
+
+    /**
+     * @return true if another move can be queued without waiting, or the connection has closed
+     */
+    public boolean canQueueMovement() {
+        synchronized (waitForMovement) {
+            return !open || sent - acknowledged < Protocol.WINDOW;
+        }
+    }
+
+    /**
+     * @return the number of moves the NXT has finished, or every move sent if the connection has closed
+     */
+    public int getFinishedMoves() {
+        synchronized (waitForMovement) {
+            return open ? acknowledged : sent;
+        }
+    }
+
+    /**
+     * @return true if every move sent so far has finished, or the connection has closed
+     */
+    public boolean hasFinishedMoving() {
+        synchronized (waitForMovement) {
+            return !open || acknowledged >= sent;
+        }
+    }
+
     /**
      * Send the NXT a signal to pickup a number of items equal to the count
      *
@@ -185,10 +334,12 @@ public class Communication implements Runnable {
 
         try {
             synchronized (waitForPickup) {
-                sendData(Protocol.PICKUP);
-                sendData(amountToLoad);
-                waitForPickup.wait();
-                return pickupCount;
+                requestLoading(amountToLoad);
+                while (open && pickupCount == NO_REPLY) {
+                    waitForPickup.wait();
+                }
+                int reply = pollLoading();
+                return reply == NO_REPLY ? -1 : reply;
             }
         } catch (InterruptedException e) {
             logger.error("Interrupted somehow: " + e.getMessage());
@@ -196,6 +347,32 @@ public class Communication implements Runnable {
         }
     }
 
+    /**
+     * Sends the NXT a signal to pickup a number of items without waiting for the answer, which is got with
+     * {@link #pollLoading()}
+     *
+     * @param amountToLoad number of items to load: 0 if dropping off
+     */
+    public void requestLoading(final int amountToLoad) {
+        synchronized (waitForPickup) {
+            pickupCount = NO_REPLY;
+            sendData(Protocol.PICKUP, amountToLoad);
+        }
+    }
+
+    /**
+     * Takes the answer to the last {@link #requestLoading(int)}, if it has come
+     *
+     * @return the number of items loaded, -1 if the job was cancelled, or {@link #NO_REPLY}
+     */
+    public int pollLoading() {
+        synchronized (waitForPickup) {
+            int reply = pickupCount;
+            pickupCount = NO_REPLY;
+            return reply;
+        }
+    }
+
     /**
      * Gets ranges from the robot and puts them into ranges class
      *
@@ -215,8 +392,7 @@ public class Communication implements Runnable {
     }
 
     public void setDirection(int direction) {
-        sendData(Protocol.SETDIR);
-        sendData(direction);
+        sendData(Protocol.SETDIR, direction);
     }
 
     /**
@@ -224,5 +400,11 @@ public class Communication implements Runnable {
      */
     public void close() {
         open = false;
+        synchronized (waitForMovement) {
+            waitForMovement.notifyAll();
+        }
+        synchronized (waitForPickup) {
+            waitForPickup.notifyAll();
+        }
     }
 }
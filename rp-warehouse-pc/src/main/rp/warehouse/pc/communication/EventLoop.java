@@ -0,0 +1,227 @@
+package rp.warehouse.pc.communication;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads from every robot connection and runs every robot on one thread, so the number of threads doesn't grow with
+ * the number of robots.
+ * <p>
+ * Connections with a channel are read through a selector when bytes arrive. Bluetooth connections only have
+ * streams, so they are checked for bytes that have arrived every {@link #POLL_INTERVAL} milliseconds instead.
+ * Anything run on the loop must not block, as it holds up every other robot.
+ * @author agent
+ */
+public class EventLoop implements Runnable, Executor {
+    private static final Logger logger = Logger.getLogger(EventLoop.class);
+    // How often connections without a channel are checked, in milliseconds
+    private static final long POLL_INTERVAL = 5;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Only used from the loop's thread
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private final List<Communication> polled = new ArrayList<>();
+    private long timerCount = 0;
+
+    private volatile boolean open = true;
+    private volatile Thread thread;
+
+    /**
+     * @throws IOException if a selector can't be opened
+     */
+    public EventLoop() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Starts the loop on a thread of its own
+     * @param name name of the thread
+     * @return the thread
+     */
+    public Thread start(String name) {
+        Thread loopThread = new Thread(this, name);
+        loopThread.setDaemon(true);
+        loopThread.start();
+        return loopThread;
+    }
+
+    /**
+     * Runs tasks and reads from connections until closed
+     */
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        try {
+            while (open) {
+                runTasks();
+                long wait = runTimers();
+                poll();
+
+                if (!polled.isEmpty()) {
+                    wait = wait == 0 ? POLL_INTERVAL : Math.min(wait, POLL_INTERVAL);
+                }
+                if (!tasks.isEmpty()) {
+                    selector.selectNow();
+                } else {
+                    selector.select(wait);
+                }
+                readSelected();
+            }
+        } catch (IOException e) {
+            logger.error("Event loop stopped: " + e.getMessage());
+        } finally {
+            open = false;
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Couldn't close selector: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads from a connection on the loop instead of {@link Communication#run()}. Adding a connection again only
+     * changes what is called when messages arrive.
+     * @param communication the connection
+     * @param onReceived    called on the loop after each batch of messages from the NXT has been handled, or null
+     */
+    public void add(Communication communication, Runnable onReceived) {
+        execute(() -> {
+            communication.setOnReceived(onReceived);
+            SocketChannel channel = communication.getChannel();
+            if (channel == null) {
+                if (!polled.contains(communication)) {
+                    polled.add(communication);
+                }
+                return;
+            }
+            if (channel.keyFor(selector) != null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, communication);
+            } catch (IOException e) {
+                logger.error("Couldn't read from connection without blocking: " + e.getMessage());
+                communication.close();
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the loop as soon as possible
+     * @param task the task
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a task on the loop after a delay. Tasks due at the same time run in the order they were scheduled.
+     * @param task        the task
+     * @param delayMillis how long to wait, in milliseconds
+     */
+    public void schedule(Runnable task, long delayMillis) {
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        if (Thread.currentThread() == thread) {
+            timers.add(new Timer(due, timerCount++, task));
+        } else {
+            execute(() -> timers.add(new Timer(due, timerCount++, task)));
+        }
+    }
+
+    /**
+     * Stops the loop once it has finished what it is doing
+     */
+    public void close() {
+        open = false;
+        selector.wakeup();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            run(task);
+        }
+    }
+
+    /**
+     * Runs the timers that are due
+     * @return how long until the next timer is due in milliseconds, at least 1, or 0 if there are none
+     */
+    private long runTimers() {
+        long now = System.nanoTime();
+        while (!timers.isEmpty() && timers.peek().due - now <= 0) {
+            run(timers.poll().task);
+        }
+        if (timers.isEmpty()) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timers.peek().due - now));
+    }
+
+    private void poll() {
+        Iterator<Communication> iterator = polled.iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().receiveAvailable()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void readSelected() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid() && key.isReadable() && !((Communication) key.attachment()).receiveAvailable()) {
+                key.cancel();
+            }
+        }
+    }
+
+    private static void run(Runnable task) {
+        // One robot going wrong shouldn't stop the others
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Task on event loop failed", e);
+        }
+    }
+
+    private static class Timer implements Comparable<Timer> {
+        private final long due;
+        private final long order;
+        private final Runnable task;
+
+        private Timer(long due, long order, Runnable task) {
+            this.due = due;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            long difference = due - other.due;
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package rp.warehouse.pc.communication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * One end of a connection within the same program, for talking to a simulated NXT without any networking
+ * @author agent
+ */
+public class MemoryTransport implements Transport {
+    private final Pipe in;
+    private final Pipe out;
+
+    private MemoryTransport(Pipe in, Pipe out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * @return two ends of a new connection: what is written to one is read from the other
+     */
+    public static MemoryTransport[] pair() {
+        Pipe a = new Pipe();
+        Pipe b = new Pipe();
+        return new MemoryTransport[]{new MemoryTransport(a, b), new MemoryTransport(b, a)};
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return in.input;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return out.output;
+    }
+
+    /**
+     * Closes both directions, so reads at either end see the end of the stream once they have read what was sent
+     */
+    @Override
+    public void close() {
+        in.close();
+        out.close();
+    }
+
+    /**
+     * Bytes written but not yet read, in a buffer that grows as needed. Unlike piped streams, it doesn't matter which
+     * threads read and write.
+     */
+    private static class Pipe {
+        private byte[] buffer = new byte[256];
+        private int head = 0;
+        private int size = 0;
+        private boolean closed = false;
+
+        private final InputStream input = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return Pipe.this.read(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                synchronized (Pipe.this) {
+                    return size;
+                }
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        private final OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Pipe.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                Pipe.this.close();
+            }
+        };
+
+        private synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (size == 0 && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading", e);
+                }
+            }
+            if (size == 0) {
+                return -1;
+            }
+
+            int count = Math.min(len, size);
+            int first = Math.min(count, buffer.length - head);
+            System.arraycopy(buffer, head, b, off, first);
+            System.arraycopy(buffer, 0, b, off + first, count - first);
+            head = (head + count) % buffer.length;
+            size -= count;
+            return count;
+        }
+
+        private synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            if (size + len > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, size + len)];
+                int first = Math.min(size, buffer.length - head);
+                System.arraycopy(buffer, head, grown, 0, first);
+                System.arraycopy(buffer, 0, grown, first, size - first);
+                buffer = grown;
+                head = 0;
+            }
+
+            int tail = (head + size) % buffer.length;
+            int first = Math.min(len, buffer.length - tail);
+            System.arraycopy(b, off, buffer, tail, first);
+            System.arraycopy(b, off + first, buffer, 0, len - first);
+            size += len;
+            notifyAll();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
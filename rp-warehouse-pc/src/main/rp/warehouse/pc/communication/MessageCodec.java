@@ -0,0 +1,264 @@
+package rp.warehouse.pc.communication;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes framed messages. A frame is the length of the rest of the frame as two bytes, the type of the
+ * message from {@link Protocol} as one byte, then the values of the message as four byte ints or floats.
+ * <p>
+ * Frames are put together in a buffer and only written to the stream on {@link #flush()}, so a message, or several
+ * written one after another, goes over Bluetooth in one packet. The NXT has a copy of this class.
+ * <p>
+ * Messages can either be read with {@link #read()}, which blocks until one has arrived, or without blocking by
+ * taking in whatever bytes have arrived with {@link #receiveAvailable()} or {@link #receive(ReadableByteChannel)}
+ * and then calling {@link #poll()}. Only the blocking way is on the NXT.
+ * @author agent
+ */
+public class MessageCodec {
+    private static final int HEADER = 3;
+    /**
+     * Returned by {@link #poll()} when no whole message has arrived
+     */
+    public static final int NONE = -1;
+
+    private final InputStream in;
+    private final OutputStream out;
+
+    private byte[] output = new byte[64];
+    private int outputSize = 0;
+
+    private byte[] input = new byte[64];
+    private int inputSize = 0;
+    private int inputPosition = 0;
+
+    // Bytes received without blocking that haven't made up a whole message yet
+    private byte[] pending = new byte[64];
+    private int pendingSize = 0;
+
+    /**
+     * @param in  stream messages are read from
+     * @param out stream messages are written to
+     */
+    public MessageCodec(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Adds a message to the buffer without sending it
+     * @param type   type of the message, defined in Protocol
+     * @param values values of the message
+     */
+    public synchronized void write(int type, int... values) {
+        begin(type, values.length);
+        for (int value : values) {
+            putInt(value);
+        }
+    }
+
+    /**
+     * Adds a message of floats to the buffer without sending it
+     * @param type   type of the message, defined in Protocol
+     * @param values values of the message
+     */
+    public synchronized void writeFloats(int type, float... values) {
+        begin(type, values.length);
+        for (float value : values) {
+            putInt(Float.floatToIntBits(value));
+        }
+    }
+
+    /**
+     * Sends every message in the buffer
+     * @throws IOException if the stream can't be written to
+     */
+    public synchronized void flush() throws IOException {
+        if (outputSize > 0) {
+            out.write(output, 0, outputSize);
+            outputSize = 0;
+        }
+        out.flush();
+    }
+
+    /**
+     * Sends a message along with any already in the buffer
+     * @param type   type of the message, defined in Protocol
+     * @param values values of the message
+     * @throws IOException if the stream can't be written to
+     */
+    public synchronized void send(int type, int... values) throws IOException {
+        write(type, values);
+        flush();
+    }
+
+    private void begin(int type, int count) {
+        int length = 1 + count * 4;
+        if (outputSize + 2 + length > output.length) {
+            byte[] grown = new byte[Math.max(output.length * 2, outputSize + 2 + length)];
+            System.arraycopy(output, 0, grown, 0, outputSize);
+            output = grown;
+        }
+        output[outputSize++] = (byte) (length >> 8);
+        output[outputSize++] = (byte) length;
+        output[outputSize++] = (byte) type;
+    }
+
+    private void putInt(int value) {
+        output[outputSize++] = (byte) (value >> 24);
+        output[outputSize++] = (byte) (value >> 16);
+        output[outputSize++] = (byte) (value >> 8);
+        output[outputSize++] = (byte) value;
+    }
+
+    /**
+     * Reads the next message, dropping anything left of the last one. Its values can then be read in order.
+     * Should only be called from one thread.
+     * @return the type of the message, defined in Protocol
+     * @throws IOException if the stream can't be read from or ends
+     */
+    public int read() throws IOException {
+        readFully(HEADER);
+        int length = ((input[0] & 0xFF) << 8) | (input[1] & 0xFF);
+        int type = input[2] & 0xFF;
+        if (length < 1) {
+            throw new IOException("Bad frame length " + length);
+        }
+        readFully(length - 1);
+        return type;
+    }
+
+    /**
+     * @return the next value of the current message
+     * @throws IOException if the message has no more values
+     */
+    public int readInt() throws IOException {
+        if (inputPosition + 4 > inputSize) {
+            throw new EOFException("No more values in message");
+        }
+        int value = ((input[inputPosition] & 0xFF) << 24) | ((input[inputPosition + 1] & 0xFF) << 16)
+                | ((input[inputPosition + 2] & 0xFF) << 8) | (input[inputPosition + 3] & 0xFF);
+        inputPosition += 4;
+        return value;
+    }
+
+    /**
+     * @return the next value of the current message
+     * @throws IOException if the message has no more values
+     */
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    private void readFully(int length) throws IOException {
+        if (length > input.length) {
+            input = new byte[length];
+        }
+        int read = 0;
+        while (read < length) {
+            int count = in.read(input, read, length - read);
+            if (count < 0) {
+                throw new EOFException("Stream ended");
+            }
+            read += count;
+        }
+        inputSize = length;
+        inputPosition = 0;
+    }
+
+    /**
+     * Takes in whatever bytes have already arrived on the input stream, without blocking
+     * @return the number of bytes taken in
+     * @throws IOException if the stream can't be read from
+     */
+    public int receiveAvailable() throws IOException {
+        int available = in.available();
+        if (available <= 0) {
+            return 0;
+        }
+        ensurePending(available);
+        int count = in.read(pending, pendingSize, available);
+        if (count > 0) {
+            pendingSize += count;
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Takes in whatever bytes have already arrived on a channel in non-blocking mode
+     * @param channel the channel the input stream belongs to
+     * @return the number of bytes taken in, or -1 if the channel has ended
+     * @throws IOException if the channel can't be read from
+     */
+    public int receive(ReadableByteChannel channel) throws IOException {
+        int total = 0;
+        while (true) {
+            ensurePending(64);
+            ByteBuffer buffer = ByteBuffer.wrap(pending, pendingSize, pending.length - pendingSize);
+            int count = channel.read(buffer);
+            if (count < 0) {
+                return total == 0 ? -1 : total;
+            }
+            pendingSize += count;
+            total += count;
+            // A full buffer might mean there is more to come
+            if (buffer.hasRemaining()) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Makes the next whole message taken in the current one, so its values can be read in order. Should only be
+     * called from one thread.
+     * @return the type of the message, defined in Protocol, or {@link #NONE} if a whole one hasn't arrived
+     * @throws IOException if the message is badly framed
+     */
+    public int poll() throws IOException {
+        if (pendingSize < HEADER) {
+            return NONE;
+        }
+        int length = ((pending[0] & 0xFF) << 8) | (pending[1] & 0xFF);
+        if (length < 1) {
+            throw new IOException("Bad frame length " + length);
+        }
+        if (pendingSize < 2 + length) {
+            return NONE;
+        }
+
+        int type = pending[2] & 0xFF;
+        if (length - 1 > input.length) {
+            input = new byte[length - 1];
+        }
+        System.arraycopy(pending, HEADER, input, 0, length - 1);
+        inputSize = length - 1;
+        inputPosition = 0;
+
+        pendingSize -= 2 + length;
+        System.arraycopy(pending, 2 + length, pending, 0, pendingSize);
+        return type;
+    }
+
+    private void ensurePending(int space) {
+        if (pendingSize + space > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingSize + space));
+        }
+    }
+
+    /**
+     * Closes both streams
+     * @throws IOException if a stream can't be closed
+     */
+    public void close() throws IOException {
+        try {
+            in.close();
+        } finally {
+            out.close();
+        }
+    }
+}
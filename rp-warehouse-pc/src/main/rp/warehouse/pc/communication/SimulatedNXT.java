@@ -0,0 +1,203 @@
+package rp.warehouse.pc.communication;
+
+import org.apache.log4j.Logger;
+import rp.robotics.mapping.GridMap;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Stands in for an NXT brick, so the PC side can be run without any robots. Talks the same protocol over any
+ * {@link Transport}:
+ * <ul>
+ * <li>moves are done in order, each taking a set time, and fail if they would leave the grid or hit a shelf</li>
+ * <li>pickups and drop offs are confirmed straight away with the amount asked for</li>
+ * <li>ranges are worked out from the map of the warehouse</li>
+ * </ul>
+ * Other robots are not simulated, so nothing stops two simulated robots being in the same place.
+ * @author agent
+ */
+public class SimulatedNXT implements Runnable {
+    private static final Logger logger = Logger.getLogger(SimulatedNXT.class);
+    // Distance between grid points of the real warehouse in cm, which the PC expects ranges in
+    private static final float GRID_SPACING = 27;
+
+    private final String name;
+    private final Transport transport;
+    private final MessageCodec codec;
+    private final long moveTime;
+    // Sequence number and direction of each move not done yet
+    private final BlockingQueue<int[]> moves = new LinkedBlockingQueue<>();
+    private final Thread mover;
+
+    private volatile int x;
+    private volatile int y;
+    private volatile int direction;
+    private volatile boolean open = true;
+
+    /**
+     * @param transport connection to the PC
+     * @param name      name of the robot
+     * @param start     where the robot starts, and the way it is facing
+     * @param moveTime  how long each move takes, in milliseconds
+     * @throws IOException if the connection has failed
+     */
+    public SimulatedNXT(Transport transport, String name, RobotLocation start, long moveTime) throws IOException {
+        this.name = name;
+        this.transport = transport;
+        this.codec = new MessageCodec(transport.getInputStream(), transport.getOutputStream());
+        this.moveTime = moveTime;
+        this.x = start.getX();
+        this.y = start.getY();
+        this.direction = start.getDirection();
+
+        mover = new Thread(this::doMoves, name + " mover");
+        mover.setDaemon(true);
+    }
+
+    /**
+     * Reads commands from the PC until the connection is closed
+     */
+    @Override
+    public void run() {
+        mover.start();
+        try {
+            while (open) {
+                int command = codec.read();
+                switch (command) {
+                    case Protocol.MOVE:
+                        moves.add(new int[]{codec.readInt(), codec.readInt()});
+                        break;
+
+                    case Protocol.PICKUP:
+                        codec.send(Protocol.PICKUP, codec.readInt());
+                        break;
+
+                    case Protocol.LOCALISE:
+                        synchronized (codec) {
+                            codec.writeFloats(Protocol.LOCALISE, getRanges(x, y, direction));
+                            codec.flush();
+                        }
+                        break;
+
+                    case Protocol.SETDIR:
+                        direction = codec.readInt();
+                        break;
+
+                    default:
+                        logger.warn(name + ": Unknown command " + command);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug(name + ": Connection ended: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    private void doMoves() {
+        try {
+            while (open) {
+                int[] move = moves.take();
+                Thread.sleep(moveTime);
+
+                int nextX = x + dx(move[1]);
+                int nextY = y + dy(move[1]);
+                boolean done = isFree(nextX, nextY);
+                if (done) {
+                    x = nextX;
+                    y = nextY;
+                    direction = move[1];
+                } else {
+                    logger.warn(name + ": Can't move to (" + nextX + ", " + nextY + ")");
+                }
+                codec.send(done ? Protocol.OK : Protocol.FAIL, move[0]);
+            }
+        } catch (InterruptedException e) {
+            logger.debug(name + ": Mover stopped");
+        } catch (IOException e) {
+            logger.debug(name + ": Connection ended: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Works out the ranges the sensor would read facing forwards, right, backwards then left
+     * @param x         x of the robot's cell
+     * @param y         y of the robot's cell
+     * @param direction the way the robot is facing
+     * @return the ranges in cm
+     */
+    public static float[] getRanges(int x, int y, int direction) {
+        GridMap map = Warehouse.build();
+        float scale = GRID_SPACING / Warehouse.getLayout().getCellSize();
+        float heading = heading(direction);
+
+        float[] ranges = new float[4];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = map.rangeToObstacleFromGridPosition(x, y, heading - 90 * i) * scale;
+        }
+        return ranges;
+    }
+
+    /**
+     * @return true if a robot can be at a cell
+     */
+    public static boolean isFree(int x, int y) {
+        return x >= 0 && y >= 0 && x < Warehouse.getGridWidth() && y < Warehouse.getGridHeight()
+                && !Warehouse.isBlocked(x, y);
+    }
+
+    /**
+     * @return how far x changes moving in a direction
+     */
+    public static int dx(int direction) {
+        return direction == Protocol.EAST ? 1 : direction == Protocol.WEST ? -1 : 0;
+    }
+
+    /**
+     * @return how far y changes moving in a direction
+     */
+    public static int dy(int direction) {
+        return direction == Protocol.NORTH ? 1 : direction == Protocol.SOUTH ? -1 : 0;
+    }
+
+    /**
+     * @return the heading of a direction in degrees, anticlockwise from east as the map uses
+     */
+    private static float heading(int direction) {
+        switch (direction) {
+            case Protocol.NORTH:
+                return 90;
+            case Protocol.SOUTH:
+                return -90;
+            case Protocol.WEST:
+                return 180;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return where the robot is now, and the way it is facing
+     */
+    public RobotLocation getLocation() {
+        return new RobotLocation(x, y, direction);
+    }
+
+    /**
+     * Stops the robot and closes the connection
+     */
+    public void close() {
+        open = false;
+        mover.interrupt();
+        try {
+            transport.close();
+        } catch (IOException e) {
+            logger.debug(name + ": Couldn't close connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rp.warehouse.pc.communication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * TCP connection to a robot, such as a simulated NXT in another process.
+ * <p>
+ * If the socket has a channel it can be read on an {@link EventLoop} without blocking. Writes go through the channel
+ * too, as its stream can't be used once the channel isn't blocking.
+ * @author agent
+ */
+public class SocketTransport implements Transport {
+    // Longest to wait for room to write in one go, in milliseconds
+    private static final long WRITE_WAIT = 100;
+
+    private final Socket socket;
+    private final SocketChannel channel;
+    private Selector writeSelector;
+
+    /**
+     * @param socket a connected socket
+     * @throws IOException if the socket can't be set up
+     */
+    public SocketTransport(Socket socket) throws IOException {
+        this.socket = socket;
+        this.channel = socket.getChannel();
+        // Messages are already put together before sending, so send them straight away
+        socket.setTcpNoDelay(true);
+    }
+
+    /**
+     * Connects to a robot listening on this machine
+     * @param port the port the robot is listening on
+     * @return the connection
+     * @throws IOException if could not connect
+     */
+    public static SocketTransport connect(int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return new SocketTransport(channel.socket());
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (channel == null) {
+            return socket.getOutputStream();
+        }
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writeFully(ByteBuffer.wrap(b, off, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                SocketTransport.this.close();
+            }
+        };
+    }
+
+    private synchronized void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                // Only happens if the robot has stopped reading, so wait for room rather than trying again and again
+                if (writeSelector == null) {
+                    writeSelector = Selector.open();
+                    channel.register(writeSelector, SelectionKey.OP_WRITE);
+                }
+                writeSelector.select(WRITE_WAIT);
+                writeSelector.selectedKeys().clear();
+            }
+        }
+    }
+
+    @Override
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            socket.close();
+        } finally {
+            synchronized (this) {
+                if (writeSelector != null) {
+                    writeSelector.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package rp.warehouse.pc.communication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A connection to a robot, real or simulated, that messages are sent over
+ * @author agent
+ * @see BluetoothTransport
+ * @see SocketTransport
+ * @see MemoryTransport
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * @return stream of bytes from the robot
+     * @throws IOException if the connection has failed
+     */
+    InputStream getInputStream() throws IOException;
+
+    /**
+     * @return stream of bytes to the robot
+     * @throws IOException if the connection has failed
+     */
+    OutputStream getOutputStream() throws IOException;
+
+    /**
+     * @return a channel that can be read from without blocking through a selector, or null if the connection can
+     * only be read through its stream, which is then checked for bytes that have arrived
+     */
+    default SocketChannel getChannel() {
+        return null;
+    }
+}
@@ -0,0 +1,244 @@
+package rp.warehouse.pc.data;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The true travel distance between every pair of free grid points, going around the shelves. Worked out once with a
+ * breadth first search from every free point and stored as a {@code short} per pair, so a lookup is O(1).
+ * <p>
+ * The table can be cached in a file named after a hash of the layout. A cached table is memory mapped rather than
+ * read in, so starting up with a known layout is close to free.
+ *
+ * @author agent
+ */
+public class DistanceOracle {
+
+    /**
+     * Returned when there is no path between two points, or either is not a free grid point
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final Logger logger = Logger.getLogger(DistanceOracle.class);
+    private static final int MAGIC = 0x44495354;
+    private static final int HEADER = 4 + 4 + 4 + 8 + 4;
+
+    private final int gridWidth, gridHeight;
+    // Index of each grid point among the free points, or -1 if it is blocked
+    private final int[] index;
+    private final int free;
+    // Distance between free points i and j is at i * free + j
+    private final ShortBuffer distances;
+
+    /**
+     * Work out the distances for a layout.
+     *
+     * @param layout the layout of the warehouse.
+     */
+    public DistanceOracle(WarehouseLayout layout) {
+        this(layout, null);
+    }
+
+    private DistanceOracle(WarehouseLayout layout, ShortBuffer distances) {
+        this.gridWidth = layout.getGridWidth();
+        this.gridHeight = layout.getGridHeight();
+
+        BitSet blocked = layout.getBlocked();
+        index = new int[gridWidth * gridHeight];
+        int count = 0;
+        for (int cell = 0; cell < index.length; cell++) {
+            index[cell] = blocked.get(cell) ? -1 : count++;
+        }
+        free = count;
+
+        if (free > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many free grid points for the distance table: " + free);
+        }
+        this.distances = distances != null ? distances : ShortBuffer.wrap(search());
+    }
+
+    /**
+     * Get the distances for a layout, using a cached table in a directory if there is one and caching a new one
+     * otherwise.
+     *
+     * @param layout    the layout of the warehouse.
+     * @param directory the directory the cache files are kept in.
+     * @return the distances for the layout.
+     * @throws IOException if the cache could not be read or written.
+     */
+    public static DistanceOracle load(WarehouseLayout layout, File directory) throws IOException {
+        long hash = hash(layout);
+        File file = new File(directory, String.format("distances-%016x.bin", hash));
+
+        if (file.isFile()) {
+            try (RandomAccessFile input = new RandomAccessFile(file, "r");
+                 FileChannel channel = input.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() == MAGIC && buffer.getInt() == layout.getGridWidth()
+                        && buffer.getInt() == layout.getGridHeight() && buffer.getLong() == hash) {
+                    int free = buffer.getInt();
+                    if (channel.size() == HEADER + 2L * free * free) {
+                        // The mapping stays valid after the channel is closed
+                        buffer.position(HEADER);
+                        logger.debug("Using cached distances from " + file);
+                        return new DistanceOracle(layout, buffer.slice().asShortBuffer());
+                    }
+                }
+            }
+            logger.warn("Ignoring distance cache " + file + " as it does not match the layout");
+        }
+
+        DistanceOracle oracle = new DistanceOracle(layout);
+        oracle.write(file, hash);
+        logger.debug("Cached distances in " + file);
+        return oracle;
+    }
+
+    /**
+     * Breadth first search from every free point.
+     */
+    private short[] search() {
+        short[] table = new short[free * free];
+        Arrays.fill(table, (short) UNREACHABLE);
+
+        int[] queue = new int[index.length];
+        for (int source = 0; source < index.length; source++) {
+            if (index[source] == -1) {
+                continue;
+            }
+
+            int row = index[source] * free;
+            table[row + index[source]] = 0;
+            int head = 0, tail = 0;
+            queue[tail++] = source;
+
+            while (head < tail) {
+                int cell = queue[head++];
+                short next = (short) (table[row + index[cell]] + 1);
+                int x = cell % gridWidth;
+                int y = cell / gridWidth;
+
+                if (y + 1 < gridHeight) {
+                    tail = visit(table, row, cell + gridWidth, next, queue, tail);
+                }
+                if (x + 1 < gridWidth) {
+                    tail = visit(table, row, cell + 1, next, queue, tail);
+                }
+                if (y > 0) {
+                    tail = visit(table, row, cell - gridWidth, next, queue, tail);
+                }
+                if (x > 0) {
+                    tail = visit(table, row, cell - 1, next, queue, tail);
+                }
+            }
+        }
+        return table;
+    }
+
+    private int visit(short[] table, int row, int cell, short distance, int[] queue, int tail) {
+        if (index[cell] != -1 && table[row + index[cell]] == UNREACHABLE) {
+            table[row + index[cell]] = distance;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    private void write(File file, long hash) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(gridWidth);
+            output.writeInt(gridHeight);
+            output.writeLong(hash);
+            output.writeInt(free);
+            for (int i = 0; i < free * free; i++) {
+                output.writeShort(distances.get(i));
+            }
+        }
+    }
+
+    /**
+     * A hash of the grid size and blocked points, used to name the cache file.
+     */
+    private static long hash(WarehouseLayout layout) {
+        // 64 bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        long[] words = layout.getBlocked().toLongArray();
+        long[] values = new long[words.length + 2];
+        values[0] = layout.getGridWidth();
+        values[1] = layout.getGridHeight();
+        System.arraycopy(words, 0, values, 2, words.length);
+
+        for (long value : values) {
+            for (int i = 0; i < 8; i++) {
+                hash ^= (value >>> (8 * i)) & 0xff;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Get the travel distance between two grid points.
+     *
+     * @param from the index of the first point, {@code y * gridWidth + x}.
+     * @param to   the index of the second point.
+     * @return the number of moves between them, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(int from, int to) {
+        if (from < 0 || to < 0 || from >= index.length || to >= index.length) {
+            return UNREACHABLE;
+        }
+        int i = index[from];
+        int j = index[to];
+        if (i == -1 || j == -1) {
+            return UNREACHABLE;
+        }
+        return distances.get(i * free + j);
+    }
+
+    /**
+     * Get the travel distance between two grid points.
+     *
+     * @param fromX the x co-ordinate of the first point.
+     * @param fromY the y co-ordinate of the first point.
+     * @param toX   the x co-ordinate of the second point.
+     * @param toY   the y co-ordinate of the second point.
+     * @return the number of moves between them, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(int fromX, int fromY, int toX, int toY) {
+        if (fromX < 0 || toX < 0 || fromX >= gridWidth || toX >= gridWidth) {
+            return UNREACHABLE;
+        }
+        return getDistance(fromY * gridWidth + fromX, toY * gridWidth + toX);
+    }
+
+    /**
+     * Get the travel distance between two locations.
+     *
+     * @param from the first location.
+     * @param to   the second location.
+     * @return the number of moves between them, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(Location from, Location to) {
+        return getDistance(from.getX(), from.getY(), to.getX(), to.getY());
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+}
@@ -6,6 +6,7 @@ public class Item {
     private Float reward;
     private float weight;
     private Location location;
+    private int id = -1;
 
     /**
      * Assigns names/rewards/weight when the item is made
@@ -81,6 +82,21 @@ public class Item {
         return "at " + location + " of weight " + weight + " with reward " + reward;
     }
 
+    /**
+     * @return the number of the item in the table of items, or -1 if it isn't in one
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * sets the number of the item in the table of items
+     * @param id number of the item
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * @return name of the item
      */
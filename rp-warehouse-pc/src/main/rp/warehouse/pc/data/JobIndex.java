@@ -0,0 +1,75 @@
+package rp.warehouse.pc.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives every job name a small whole number, counting up from 0 in the order names are first seen, so
+ * information about jobs can be kept in arrays indexed by job rather than maps keyed by name.
+ * <p>
+ * Names are looked up from numbers without locking, as that happens whenever a task's job is needed.
+ *
+ * @author agent
+ */
+public class JobIndex {
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+    // Only grows, and is replaced after each name is added so readers always see the name
+    private static volatile String[] names = new String[16];
+    private static int size = 0;
+
+    /**
+     * @param name name of the job
+     * @return the number of the job, given a new one if the name hasn't been seen before
+     */
+    public synchronized static int of(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Numbers several jobs at once, so they get numbers in the order given without taking the lock for each one
+     *
+     * @param jobNames names of the jobs
+     * @return the number of each job, given new ones for names that haven't been seen before
+     */
+    public synchronized static int[] of(List<String> jobNames) {
+        int[] numbers = new int[jobNames.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            Integer id = ids.get(jobNames.get(i));
+            numbers[i] = id == null ? add(jobNames.get(i)) : id;
+        }
+        return numbers;
+    }
+
+    private static int add(String name) {
+        String[] array = names;
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = name;
+        names = array;
+        ids.put(name, size);
+        return size++;
+    }
+
+    /**
+     * @param id number of the job
+     * @return name of the job
+     */
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of jobs that have been given numbers, which is one more than the highest number
+     */
+    public synchronized static int size() {
+        return size;
+    }
+}
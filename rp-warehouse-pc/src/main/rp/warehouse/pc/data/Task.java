@@ -8,7 +8,8 @@ public class Task {
 
     public final Item item;
     public final int count;
-    public final String jobID;
+    // The name of the job is looked up from its number, so it isn't kept with every task
+    public final int job;
 
     /**
      * Constructor
@@ -17,19 +18,29 @@ public class Task {
      * @param jobID jobID this task belongs to
      */
     public Task(Item item, int count, String jobID) {
+        this(item, count, JobIndex.of(jobID));
+    }
+
+    /**
+     * Constructor for when the number of the job is already known
+     * @param item item
+     * @param count count
+     * @param job the number of the job from {@link JobIndex}
+     */
+    public Task(Item item, int count, int job) {
         this.item = item;
         this.count = count;
-        this.jobID = jobID;
+        this.job = job;
     }
 
     /**
-     * Creates a new task from a task
+     * Creates a new task from a task. Items don't change once read in, so the item is shared.
      * @param task task to copy
      */
     public Task(Task task) {
-        this.item = new Item(task.item);
+        this.item = task.item;
         this.count = task.count;
-        this.jobID = task.jobID;
+        this.job = task.job;
     }
 
     /**
@@ -50,7 +61,14 @@ public class Task {
      * @return the jobID of the job the task is in
      */
     public String getJobID() {
-        return jobID;
+        return JobIndex.getName(job);
+    }
+
+    /**
+     * @return the number of the job the task is in, from {@link JobIndex}
+     */
+    public int getJob() {
+        return job;
     }
 
     /**
@@ -58,6 +76,6 @@ public class Task {
      */
     @Override
     public String toString() {
-        return "Job " + jobID + " | " + count + " of item " + item.toString();
+        return "Job " + getJobID() + " | " + count + " of item " + item.toString();
     }
 }
\ No newline at end of file
@@ -1,45 +1,63 @@
 package rp.warehouse.pc.data;
 
-import lejos.geom.Line;
-import lejos.geom.Rectangle;
 import rp.robotics.mapping.GridMap;
-import rp.robotics.mapping.LineMap;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Used to interact with the programmatic representation of the layout of the
- * warehouse.
+ * warehouse. Uses the original 12x8 warehouse unless a different layout is loaded.
  *
  * @author Kieran
+ * @see WarehouseLayout
  */
 public class Warehouse {
 
     public static final int gridSize = 27;
     public static final int possiblePoints = 76;
-    // The list of blocked locations (grid points within the walls)
-    private static final ArrayList<Location> blockedLocations = new ArrayList<>(Arrays.asList(
-            new Location(1, 1), new Location(1, 2), new Location(1, 3), new Location(1, 4), new Location(1, 5),
-            new Location(4, 1), new Location(4, 2), new Location(4, 3), new Location(4, 4), new Location(4, 5),
-            new Location(7, 1), new Location(7, 2), new Location(7, 3), new Location(7, 4), new Location(7, 5),
-            new Location(10, 1), new Location(10, 2), new Location(10, 3), new Location(10, 4), new Location(10, 5)));
-    private static final float height = 2.48f, width = 3.68f, xInset = 0.14f, yInset = 0.15f, cellSize = 0.30f;
-    private static final int gridWidth = 12, gridHeight = 8;
-    // The map of the warehouse
-    private static final GridMap map = new GridMap(gridWidth, gridHeight, xInset, yInset, cellSize,
-            new LineMap(
-                    new Line[]{new Line(0f, 0f, width, 0f), new Line(width, 0f, width, height),
-                            new Line(width, height, 0f, height), new Line(0f, height, 0f, 0f),
-                            new Line(0.28f, 0.31f, 0.28f, 1.83f), new Line(0.58f, 0.31f, 0.58f, 1.83f),
-                            new Line(0.28f, 0.31f, 0.58f, 0.31f), new Line(0.28f, 1.83f, 0.58f, 1.83f),
-                            new Line(1.20f, 0.28f, 1.20f, 1.85f), new Line(1.50f, 0.28f, 1.50f, 1.85f),
-                            new Line(1.20f, 0.28f, 1.50f, 0.28f), new Line(1.20f, 1.85f, 1.50f, 1.85f),
-                            new Line(2.13f, 0.29f, 2.13f, 1.84f), new Line(2.44f, 0.29f, 2.44f, 1.84f),
-                            new Line(2.13f, 0.29f, 2.44f, 0.29f), new Line(2.13f, 1.84f, 2.44f, 1.84f),
-                            new Line(3.05f, 0.30f, 3.05f, 1.83f), new Line(3.35f, 0.30f, 3.35f, 1.83f),
-                            new Line(3.05f, 0.30f, 3.35f, 0.30f), new Line(3.05f, 1.83f, 3.35f, 1.83f)},
-                    new Rectangle(0, 0, width, height)));
+    // The layout currently in use
+    private static volatile WarehouseLayout layout = WarehouseLayout.createDefault();
+
+    /**
+     * Method to load the layout of the warehouse from a file. Should be called before anything else uses the
+     * warehouse.
+     *
+     * @param path The path of the layout file.
+     * @throws IOException If the layout could not be read.
+     */
+    public static void load(String path) throws IOException {
+        setLayout(WarehouseLayout.read(path));
+    }
+
+    /**
+     * Method to load the distances between grid points from a cache file for the current layout, working them out
+     * and caching them if there isn't one.
+     *
+     * @param directory The directory the cache files are kept in.
+     * @throws IOException If the cache could not be read or written.
+     */
+    public static void loadDistances(File directory) throws IOException {
+        WarehouseLayout current = layout;
+        current.setDistances(DistanceOracle.load(current, directory));
+    }
+
+    /**
+     * Method to change the layout of the warehouse.
+     *
+     * @param newLayout The layout to use.
+     */
+    public static void setLayout(WarehouseLayout newLayout) {
+        layout = newLayout;
+    }
+
+    /**
+     * @return The layout of the warehouse currently in use.
+     */
+    public static WarehouseLayout getLayout() {
+        return layout;
+    }
 
     /**
      * Method to return the statically generated map of the warehouse.
@@ -47,7 +65,32 @@ public class Warehouse {
      * @return The map of the warehouse.
      */
     public static GridMap build() {
-        return map;
+        return layout.getMap();
+    }
+
+    /**
+     * @return The number of grid columns in the warehouse.
+     */
+    public static int getGridWidth() {
+        return layout.getGridWidth();
+    }
+
+    /**
+     * @return The number of grid rows in the warehouse.
+     */
+    public static int getGridHeight() {
+        return layout.getGridHeight();
+    }
+
+    /**
+     * Method to check whether a grid point is within a shelf, in constant time.
+     *
+     * @param x The x co-ordinate.
+     * @param y The y co-ordinate.
+     * @return Whether the point is blocked.
+     */
+    public static boolean isBlocked(int x, int y) {
+        return layout.isBlocked(x, y);
     }
 
     /**
@@ -55,8 +98,31 @@ public class Warehouse {
      *
      * @return A list of the blocked locations.
      */
-    public static final ArrayList<Location> getBlockedLocations() {
-        return blockedLocations;
+    public static List<Location> getBlockedLocations() {
+        return layout.getBlockedLocations();
+    }
+
+    /**
+     * Method to return the grid points a robot can be at.
+     *
+     * @return A list of the free locations, row by row from the bottom.
+     */
+    public static List<Location> getFreeLocations() {
+        return layout.getFreeLocations();
+    }
+
+    /**
+     * @return The travel distances between grid points, around the shelves.
+     */
+    public static DistanceOracle getDistances() {
+        return layout.getDistances();
+    }
+
+    /**
+     * @return The drop-off points of the warehouse.
+     */
+    public static List<Location> getDropOffs() {
+        return layout.getDropOffs();
     }
 
-}
\ No newline at end of file
+}
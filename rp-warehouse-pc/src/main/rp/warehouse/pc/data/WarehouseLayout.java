@@ -0,0 +1,355 @@
+package rp.warehouse.pc.data;
+
+import lejos.geom.Line;
+import lejos.geom.Rectangle;
+import rp.robotics.mapping.GridMap;
+import rp.robotics.mapping.LineMap;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The layout of a warehouse floor: the size of the grid, the shelves that block grid points and the drop-off points.
+ * Blocked grid points are kept in a bitmap indexed by {@code y * gridWidth + x} so checking a point is O(1).
+ * <p>
+ * Layouts can be read from a file with one entry per line:
+ * <pre>
+ * grid,columns,rows
+ * cell,cellSize,xInset,yInset
+ * size,width,height          (optional, worked out from the grid if missing)
+ * shelf,x1,y1,x2,y2          (inclusive rectangle of blocked grid points)
+ * dropoff,x,y
+ * </pre>
+ * Blank lines and lines starting with # are ignored.
+ *
+ * @author agent
+ */
+public class WarehouseLayout {
+
+    private final int gridWidth, gridHeight;
+    private final float cellSize, width, height;
+    private final BitSet blocked;
+    private final List<Location> blockedLocations;
+    private final List<Location> freeLocations;
+    private final List<Location> dropOffs;
+    private final GridMap map;
+    private DistanceOracle distances;
+
+    /**
+     * Create a layout, generating the walls of the line map from the shelves.
+     *
+     * @param gridWidth  the number of grid columns.
+     * @param gridHeight the number of grid rows.
+     * @param cellSize   the distance between grid points.
+     * @param xInset     the distance from the left wall to the first column.
+     * @param yInset     the distance from the bottom wall to the first row.
+     * @param width      the width of the floor.
+     * @param height     the height of the floor.
+     * @param shelves    the shelves, each as {x1, y1, x2, y2} in grid co-ordinates.
+     * @param dropOffs   the drop-off points.
+     */
+    public WarehouseLayout(int gridWidth, int gridHeight, float cellSize, float xInset, float yInset, float width,
+                           float height, List<int[]> shelves, List<Location> dropOffs) {
+        this(gridWidth, gridHeight, cellSize, xInset, yInset, width, height, shelves, dropOffs,
+                generateLines(cellSize, xInset, yInset, width, height, shelves));
+    }
+
+    /**
+     * Create a layout with measured walls.
+     *
+     * @param gridWidth  the number of grid columns.
+     * @param gridHeight the number of grid rows.
+     * @param cellSize   the distance between grid points.
+     * @param xInset     the distance from the left wall to the first column.
+     * @param yInset     the distance from the bottom wall to the first row.
+     * @param width      the width of the floor.
+     * @param height     the height of the floor.
+     * @param shelves    the shelves, each as {x1, y1, x2, y2} in grid co-ordinates.
+     * @param dropOffs   the drop-off points.
+     * @param lines      the walls of the floor.
+     */
+    public WarehouseLayout(int gridWidth, int gridHeight, float cellSize, float xInset, float yInset, float width,
+                           float height, List<int[]> shelves, List<Location> dropOffs, Line[] lines) {
+        if (gridWidth <= 0 || gridHeight <= 0) {
+            throw new IllegalArgumentException("Grid must have at least one point, was " + gridWidth + "x" + gridHeight);
+        }
+        if (dropOffs.isEmpty()) {
+            throw new IllegalArgumentException("Warehouse needs at least one drop-off point");
+        }
+
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.cellSize = cellSize;
+        this.width = width;
+        this.height = height;
+
+        // Fill in the bitmap of blocked points from the shelves
+        blocked = new BitSet(gridWidth * gridHeight);
+        for (int[] shelf : shelves) {
+            for (int x = Math.max(0, shelf[0]); x <= Math.min(gridWidth - 1, shelf[2]); x++) {
+                for (int y = Math.max(0, shelf[1]); y <= Math.min(gridHeight - 1, shelf[3]); y++) {
+                    blocked.set(y * gridWidth + x);
+                }
+            }
+        }
+
+        List<Location> locations = new ArrayList<>(blocked.cardinality());
+        for (int i = blocked.nextSetBit(0); i >= 0; i = blocked.nextSetBit(i + 1)) {
+            locations.add(new Location(i % gridWidth, i / gridWidth));
+        }
+        blockedLocations = Collections.unmodifiableList(locations);
+
+        List<Location> free = new ArrayList<>(gridWidth * gridHeight - locations.size());
+        for (int i = blocked.nextClearBit(0); i < gridWidth * gridHeight; i = blocked.nextClearBit(i + 1)) {
+            free.add(new Location(i % gridWidth, i / gridWidth));
+        }
+        freeLocations = Collections.unmodifiableList(free);
+
+        for (Location dropOff : dropOffs) {
+            if (!isValid(dropOff.getX(), dropOff.getY())) {
+                throw new IllegalArgumentException("Drop-off " + dropOff + " is not a free grid point");
+            }
+        }
+        this.dropOffs = Collections.unmodifiableList(new ArrayList<>(dropOffs));
+
+        map = new GridMap(gridWidth, gridHeight, xInset, yInset, cellSize,
+                new LineMap(lines, new Rectangle(0, 0, width, height)));
+    }
+
+    /**
+     * Create the layout of the original 12x8 warehouse, using the measured walls.
+     *
+     * @return the default layout.
+     */
+    public static WarehouseLayout createDefault() {
+        final float height = 2.48f, width = 3.68f;
+        List<int[]> shelves = Arrays.asList(new int[]{1, 1, 1, 5}, new int[]{4, 1, 4, 5}, new int[]{7, 1, 7, 5},
+                new int[]{10, 1, 10, 5});
+        return new WarehouseLayout(12, 8, 0.30f, 0.14f, 0.15f, width, height, shelves,
+                Collections.singletonList(new Location(4, 7)),
+                new Line[]{new Line(0f, 0f, width, 0f), new Line(width, 0f, width, height),
+                        new Line(width, height, 0f, height), new Line(0f, height, 0f, 0f),
+                        new Line(0.28f, 0.31f, 0.28f, 1.83f), new Line(0.58f, 0.31f, 0.58f, 1.83f),
+                        new Line(0.28f, 0.31f, 0.58f, 0.31f), new Line(0.28f, 1.83f, 0.58f, 1.83f),
+                        new Line(1.20f, 0.28f, 1.20f, 1.85f), new Line(1.50f, 0.28f, 1.50f, 1.85f),
+                        new Line(1.20f, 0.28f, 1.50f, 0.28f), new Line(1.20f, 1.85f, 1.50f, 1.85f),
+                        new Line(2.13f, 0.29f, 2.13f, 1.84f), new Line(2.44f, 0.29f, 2.44f, 1.84f),
+                        new Line(2.13f, 0.29f, 2.44f, 0.29f), new Line(2.13f, 1.84f, 2.44f, 1.84f),
+                        new Line(3.05f, 0.30f, 3.05f, 1.83f), new Line(3.35f, 0.30f, 3.35f, 1.83f),
+                        new Line(3.05f, 0.30f, 3.35f, 0.30f), new Line(3.05f, 1.83f, 3.35f, 1.83f)});
+    }
+
+    /**
+     * Read a layout from a file.
+     *
+     * @param path the path of the layout file.
+     * @return the layout described by the file.
+     * @throws IOException if the file can't be read or isn't a valid layout.
+     */
+    public static WarehouseLayout read(String path) throws IOException {
+        int gridWidth = -1, gridHeight = -1;
+        float cellSize = 0.30f, xInset = 0.14f, yInset = 0.15f, width = -1, height = -1;
+        List<int[]> shelves = new ArrayList<>();
+        List<Location> dropOffs = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] values = line.split(",");
+                try {
+                    switch (values[0].trim()) {
+                        case "grid":
+                            gridWidth = Integer.parseInt(values[1].trim());
+                            gridHeight = Integer.parseInt(values[2].trim());
+                            break;
+                        case "cell":
+                            cellSize = Float.parseFloat(values[1].trim());
+                            xInset = Float.parseFloat(values[2].trim());
+                            yInset = Float.parseFloat(values[3].trim());
+                            break;
+                        case "size":
+                            width = Float.parseFloat(values[1].trim());
+                            height = Float.parseFloat(values[2].trim());
+                            break;
+                        case "shelf":
+                            shelves.add(new int[]{Integer.parseInt(values[1].trim()), Integer.parseInt(values[2].trim()),
+                                    Integer.parseInt(values[3].trim()), Integer.parseInt(values[4].trim())});
+                            break;
+                        case "dropoff":
+                            dropOffs.add(new Location(Integer.parseInt(values[1].trim()),
+                                    Integer.parseInt(values[2].trim())));
+                            break;
+                        default:
+                            throw new IOException(path + ":" + lineNumber + ": unknown entry " + values[0]);
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException(path + ":" + lineNumber + ": malformed line: " + line, e);
+                }
+            }
+        }
+
+        if (gridWidth < 0) {
+            throw new IOException(path + ": missing grid entry");
+        }
+        if (width < 0) {
+            width = 2 * xInset + (gridWidth - 1) * cellSize;
+            height = 2 * yInset + (gridHeight - 1) * cellSize;
+        }
+
+        try {
+            return new WarehouseLayout(gridWidth, gridHeight, cellSize, xInset, yInset, width, height, shelves,
+                    dropOffs);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate the walls of the floor along with a box around every shelf, half a cell out from its grid points.
+     */
+    private static Line[] generateLines(float cellSize, float xInset, float yInset, float width, float height,
+                                        List<int[]> shelves) {
+        List<Line> lines = new ArrayList<>();
+        lines.add(new Line(0f, 0f, width, 0f));
+        lines.add(new Line(width, 0f, width, height));
+        lines.add(new Line(width, height, 0f, height));
+        lines.add(new Line(0f, height, 0f, 0f));
+
+        final float half = cellSize / 2f;
+        for (int[] shelf : shelves) {
+            float left = xInset + shelf[0] * cellSize - half;
+            float right = xInset + shelf[2] * cellSize + half;
+            float bottom = yInset + shelf[1] * cellSize - half;
+            float top = yInset + shelf[3] * cellSize + half;
+            lines.add(new Line(left, bottom, left, top));
+            lines.add(new Line(right, bottom, right, top));
+            lines.add(new Line(left, bottom, right, bottom));
+            lines.add(new Line(left, top, right, top));
+        }
+        return lines.toArray(new Line[0]);
+    }
+
+    /**
+     * Check whether a grid point is inside the grid and not within a shelf.
+     *
+     * @param x the x co-ordinate.
+     * @param y the y co-ordinate.
+     * @return whether a robot can be at this grid point.
+     */
+    public boolean isValid(int x, int y) {
+        return x >= 0 && y >= 0 && x < gridWidth && y < gridHeight && !blocked.get(y * gridWidth + x);
+    }
+
+    /**
+     * Check whether a grid point is within a shelf.
+     *
+     * @param x the x co-ordinate.
+     * @param y the y co-ordinate.
+     * @return whether the point is blocked. Points outside of the grid are not blocked.
+     */
+    public boolean isBlocked(int x, int y) {
+        return x >= 0 && y >= 0 && x < gridWidth && y < gridHeight && blocked.get(y * gridWidth + x);
+    }
+
+    /**
+     * @return a copy of the blocked points, indexed by {@code y * gridWidth + x}.
+     */
+    public BitSet getBlocked() {
+        return (BitSet) blocked.clone();
+    }
+
+    /**
+     * @return the blocked grid points as locations.
+     */
+    public List<Location> getBlockedLocations() {
+        return blockedLocations;
+    }
+
+    /**
+     * @return the grid points a robot can be at, row by row from the bottom.
+     */
+    public List<Location> getFreeLocations() {
+        return freeLocations;
+    }
+
+    /**
+     * @return the drop-off points.
+     */
+    public List<Location> getDropOffs() {
+        return dropOffs;
+    }
+
+    /**
+     * @return the travel distances between grid points, worked out the first time they are needed.
+     */
+    public synchronized DistanceOracle getDistances() {
+        if (distances == null) {
+            distances = new DistanceOracle(this);
+        }
+        return distances;
+    }
+
+    /**
+     * Use distances that have already been worked out, such as from a cache file.
+     *
+     * @param distances the distances for this layout.
+     */
+    public synchronized void setDistances(DistanceOracle distances) {
+        if (distances.getGridWidth() != gridWidth || distances.getGridHeight() != gridHeight) {
+            throw new IllegalArgumentException("Distances are for a different grid");
+        }
+        this.distances = distances;
+    }
+
+    /**
+     * @return the grid map of the floor.
+     */
+    public GridMap getMap() {
+        return map;
+    }
+
+    /**
+     * Work out the scale for visualising the floor so that it fits within an area, never going above the scale
+     * used for the original warehouse.
+     *
+     * @param pixelWidth  the width available.
+     * @param pixelHeight the height available.
+     * @return the number of pixels per metre.
+     */
+    public float getScaleToFit(int pixelWidth, int pixelHeight) {
+        return Math.min(200f, Math.min(pixelWidth / width, pixelHeight / height));
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+}
@@ -2,17 +2,18 @@ package rp.warehouse.pc.data.robot;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import lejos.util.Delay;
 import java.util.Queue;
 import java.util.List;
-import rp.util.Rate;
 
 import org.apache.log4j.Logger;
 
+import rp.warehouse.pc.assignment.AssignmentService;
 import rp.warehouse.pc.localisation.implementation.Localiser;
+import rp.warehouse.pc.data.robot.utils.Clock;
 import rp.warehouse.pc.data.robot.utils.RewardCounter;
 import rp.warehouse.pc.data.robot.utils.RobotLocation;
 import rp.warehouse.pc.communication.Communication;
+import rp.warehouse.pc.communication.EventLoop;
 import rp.warehouse.pc.data.robot.utils.RobotUtils;
 import rp.warehouse.pc.communication.Protocol;
 import rp.warehouse.pc.data.robot.utils.Status;
@@ -29,6 +30,9 @@ import rp.warehouse.pc.route.Route;
  *  - Weight check 
  *  - Sending Instructions to Communications
  *
+ *Each step never waits for the NXT, so the robot can either run on its own thread, or on an
+ *{@link EventLoop} shared with other robots where it is stepped when its NXT sends a message.
+ *
  * @author roman
  *
  */
@@ -41,6 +45,7 @@ public class Robot implements Runnable {
 
     // Route information
     private Route route;                // Queue of directions for the current task
+    private volatile Route routeSnapshot; // Read only copy of the route for other threads
     private int lastInstruction = -1;   // The current Instruction being done by robot (For WMI)
     private RobotLocation location;     // Current location of the robot
     private RobotLocation previousLocation;
@@ -55,12 +60,22 @@ public class Robot implements Runnable {
     // Boolean>(); // Stores ID's of cancelled Jobs
 
     // Robot Configuration
-    private final static float WEIGHTLIMIT = 50.0f;     // The maximum load robot can carry
+    public final static float WEIGHTLIMIT = 50.0f;      // The maximum load robot can carry
     private float currentWeightOfCargo = 0.0f;
     private final int RATE = 20;                        // Rate of sleep
-    private int status = Status.NOTHING;                // Current Status of the robot
+    private volatile int status = Status.NOTHING;       // Current Status of the robot, read by other robots
     private final List<Task> tasksInTheCargo = new ArrayList<>(); // List of Tasks currently picked up
     private boolean getNextItem = false;                // Tells if needs to pick up the next item
+    private AssignmentService assignments;              // Where to get more work when the tasks run out
+    private Clock clock = Clock.SYSTEM;                 // Where the time comes from
+    private long nextTick;                              // When the next loop of the robot starts
+    private Runnable onFinished = () -> System.exit(0); // Called once all the tasks are dropped off
+    private boolean finished = false;
+    private int waits = 0;                              // Times the robot has waited for another robot
+    private boolean ticking = false;                    // If a tick is already scheduled on the event loop
+    private EventLoop loop;                             // The loop the robot runs on, if any
+    private int movesFinished;                          // Moves the NXT has said it has finished
+    private volatile int movesInFlight = 0;             // Moves sent that the NXT hasn't finished yet
 
     // Utilities
     private RobotUtils robotUtils;                              // Used to perform updates of location
@@ -73,12 +88,16 @@ public class Robot implements Runnable {
         this.ID = ID;
         this.name = name;
         this.tasks = newTasks;
+        // A robot can start with nothing to do, and take work from other robots
         this.currentTask = tasks.poll();
-        this.currentItem = currentTask.getItem();
+        this.currentItem = currentTask == null ? null : currentTask.getItem();
+        this.getNextItem = currentTask == null;
 
         // Communications set up
         this.comms = comms;
         comms.setDirection(startingLocation.getDirection());
+        // Moves made while localising have nothing reserved
+        this.movesFinished = comms.getFinishedMoves();
 
         this.location = startingLocation;
         this.previousLocation = new RobotLocation(location);
@@ -90,79 +109,208 @@ public class Robot implements Runnable {
     @Override
     public void run() {
         logger.info(name + ": Started running");
-        Rate r = new Rate(RATE);
+        nextTick = clock.now();
 
         status = Status.PICKING_UP;
-        // Runs indefinitely
-        while (true) {
-            r.sleep();
-            // logger.debug(name + "Rewards " + RewardCounter.getPointsEarned());
-            // Updates the current task and item
-            // And checks if the Job was cancelled
-            updateTasks();
-
-            if (route == null || route.isEmpty()) {
-                // Plans again when runs out of route
-
-                switch (status) {
-                case Status.PICKING_UP:
-                    planning(true);
-                    break;
-                case Status.DROPPING_OFF:
-                    planning(false);
-                    break;
-                case Status.NOTHING:
-                    planning(true);
-                    break;
-
-                default:
-                    break;
-                }
+        try {
+            // Runs until all the tasks are done
+            while (!finished) {
+                tick();
+                advance();
+            }
+            onFinished.run();
+        } catch (InterruptedException e) {
+            logger.info(name + ": Stopped");
+        }
+    }
+
+    /**
+     * Runs the robot on an event loop instead of its own thread. The robot is stepped whenever its NXT sends a
+     * message, and once a tick while it has something to do that doesn't wait for the NXT.
+     *
+     * @param loop
+     *            - the loop, which must also be reading from the robot's communication
+     */
+    public void runOn(EventLoop loop) {
+        this.loop = loop;
+        loop.add(comms, () -> onEvent(loop));
+        loop.execute(() -> {
+            logger.info(name + ": Started running on event loop");
+            status = Status.PICKING_UP;
+            onEvent(loop);
+        });
+    }
+
+    /**
+     * Starts a robot running on an event loop again after it has finished, to pick up tasks that have been added
+     * since. Does nothing if the robot is still running.
+     */
+    public void wake() {
+        if (loop == null) {
+            return;
+        }
+        loop.execute(() -> {
+            if (!finished) {
+                return;
+            }
+            logger.info(name + ": Woken up for more tasks");
+            finished = false;
+            status = Status.PICKING_UP;
+            onEvent(loop);
+        });
+    }
+
+    private void onEvent(EventLoop loop) {
+        if (finished) {
+            return;
+        }
+        boolean waitingForNXT = advance();
+        if (finished) {
+            onFinished.run();
+        } else if (!waitingForNXT && !ticking) {
+            ticking = true;
+            loop.schedule(() -> {
+                ticking = false;
+                onEvent(loop);
+            }, 1000 / RATE);
+        }
+    }
+
+    /**
+     * Waits for the next loop, keeping to {@link #RATE} loops a second
+     */
+    private void tick() throws InterruptedException {
+        nextTick = Math.max(nextTick + 1000 / RATE, clock.now());
+        clock.sleepUntil(nextTick);
+    }
 
-            } else if (route.peek() == Protocol.PICKUP) {
-                this.previousLocation = new RobotLocation(location);
+    /**
+     * Does the next thing the robot can do without waiting for its NXT
+     *
+     * @return - true if the robot can't go on until its NXT sends something
+     */
+    private boolean advance() {
+        // Cells the robot is still driving through stay reserved until the NXT says it has got past them
+        for (int finished = comms.getFinishedMoves(); movesFinished < finished; movesFinished++) {
+            movesInFlight--;
+            RoutePlan.moved(this);
+        }
+
+        if (status == Status.WAITING_FOR_PICKUP || status == Status.WAITING_FOR_DROPOFF) {
+            return !finishLoading();
+        }
+
+        // logger.debug(name + "Rewards " + RewardCounter.getPointsEarned());
+        // Updates the current task and item
+        // And checks if the Job was cancelled
+        updateTasks();
+        if (finished) {
+            return false;
+        }
+        return step();
+    }
+
+    /**
+     * Plans or carries out the next step of the route
+     *
+     * @return - true if the robot can't go on until its NXT sends something
+     */
+    private boolean step() {
+        if (route == null || route.isEmpty()) {
+            // Plans again when runs out of route, from where the robot is once the moves sent so far are done
+            if (movesInFlight > 0) {
+                return true;
+            }
+
+            switch (status) {
+            case Status.PICKING_UP:
+                planning(true);
+                break;
+            case Status.DROPPING_OFF:
+                planning(false);
+                break;
+            case Status.NOTHING:
+                planning(true);
+                break;
+
+            default:
+                break;
+            }
+
+        } else if (route.peek() == Protocol.PICKUP || route.peek() == Protocol.DROPOFF
+                || route.peek() == Protocol.WAITING) {
+            // Moves are sent ahead, so wait until the robot has got there
+            if (!comms.hasFinishedMoving()) {
+                return true;
+            }
+            this.previousLocation = new RobotLocation(location);
+
+            if (route.peek() == Protocol.PICKUP) {
                 // When pick up location was reached
                 status = Status.WAITING_FOR_PICKUP;
                 logger.debug(name + ": Waiting for Pick Up");
+                comms.requestLoading(currentTask.getCount());
+                return true;
 
-                // Loops until right number of items was entered or Job cancelled
-                while (!pickUp(comms.sendLoadingRequest(currentTask.getCount()))) {
-                    r.sleep();
-                    Delay.msDelay(200);
-                }
-
-                route = null;
             } else if (route.peek() == Protocol.DROPOFF) {
-                this.previousLocation = new RobotLocation(location);
                 // When drop off location was reached
                 status = Status.WAITING_FOR_DROPOFF;
                 logger.debug(name + ": Waiting for Drop Off");
 
                 // Waits for the button to be pressed to drop off
-                comms.sendLoadingRequest(0);
-                dropOff();
+                comms.requestLoading(0);
+                return true;
 
-                route = null;
-            } else if (route.peek() == Protocol.WAITING) {
-                this.previousLocation = new RobotLocation(location);
-                // When the location is occupied
-                r.sleep();
-
-                route = null;
             } else {
-                // Sends an instruction
-                logger.info(name + ": Sending next instruction");
-
-                // Updates the last Instruction and location (Location is one ahead)
-                lastInstruction = route.poll();
-                this.previousLocation = new RobotLocation(location);
-                robotUtils.updateLocation(lastInstruction);
-                comms.sendMovement(lastInstruction);
+                // When the location is occupied, plans again next tick
+                waits++;
+                RoutePlan.moved(this);
 
+                setRoute(null);
+            }
+        } else {
+            // Only so many moves can be waiting on the NXT
+            if (!comms.canQueueMovement()) {
+                return true;
             }
 
+            // Sends an instruction
+            logger.info(name + ": Sending next instruction");
+
+            // Updates the last Instruction and location (Location is where the robot will be once the moves
+            // sent so far are done)
+            lastInstruction = route.poll();
+            routeSnapshot = route.snapshot();
+            this.previousLocation = new RobotLocation(location);
+            robotUtils.updateLocation(lastInstruction);
+            movesInFlight++;
+            comms.queueMovement(lastInstruction);
+
         }
+        return false;
+    }
 
+    /**
+     * Carries on with a pick up or drop off once the NXT has answered
+     *
+     * @return - false if the NXT hasn't answered yet
+     */
+    private boolean finishLoading() {
+        int reply = comms.pollLoading();
+        if (reply == Communication.NO_REPLY) {
+            return false;
+        }
+
+        if (status == Status.WAITING_FOR_DROPOFF) {
+            dropOff();
+            setRoute(null);
+        } else if (pickUp(reply)) {
+            setRoute(null);
+        } else {
+            // Asks again next tick, until right number of items was entered or Job cancelled
+            status = Status.PICKING_UP;
+        }
+        return true;
     }
 
     /**
@@ -254,6 +402,37 @@ public class Robot implements Runnable {
         logger.debug(name + ": Cancelled current Job");
     }
     
+    /**
+     * Lets the robot take work from other robots when it runs out
+     *
+     * @param assignments - the queues of every robot
+     */
+    public void setAssignments(AssignmentService assignments) {
+        this.assignments = assignments;
+    }
+
+    /**
+     * @param clock - where the robot gets the time from and waits on
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param onFinished - called from the thread running the robot once all its tasks are dropped off, and there
+     *            are none to take from other robots. Exits by default.
+     */
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * @return - the number of times the robot has waited for another robot to move
+     */
+    public int getWaits() {
+        return waits;
+    }
+
     public RobotLocation getPreviousLocation() {
         return previousLocation;
     }
@@ -262,13 +441,12 @@ public class Robot implements Runnable {
      * Checks for cancellation, empty tasks and if can fit current task
      */
     private void updateTasks() {
-        
-        if (tasks.isEmpty() && currentWeightOfCargo == 0) {
-            // Only shuts down when dropped off all the items
-            logger.info(name + ": I am Done");
-            Thread.currentThread().interrupt();
-            System.exit(0);
-        } else if (getNextItem && !tasks.isEmpty()) {
+
+        if (tasks.isEmpty() && assignments != null && assignments.steal(tasks, location, currentWeightOfCargo)) {
+            logger.debug(name + ": Took tasks from another robot");
+        }
+
+        if (getNextItem && !tasks.isEmpty()) {
             // Prevents NullPointer when doing the last task
             currentTask = tasks.poll();
             currentItem = currentTask.getItem();
@@ -276,11 +454,27 @@ public class Robot implements Runnable {
         }
         
         // Misses all the cancelled jobs
-        while (RewardCounter.checkIfCancelled(currentTask)) {
-            logger.debug(name + ": Job " + currentTask.jobID + " , Item " + currentItem.getName() + " was canceled");
-            this.currentTask = tasks.poll();
-            this.currentItem = currentTask.getItem();
-            route = null;
+        while (!getNextItem && RewardCounter.checkIfCancelled(currentTask)) {
+            logger.debug(name + ": Job " + currentTask.getJobID() + " , Item " + currentItem.getName() + " was canceled");
+            setRoute(null);
+            if (tasks.isEmpty()) {
+                getNextItem = true;
+            } else {
+                this.currentTask = tasks.poll();
+                this.currentItem = currentTask.getItem();
+            }
+        }
+
+        if (getNextItem) {
+            if (currentWeightOfCargo == 0) {
+                // Only shuts down when dropped off all the items
+                logger.info(name + ": I am Done");
+                finished = true;
+            } else {
+                // Nothing left to pick up, so drop off what is carried
+                status = Status.DROPPING_OFF;
+            }
+            return;
         }
         
         // Checks if can pick up the current task
@@ -300,19 +494,28 @@ public class Robot implements Runnable {
         if (pickUp) {
             logger.debug(name + ": Planning for Pick up. For Point: " + currentItem.getLocation());
             // plan for pick up of current item
-            route = RoutePlan.plan(this, currentItem.getLocation());
+            setRoute(RoutePlan.plan(this, currentItem.getLocation()));
         } else {
             logger.debug(name + ": Planning for Drop off");
             // plan drop off for current item
-            route = RoutePlan.planDropOff(this);
+            setRoute(RoutePlan.planDropOff(this));
         }
     }
 
     /**
-     * @return - returns copy of the route
+     * Sets the route and publishes a snapshot of it for other threads
+     * @param newRoute - the new route, or null to plan again
+     */
+    private void setRoute(Route newRoute) {
+        route = newRoute;
+        routeSnapshot = newRoute == null ? null : newRoute.snapshot();
+    }
+
+    /**
+     * @return - returns read only snapshot of the route, which is cheap as it is only made when the route changes
      */
     public Route getRoute() {
-        return route == null ? null : new Route(route);
+        return routeSnapshot;
     }
 
     /**
@@ -339,7 +542,9 @@ public class Robot implements Runnable {
     }
 
     /**
-     * 
+     * Moves are sent to the NXT ahead of time, so this is where the robot will be once the moves sent so far are
+     * done, not always where it is now. Until then the cells in between stay reserved in {@link RoutePlan}.
+     *
      * @return - returns copy of the RobotLocation
      */
     public RobotLocation getLocation() {
@@ -378,6 +583,20 @@ public class Robot implements Runnable {
         return word;
     }
     
+    /**
+     * @return - returns the current status of the robot, one of {@link Status}
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return - the number of moves sent to the NXT that it hasn't finished yet
+     */
+    public int getMovesInFlight() {
+        return movesInFlight;
+    }
+
     public boolean isInTransit() {
         return status == Status.PICKING_UP || status == Status.DROPPING_OFF;
     }
@@ -0,0 +1,55 @@
+package rp.warehouse.pc.data.robot.utils;
+
+/**
+ * Where robots get the time from and wait on, so they can be run against a simulated clock as well as the real one
+ *
+ * @author agent
+ *
+ */
+public interface Clock {
+
+    /**
+     * The real clock
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleepUntil(long time) throws InterruptedException {
+            long left = time - now();
+            if (left > 0) {
+                Thread.sleep(left);
+            }
+        }
+    };
+
+    /**
+     * @return - the time now in milliseconds
+     */
+    long now();
+
+    /**
+     * Waits until a time
+     *
+     * @param time
+     *            - the time to wake up at, in milliseconds
+     * @throws InterruptedException
+     *             - if the thread was interrupted or the clock has been stopped
+     */
+    void sleepUntil(long time) throws InterruptedException;
+
+    /**
+     * Waits for a while
+     *
+     * @param millis
+     *            - how long to wait in milliseconds
+     * @throws InterruptedException
+     *             - if the thread was interrupted or the clock has been stopped
+     */
+    default void sleep(long millis) throws InterruptedException {
+        sleepUntil(now() + millis);
+    }
+}
@@ -0,0 +1,261 @@
+package rp.warehouse.pc.data.robot.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import org.apache.log4j.Logger;
+
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.input.Job;
+import rp.warehouse.pc.management.providers.main.WarehouseInfoListener;
+
+/**
+ * Keeps record of the points earned and the progress of each Job, without any locks, so robots can report and check
+ * tasks from their own threads every tick.
+ * <p>
+ * Each job has a counter of the tasks done, which becomes -1 when the job is cancelled, so a task being completed
+ * and its job being cancelled at the same time can't both win. The counters are kept in an array indexed by job ID,
+ * which is only copied when it needs to grow, so checking a task is an array lookup. Listeners are told about changes on a separate
+ * thread, in the order they happened, so a slow listener never holds up a robot.
+ *
+ * @author agent
+ * @see RewardCounter
+ */
+public class RewardLedger {
+
+    private static final Logger logger = Logger.getLogger(RewardLedger.class);
+    private static final int CANCELLED = -1;
+
+    // Progress of each job by ID, or null for jobs not added yet. Only replaced while holding the lock.
+    private volatile JobProgress[] jobs = new JobProgress[0];
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final AtomicInteger uncompleted = new AtomicInteger();
+    private final DoubleAdder pointsEarned = new DoubleAdder();
+
+    private final List<WarehouseInfoListener> listeners = new CopyOnWriteArrayList<>();
+    private final Executor events;
+
+    /**
+     * Creates a ledger that tells listeners about changes on its own thread
+     */
+    public RewardLedger() {
+        this(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Reward events");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param events Runs the calls to listeners. Should run them in the order given.
+     */
+    public RewardLedger(Executor events) {
+        this.events = events;
+    }
+
+    /**
+     * Forgets every job, keeping the points earned
+     */
+    public synchronized void resetJobs() {
+        jobs = new JobProgress[0];
+        completed.set(0);
+        cancelled.set(0);
+        uncompleted.set(0);
+    }
+
+    /**
+     * Adds Jobs for reference. A job that has already been added keeps its progress, so it can't be paid for twice,
+     * and a job that has already been cancelled stays cancelled.
+     *
+     * @param jobs
+     */
+    public synchronized void addJobs(List<Job> jobs) {
+        for (Job job : jobs) {
+            if (get(job.getId()) != null) {
+                continue;
+            }
+            float reward = 0.0f;
+            for (Task task : job.getItems()) {
+                reward += task.getItem().getReward() * task.getCount();
+            }
+            put(job.getId(), new JobProgress(job.numOfTasks(), reward));
+        }
+    }
+
+    /**
+     * @return - the progress of a job, or null if it hasn't been added
+     */
+    private JobProgress get(int id) {
+        JobProgress[] current = jobs;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Should only be called while holding the lock
+     */
+    private void put(int id, JobProgress progress) {
+        JobProgress[] current = jobs;
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+        }
+        current[id] = progress;
+        // Publishes the new entry to robots reading without the lock
+        jobs = current;
+    }
+
+    /**
+     * @return - returns the number of Jobs Completed
+     */
+    public int getJobsDone() {
+        return completed.get();
+    }
+
+    /**
+     * @return - returns the number of Jobs Cancelled
+     */
+    public int getNumberJobsCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return - returns the number of points earned for completed jobs
+     */
+    public float getPointsEarned() {
+        return (float) pointsEarned.sum();
+    }
+
+    /**
+     * @return - returns the number of jobs which have been started but aren't done
+     */
+    public int getNumberUncompletedJobs() {
+        return uncompleted.get();
+    }
+
+    /**
+     * @param task
+     *            - Task which is checked if it is cancelled
+     * @return - True if the task's job has been cancelled
+     */
+    public boolean checkIfCancelled(Task task) {
+        JobProgress progress = get(task.getJob());
+        return progress != null && progress.isCancelled();
+    }
+
+    /**
+     * @param task
+     *            - a task of the job to be cancelled
+     */
+    public void addCancelledJob(Task task) {
+        JobProgress progress = get(task.getJob());
+        int done;
+        if (progress == null) {
+            // Jobs that haven't been added yet are remembered as cancelled, with nothing to do
+            synchronized (this) {
+                progress = get(task.getJob());
+                if (progress == null) {
+                    JobProgress cancelledJob = new JobProgress(0, 0);
+                    cancelledJob.done.set(CANCELLED);
+                    put(task.getJob(), cancelledJob);
+                }
+            }
+        }
+        if (progress == null) {
+            done = 0;
+        } else {
+            // A job that has already been completed can't be cancelled
+            do {
+                done = progress.done.get();
+                if (done == CANCELLED || done >= progress.tasks) {
+                    return;
+                }
+            } while (!progress.done.compareAndSet(done, CANCELLED));
+        }
+
+        logger.debug("Job " + task.getJobID() + " cancelled");
+        if (done > 0) {
+            uncompleted.decrementAndGet();
+        }
+        int cancelledCount = cancelled.incrementAndGet();
+        events.execute(() -> {
+            for (WarehouseInfoListener listener : listeners) {
+                listener.cancelledJobsChanged(cancelledCount);
+            }
+        });
+    }
+
+    /**
+     * @param task
+     *            - adds Task which was completed
+     */
+    public void addCompletedJob(Task task) {
+        JobProgress progress = get(task.getJob());
+        int done = progress == null ? CANCELLED : progress.done.get();
+        while (done != CANCELLED && done < progress.tasks && !progress.done.compareAndSet(done, done + 1)) {
+            done = progress.done.get();
+        }
+
+        if (done == CANCELLED || done >= progress.tasks) {
+            logger.debug("Completed task with Job ID: " + task.getJobID() + "  Is refused");
+        } else {
+            logger.debug("Number of tasks done for Job " + task.getJobID() + " " + (done + 1));
+            if (done == 0) {
+                uncompleted.incrementAndGet();
+            }
+            if (done + 1 == progress.tasks) {
+                uncompleted.decrementAndGet();
+                completed.incrementAndGet();
+                pointsEarned.add(progress.reward);
+                logger.debug("Job " + task.getJobID() + " completed, earned " + progress.reward + " points");
+
+                float points = getPointsEarned();
+                events.execute(() -> {
+                    for (WarehouseInfoListener listener : listeners) {
+                        listener.rewardChanged(points);
+                    }
+                });
+            }
+        }
+
+        int jobsDone = getJobsDone();
+        int cancelledCount = getNumberJobsCancelled();
+        int uncompletedCount = getNumberUncompletedJobs();
+        events.execute(() -> {
+            for (WarehouseInfoListener listener : listeners) {
+                listener.jobCountChanged(jobsDone);
+                listener.cancelledJobsChanged(cancelledCount);
+                listener.uncompletedJobsChanged(uncompletedCount);
+            }
+        });
+    }
+
+    /**
+     * @param listener told about changes, on the ledger's event thread
+     */
+    public void addListener(WarehouseInfoListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * The number of tasks done in a job, or {@link #CANCELLED}
+     */
+    private static class JobProgress {
+        private final int tasks;
+        private final float reward;
+        private final AtomicInteger done = new AtomicInteger();
+
+        private JobProgress(int tasks, float reward) {
+            this.tasks = tasks;
+            this.reward = reward;
+        }
+
+        private boolean isCancelled() {
+            return done.get() == CANCELLED;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package rp.warehouse.pc.input;
+
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.JobIndex;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads the items, locations and jobs files straight from the bytes of the file, without regular expressions or
+ * lists of fields.
+ * <p>
+ * Files are memory mapped in chunks that end at a line break, and the chunks of the jobs file are read in parallel.
+ * Lines end with a line feed or a carriage return, and are made of fields split by commas. Spaces and tabs around
+ * fields are ignored.
+ *
+ * @author agent
+ */
+class CsvReader {
+
+    // Size of the chunks files are split into
+    private static final int CHUNK = 8 * 1024 * 1024;
+
+    private final int chunkSize;
+
+    CsvReader() {
+        this(CHUNK);
+    }
+
+    /**
+     * @param chunkSize roughly how many bytes of a file to read at once
+     */
+    CsvReader(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads lines of name,reward,weight
+     * @param path  the items file
+     * @param items where to put the items
+     * @throws IOException if the file can't be read
+     */
+    void readItems(Path path, Items items) throws IOException {
+        for (ByteBuffer chunk : map(path)) {
+            for (int line = 0; line < chunk.limit(); line = next(chunk, line)) {
+                int end = lineEnd(chunk, line);
+                int comma1 = field(chunk, line, end);
+                int comma2 = field(chunk, comma1 + 1, end);
+                if (isBlank(chunk, line, end)) {
+                    continue;
+                }
+                if (comma2 >= end) {
+                    throw new IllegalArgumentException("Bad item " + string(chunk, line, end));
+                }
+                String name = string(chunk, line, comma1);
+                float reward = Float.parseFloat(string(chunk, comma1 + 1, comma2));
+                float weight = Float.parseFloat(string(chunk, comma2 + 1, field(chunk, comma2 + 1, end)));
+                items.add(name, new Item(name, reward, weight));
+            }
+        }
+    }
+
+    /**
+     * Reads lines of x,y,item and sets the location of each item
+     * @param path  the locations file
+     * @param items the items to set the locations of
+     * @throws IOException if the file can't be read
+     */
+    void readLocations(Path path, Items items) throws IOException {
+        for (ByteBuffer chunk : map(path)) {
+            for (int line = 0; line < chunk.limit(); line = next(chunk, line)) {
+                int end = lineEnd(chunk, line);
+                int comma1 = field(chunk, line, end);
+                int comma2 = field(chunk, comma1 + 1, end);
+                if (isBlank(chunk, line, end)) {
+                    continue;
+                }
+                if (comma2 >= end) {
+                    throw new IllegalArgumentException("Bad location " + string(chunk, line, end));
+                }
+                String name = string(chunk, comma2 + 1, field(chunk, comma2 + 1, end));
+                Item item = items.getItem(name);
+                if (item == null) {
+                    throw new IllegalArgumentException("Location for unknown item " + name);
+                }
+                item.setLocation(new Location(integer(chunk, line, comma1), integer(chunk, comma1 + 1, comma2)));
+            }
+        }
+    }
+
+    /**
+     * Reads lines of name,item,count,item,count... with the chunks of the file read in parallel. The jobs are then
+     * numbered in the order of the file all at once, so the numbers don't depend on which chunk was read first.
+     * @param path  the jobs file
+     * @param items the items the jobs are made of
+     * @return the jobs, in the order of the file
+     * @throws IOException if the file can't be read
+     */
+    List<Job> readJobs(Path path, Items items) throws IOException {
+        List<JobChunk> chunks = map(path).parallelStream()
+                .map(chunk -> readJobs(chunk, items))
+                .collect(Collectors.toList());
+
+        List<String> names = new ArrayList<>();
+        int[] offsets = new int[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) {
+            offsets[i] = names.size();
+            names.addAll(chunks.get(i).names);
+        }
+        int[] ids = JobIndex.of(names);
+
+        List<List<Job>> built = IntStream.range(0, chunks.size()).parallel()
+                .mapToObj(i -> chunks.get(i).build(ids, offsets[i]))
+                .collect(Collectors.toList());
+        List<Job> jobs = new ArrayList<>(names.size());
+        for (List<Job> chunk : built) {
+            jobs.addAll(chunk);
+        }
+        return jobs;
+    }
+
+    private JobChunk readJobs(ByteBuffer chunk, Items items) {
+        JobChunk jobs = new JobChunk();
+        for (int line = 0; line < chunk.limit(); line = next(chunk, line)) {
+            int end = lineEnd(chunk, line);
+            if (isBlank(chunk, line, end)) {
+                continue;
+            }
+
+            int comma = field(chunk, line, end);
+            String name = string(chunk, line, comma);
+            jobs.addJob(name);
+            while (comma < end) {
+                int itemEnd = field(chunk, comma + 1, end);
+                Item item = items.getItem(string(chunk, comma + 1, itemEnd));
+                if (item == null || itemEnd >= end) {
+                    throw new IllegalArgumentException("Bad task " + string(chunk, comma + 1, itemEnd) + " in job "
+                            + name);
+                }
+                comma = field(chunk, itemEnd + 1, end);
+                jobs.addTask(item, integer(chunk, itemEnd + 1, comma));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * The jobs read from one chunk, kept until the jobs have been numbered
+     */
+    private static class JobChunk {
+        private final List<String> names = new ArrayList<>();
+        private final List<Item> items = new ArrayList<>();
+        private int[] counts = new int[64];
+        // Index of the first task of each job, and one past the last task of the last job
+        private int[] starts = new int[16];
+
+        private void addJob(String name) {
+            if (names.size() + 1 == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[names.size()] = items.size();
+            names.add(name);
+            starts[names.size()] = items.size();
+        }
+
+        private void addTask(Item item, int count) {
+            if (items.size() == counts.length) {
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            counts[items.size()] = count;
+            items.add(item);
+            starts[names.size()] = items.size();
+        }
+
+        private List<Job> build(int[] ids, int offset) {
+            List<Job> jobs = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                int job = ids[offset + i];
+                ArrayList<Task> tasks = new ArrayList<>(starts[i + 1] - starts[i]);
+                for (int j = starts[i]; j < starts[i + 1]; j++) {
+                    tasks.add(new Task(items.get(j), counts[j], job));
+                }
+                jobs.add(new Job(names.get(i), job, tasks));
+            }
+            return jobs;
+        }
+    }
+
+    /**
+     * Maps a file in chunks that each end just after a line break, or at the end of the file
+     */
+    private List<ByteBuffer> map(Path path) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long length = Math.min(chunkSize, size - start);
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+                // Cut after the last line break, making the chunk bigger if a line is longer than it
+                while (start + length < size && lastLineBreak(chunk) < 0) {
+                    length = Math.min(size - start, length * 2);
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+                int last = start + length < size ? lastLineBreak(chunk) + 1 : (int) length;
+                chunk.limit(last);
+
+                chunks.add(chunk);
+                start += last;
+            }
+        }
+        return chunks;
+    }
+
+    private static int lastLineBreak(ByteBuffer chunk) {
+        for (int i = chunk.limit() - 1; i >= 0; i--) {
+            if (isLineBreak(chunk.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(ByteBuffer chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isLineBreak(chunk.get(i))) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return the index of the line break ending a line, or the end of the chunk
+     */
+    private static int lineEnd(ByteBuffer chunk, int line) {
+        return indexOf(chunk, line, chunk.limit());
+    }
+
+    /**
+     * @return the start of the next line
+     */
+    private static int next(ByteBuffer chunk, int line) {
+        return lineEnd(chunk, line) + 1;
+    }
+
+    /**
+     * @return the index of the comma ending a field, or the end of the line
+     */
+    private static int field(ByteBuffer chunk, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (chunk.get(i) == ',') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isBlank(ByteBuffer chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isSpace(chunk.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(ByteBuffer chunk, int from, int to) {
+        while (from < to && isSpace(chunk.get(from))) {
+            from++;
+        }
+        while (to > from && isSpace(chunk.get(to - 1))) {
+            to--;
+        }
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a whole number from the bytes of a field
+     */
+    private static int integer(ByteBuffer chunk, int from, int to) {
+        while (from < to && isSpace(chunk.get(from))) {
+            from++;
+        }
+        while (to > from && isSpace(chunk.get(to - 1))) {
+            to--;
+        }
+        boolean negative = from < to && chunk.get(from) == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to) {
+            throw new NumberFormatException("Empty number");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = chunk.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: " + string(chunk, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
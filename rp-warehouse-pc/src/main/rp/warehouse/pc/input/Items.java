@@ -4,7 +4,9 @@ package rp.warehouse.pc.input;
 
 import rp.warehouse.pc.data.Item;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * @author megan
@@ -12,14 +14,40 @@ import java.util.HashMap;
 public class Items {
 
     private HashMap<String, Item> items = new HashMap<String, Item>();
+    //items in the order they were added, so each can be found by its id
+    private List<Item> table = new ArrayList<>();
 
     /**
-     * adds an item to the hashmap
+     * adds an item to the hashmap, and gives it the next id. An item replacing one of the same name takes its id.
      * @param name
      * @param item
      */
     public void add(String name, Item item) {
-        items.put(name, item);
+        Item old = items.put(name, item);
+        if (old != null) {
+            item.setId(old.getId());
+            table.set(old.getId(), item);
+        } else {
+            item.setId(table.size());
+            table.add(item);
+        }
+    }
+
+    /**
+     * returns an item by its id
+     * @param id
+     * @return
+     */
+    public Item getItem(int id) {
+        return table.get(id);
+    }
+
+    /**
+     * returns the number of items
+     * @return
+     */
+    public int size() {
+        return table.size();
     }
 
     /**
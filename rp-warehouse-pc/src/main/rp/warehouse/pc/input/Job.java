@@ -1,5 +1,6 @@
 package rp.warehouse.pc.input;
 
+import rp.warehouse.pc.data.JobIndex;
 import rp.warehouse.pc.data.Task;
 
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ public class Job {
 
     //has an item name and the count
     private String name;
+    private int id;
     private boolean cancelled = false;
     private ArrayList<Task> tasks;
 
@@ -24,6 +26,21 @@ public class Job {
     public Job(String name, ArrayList<Task> tasks) {
 
         this.name = name;
+        this.id = JobIndex.of(name);
+        this.tasks = tasks;
+
+    }
+
+    /**
+     * Constructor for when the number of the job is already known
+     * @param name job ID
+     * @param id the number of the job, from {@link JobIndex}
+     * @param tasks tasks this job contains
+     */
+    public Job(String name, int id, ArrayList<Task> tasks) {
+
+        this.name = name;
+        this.id = id;
         this.tasks = tasks;
 
     }
@@ -37,6 +54,7 @@ public class Job {
     public Job(String name, ArrayList<Task> tasks, boolean cancelled) {
 
         this.name = name;
+        this.id = JobIndex.of(name);
         this.tasks = tasks;
         this.cancelled = cancelled;
 
@@ -48,6 +66,7 @@ public class Job {
      */
     public Job(Job job) {
         this.name = job.name;
+        this.id = job.id;
         this.cancelled = job.cancelled;
         this.tasks = job.tasks.stream().map(Task::new).collect(Collectors.toCollection(ArrayList::new));
     }
@@ -60,6 +79,13 @@ public class Job {
         return name;
     }
 
+    /**
+     * @return the number of the job, from {@link JobIndex}
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * @return the Items in the job
      */
@@ -1,12 +1,16 @@
 package rp.warehouse.pc.input;
 
+import org.apache.log4j.Logger;
 import rp.warehouse.pc.data.Item;
-import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.JobIndex;
 import rp.warehouse.pc.data.Task;
 import rp.warehouse.pc.data.robot.utils.RewardCounter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -17,6 +21,8 @@ import java.util.Scanner;
  */
 public class JobInput {
 
+    private static final Logger logger = Logger.getLogger(JobInput.class);
+
     //locations where the files to be read are stored
     private String itemsPath;
     private String jobsPath;
@@ -25,6 +31,7 @@ public class JobInput {
     private static String home = System.getProperty("user.home");
 
     //create the objects that will hold the items/jobs/etc
+    private final CsvReader reader = new CsvReader();
     Items items = new Items();
     Jobs jobs = new Jobs();
     CancelledJobs cancelledJobs = new CancelledJobs();
@@ -58,6 +65,37 @@ public class JobInput {
         RewardCounter.setJobs(jobs);
     }
 
+    /**
+     * Assigns the paths of the files, and uses the snapshot of them if they haven't changed since it was made.
+     * Otherwise reads in the files and makes a new snapshot.
+     * @param itemsPath
+     * @param jobsPath
+     * @param locationsPath
+     * @param cancellationsPath
+     * @param snapshot the snapshot file
+     * @throws FileNotFoundException
+     */
+    public JobInput(String itemsPath, String jobsPath, String locationsPath, String cancellationsPath, File snapshot)
+            throws FileNotFoundException {
+        this.itemsPath = itemsPath;
+        this.jobsPath = jobsPath;
+        this.locationsPath = locationsPath;
+        this.cancellationsPath = cancellationsPath;
+
+        long checksum = JobSnapshot.checksum(open(itemsPath), open(locationsPath), open(jobsPath));
+        if (!readSnapshot(snapshot, checksum)) {
+            readItems();
+            readLocations();
+            readJobs();
+            try {
+                JobSnapshot.write(snapshot, checksum, items, jobs);
+            } catch (IOException e) {
+                logger.warn("Could not write snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+        RewardCounter.setJobs(jobs);
+    }
+
     /**
      * @return The jobs that have been read in
      */
@@ -66,131 +104,97 @@ public class JobInput {
     }
 
     /**
-     * Method to read in the Items file line by line, converts it into arraylist and creates Item objects using information
+     * Method to read in the Items file and create Item objects using information
      * @throws FileNotFoundException
      */
     public void readItems() throws FileNotFoundException {
-
-        //read in items, create the items and store them in the items class
-        Scanner scanner = new Scanner(new File(itemsPath));
-
-        //for every line
-        while (scanner.hasNext()) {
-
-            String line = scanner.next();
-            //split the above string into an array of strings:
-            List<String> list = Arrays.asList(line.split(","));
-            //convert that list to an arraylist to make it easier to work with
-            ArrayList<String> arrayList = new ArrayList<>(list.size());
-            arrayList.addAll(list);
-
-            //create a new item where:
-            //1st string = name, 2nd string = reward, 3rd string = weight
-            Item item = new Item(arrayList.get(0), Float.parseFloat(arrayList.get(1)), Float.parseFloat(arrayList.get(2)));
-
-            //add the item to the items table
-            items.add(arrayList.get(0), item);
-
+        try {
+            reader.readItems(open(itemsPath), items);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        scanner.close();
-
     }
 
     /**
-     * Method to read in the Locations file line by line, converts it into arraylist and creates locations objects using information
+     * Method to read in the Locations file and set the location of each Item
      * @throws FileNotFoundException
      */
     public void readLocations() throws FileNotFoundException {
-
-        //read in locations, create the locations and add them to the appropriate item
-        Scanner scanner = new Scanner(new File(locationsPath));
-
-        //for every line
-        while (scanner.hasNext()) {
-
-            String line = scanner.next();
-            //split the above string into an array of strings:
-            List<String> list = Arrays.asList(line.split(","));
-            //convert that list to an arraylist to make it easier to work with
-            ArrayList<String> arrayList = new ArrayList<>(list.size());
-            arrayList.addAll(list);
-
-            //create a new location where:
-            //2nd string = x, 3rd string = y
-            Location location = new Location(Integer.parseInt(arrayList.get(0)), Integer.parseInt(arrayList.get(1)));
-
-            //get the item from the items table where 1st string in array is the item name
-            Item currentItem = items.getItem(arrayList.get(2));
-
-            //add (set) the location to the item
-            currentItem.setLocation(location);
-
-
+        try {
+            reader.readLocations(open(locationsPath), items);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        scanner.close();
-
-
     }
 
     /**
-     * Method to read in the Jobs file line by line, converts it into arraylist and creates Job objects using information
+     * Method to read in the Jobs file and create Job objects using information
      * @throws FileNotFoundException
      */
     public void readJobs() throws FileNotFoundException {
+        try {
+            for (Job job : reader.readJobs(open(jobsPath), items)) {
+                jobs.addJob(job);
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        //read in jobs, create the jobs and store them in the jobs class
-        Scanner scanner = new Scanner(new File(jobsPath));
-//        scanner.useDelimiter(",");
-
-        //for every line
-        while (scanner.hasNext()) {
-
-            String line = scanner.next();
-            //split the above string into an array of strings:
-            List<String> list = Arrays.asList(line.split(","));
-            //convert that list to an arraylist to make it easier to work with
-            ArrayList<String> arrayList = new ArrayList<>(list.size());
-            arrayList.addAll(list);
-
-            //get the name of the job
-            String name = arrayList.get(0);
-
-            //remove the name from the list
-            arrayList.remove(0);
-
-            //create an arraylist to hold the tasks
-            ArrayList<Task> tasks = new ArrayList<>();
-
-            //while the arraylist isnt empty
-            while (arrayList.size() > 0) {
+    private boolean readSnapshot(File snapshot, long checksum) {
+        try {
+            return JobSnapshot.read(snapshot, checksum, items, jobs);
+        } catch (IOException e) {
+            logger.warn("Could not read snapshot " + snapshot + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-                //get the item (find the item in items)
-                Item item = items.getItem(arrayList.get(0));
+    private Path open(String path) throws FileNotFoundException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(path);
+        }
+        return file.toPath();
+    }
 
-                //get the count
-                Integer count = Integer.parseInt(arrayList.get(1));
+    /**
+     * Method to read one line of a jobs file, in the form name,item,count,item,count...
+     * @param line the line of the file
+     * @return the Job
+     * @throws IllegalArgumentException if the line names an item that hasn't been read in, or is missing a count
+     */
+    public Job readJob(String line) {
 
-                //create a task from these two itmes
-                Task task = new Task(item, count, name);
+        //split the line into the name then pairs of item and count
+        String[] fields = line.trim().split(",");
 
-                //add tasks to the tasks lists
-                tasks.add(task);
+        //get the name of the job
+        String name = fields[0];
+        int job = JobIndex.of(name);
 
-                arrayList.remove(0);
-                arrayList.remove(0);
+        //create an arraylist to hold the tasks
+        ArrayList<Task> tasks = new ArrayList<>(fields.length / 2);
 
+        for (int i = 1; i < fields.length; i += 2) {
 
+            //get the item (find the item in items)
+            Item item = items.getItem(fields[i]);
+            if (item == null || i + 1 >= fields.length) {
+                throw new IllegalArgumentException("Bad task " + fields[i] + " in job " + name);
             }
 
-            //create a Job
-            Job job = new Job(name, tasks);
-
-            //add the job to the jobs list
-            jobs.addJob(job);
-
+            //create a task from the item and the count
+            tasks.add(new Task(item, Integer.parseInt(fields[i + 1]), job));
         }
-        scanner.close();
 
+        return new Job(name, job, tasks);
     }
 
     /**
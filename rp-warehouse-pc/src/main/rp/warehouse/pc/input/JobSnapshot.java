@@ -0,0 +1,210 @@
+package rp.warehouse.pc.input;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.JobIndex;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary copy of the items, locations and jobs read from the csv files, so later starts can skip parsing them.
+ * <p>
+ * The snapshot holds a checksum of the files it was made from and is only used while they are unchanged. Items are
+ * stored in a table with their rewards, weights and locations, and each job stores its tasks as indexes into that
+ * table, so reading it back just walks a memory mapped buffer. The header also holds the length and a checksum of
+ * the rest of the snapshot, which are checked before any of it is read.
+ *
+ * @author agent
+ */
+class JobSnapshot {
+
+    private static final Logger logger = Logger.getLogger(JobSnapshot.class);
+    private static final int MAGIC = 0x4A4F4253;
+    private static final int VERSION = 2;
+    // Magic, version, input checksum, body length and body checksum
+    private static final int HEADER = 4 + 4 + 8 + 4 + 8;
+
+    /**
+     * Works out the checksum of the input files
+     * @param files the files, in a fixed order
+     * @return the checksum of their contents and lengths
+     * @throws UncheckedIOException if a file can't be read
+     */
+    static long checksum(Path... files) {
+        CRC32 crc = new CRC32();
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                crc.update(ByteBuffer.allocate(8).putLong(0, size));
+                for (long start = 0; start < size; start += Integer.MAX_VALUE) {
+                    crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(Integer.MAX_VALUE, size - start)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Reads a snapshot if it was made from the same files
+     * @param file     the snapshot
+     * @param checksum the checksum of the input files now
+     * @param items    where to put the items
+     * @param jobs     where to put the jobs
+     * @return true if the snapshot was read, false if it is missing, out of date or damaged
+     * @throws IOException if the snapshot can't be read
+     */
+    static boolean read(File file, long checksum, Items items, Jobs jobs) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != checksum) {
+                logger.info("Input files have changed since " + file + " was made");
+                return false;
+            }
+
+            int length = buffer.getInt();
+            long bodyChecksum = buffer.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (length != buffer.remaining() || crc.getValue() != bodyChecksum) {
+                logger.warn("Ignoring damaged snapshot " + file);
+                return false;
+            }
+
+            // Read everything before adding any of it, in case the file is cut short
+            Item[] table = new Item[buffer.getInt()];
+            for (int i = 0; i < table.length; i++) {
+                String name = string(buffer);
+                float reward = buffer.getFloat();
+                float weight = buffer.getFloat();
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+                table[i] = x == -1 && y == -1 ? new Item(name, reward, weight)
+                        : new Item(name, reward, weight, new Location(x, y));
+            }
+
+            int jobCount = buffer.getInt();
+            List<Job> read = new ArrayList<>(jobCount);
+            for (int i = 0; i < jobCount; i++) {
+                String name = string(buffer);
+                int job = JobIndex.of(name);
+                int taskCount = buffer.getInt();
+                ArrayList<Task> tasks = new ArrayList<>(taskCount);
+                for (int j = 0; j < taskCount; j++) {
+                    tasks.add(new Task(table[buffer.getInt()], buffer.getInt(), job));
+                }
+                read.add(new Job(name, job, tasks));
+            }
+
+            for (Item item : table) {
+                items.add(item.getName(), item);
+            }
+            for (Job job : read) {
+                jobs.addJob(job);
+            }
+            logger.debug("Read " + table.length + " items and " + read.size() + " jobs from " + file);
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            logger.warn("Ignoring damaged snapshot " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of items and jobs
+     * @param file     the snapshot
+     * @param checksum the checksum of the input files they were read from
+     * @param items    the items
+     * @param jobs     the jobs
+     * @throws IOException if the snapshot can't be written
+     */
+    static void write(File file, long checksum, Items items, Jobs jobs) throws IOException {
+        // Write to the side and move into place, so a reader never sees half a file
+        File temporary = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        int length;
+        try (BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(temporary));
+             DataOutputStream output = new DataOutputStream(new CheckedOutputStream(stream, crc))) {
+            // The header is filled in once the body's length and checksum are known
+            stream.write(new byte[HEADER]);
+
+            // Items are written in id order, so the ids read back are the same
+            output.writeInt(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.getItem(i);
+                string(output, item.getName());
+                output.writeFloat(item.getReward());
+                output.writeFloat(item.getWeight());
+                Location location = item.getLocation();
+                output.writeInt(location == null ? -1 : location.getX());
+                output.writeInt(location == null ? -1 : location.getY());
+            }
+
+            output.writeInt(jobs.getJobs().size());
+            for (Job job : jobs.getJobs()) {
+                string(output, job.getName());
+                output.writeInt(job.numOfTasks());
+                for (Task task : job.getItems()) {
+                    output.writeInt(task.getItem().getId());
+                    output.writeInt(task.getCount());
+                }
+            }
+            length = output.size();
+        }
+
+        try (RandomAccessFile header = new RandomAccessFile(temporary, "rw")) {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(checksum);
+            header.writeInt(length);
+            header.writeLong(crc.getValue());
+        }
+
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            throw new IOException("Could not replace " + file);
+        }
+        logger.debug("Wrote snapshot of inputs to " + file);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void string(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Name too long for snapshot: " + string.substring(0, 20) + "...");
+        }
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+}
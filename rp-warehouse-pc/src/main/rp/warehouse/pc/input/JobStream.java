@@ -0,0 +1,226 @@
+package rp.warehouse.pc.input;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads jobs while the warehouse is running, in the same format as the jobs file, and passes them on as they come in.
+ * <p>
+ * Jobs can be added to csv files in a directory, which are followed like {@code tail -f}, with new files picked up
+ * as they appear, or sent one per line to a socket on this machine. Lines that can't be read are logged and skipped.
+ * <p>
+ * Each job is only passed on once, so a file that is replaced and read again from the start, or a job sent twice,
+ * doesn't get its jobs assigned and paid for again.
+ *
+ * @author agent
+ */
+public class JobStream implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(JobStream.class);
+
+    private final JobInput input;
+    private final Consumer<List<Job>> consumer;
+    // How much of each file has been read
+    private final Map<Path, Long> offsets = new HashMap<>();
+    private final List<Closeable> open = new ArrayList<>();
+    // Names of the jobs already passed on
+    private final Set<String> published = new HashSet<>();
+
+    /**
+     * @param input    the items the jobs are made from. Its jobs have already been assigned, so jobs with the same
+     *                 names are skipped.
+     * @param consumer what to do with each batch of new jobs. Called from the stream's threads.
+     */
+    public JobStream(JobInput input, Consumer<List<Job>> consumer) {
+        this.input = input;
+        this.consumer = consumer;
+        for (Job job : input.getJobs().getJobs()) {
+            published.add(job.getName());
+        }
+    }
+
+    /**
+     * Follows every csv file in a directory, including ones that are made later. Files already in the directory
+     * are read from the start.
+     * @param directory the directory to watch
+     * @throws IOException if the directory can't be watched
+     */
+    public void watch(Path directory) throws IOException {
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        synchronized (open) {
+            open.add(watcher);
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                read(file);
+            }
+        }
+
+        start("Job watcher " + directory, () -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            continue;
+                        }
+                        Path file = directory.resolve((Path) event.context());
+                        if (file.toString().endsWith(".csv")) {
+                            read(file);
+                        }
+                    }
+                    if (!key.reset()) {
+                        logger.warn("Stopped watching " + directory);
+                        return;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                logger.debug("Stopped watching " + directory);
+            }
+        });
+    }
+
+    /**
+     * Accepts connections on this machine only, reading one job from each line sent
+     * @param port the port to listen on, or 0 for any free port
+     * @return the port being listened on
+     * @throws IOException if the port can't be opened
+     */
+    public int listen(int port) throws IOException {
+        final ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        synchronized (open) {
+            open.add(server);
+        }
+
+        start("Job listener " + server.getLocalPort(), () -> {
+            try {
+                while (true) {
+                    final Socket socket = server.accept();
+                    start("Job connection " + socket.getPort(), () -> receive(socket));
+                }
+            } catch (IOException e) {
+                logger.debug("Stopped listening on " + server.getLocalPort());
+            }
+        });
+        return server.getLocalPort();
+    }
+
+    private void receive(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<Job> jobs = new ArrayList<>(1);
+                add(jobs, line);
+                publish(jobs);
+            }
+        } catch (IOException e) {
+            logger.warn("Lost job connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the whole lines added to a file since it was last read
+     */
+    private synchronized void read(Path file) {
+        long offset = offsets.getOrDefault(file, 0L);
+        List<Job> jobs = new ArrayList<>();
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            if (in.length() < offset) {
+                // Replaced with a shorter file, start again, skipping jobs already read
+                offset = 0;
+            }
+            in.seek(offset);
+            byte[] added = new byte[(int) (in.length() - offset)];
+            in.readFully(added);
+
+            // Leave a line that is still being written for next time
+            int start = 0;
+            for (int i = 0; i < added.length; i++) {
+                if (added[i] == '\n' || added[i] == '\r') {
+                    add(jobs, new String(added, start, i - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            offsets.put(file, offset + start);
+        } catch (IOException e) {
+            logger.warn("Could not read " + file + ": " + e.getMessage());
+        }
+        publish(jobs);
+    }
+
+    private void add(List<Job> jobs, String line) {
+        if (line.trim().isEmpty()) {
+            return;
+        }
+        try {
+            jobs.add(input.readJob(line));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Skipping job " + line.trim() + ": " + e.getMessage());
+        }
+    }
+
+    private void publish(List<Job> jobs) {
+        synchronized (published) {
+            Iterator<Job> iterator = jobs.iterator();
+            while (iterator.hasNext()) {
+                Job job = iterator.next();
+                if (!published.add(job.getName())) {
+                    logger.debug("Skipping job " + job.getName() + ", already read");
+                    iterator.remove();
+                }
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.debug("Read " + jobs.size() + " new jobs");
+            consumer.accept(jobs);
+        }
+    }
+
+    private void start(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching and listening
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (open) {
+            for (Closeable closeable : open) {
+                closeable.close();
+            }
+            open.clear();
+        }
+    }
+}
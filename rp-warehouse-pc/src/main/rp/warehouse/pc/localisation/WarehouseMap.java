@@ -23,8 +23,6 @@ public class WarehouseMap {
 	private final HashMap<Ranges, ArrayList<Point>> positions = new HashMap<>();
 	private final HashMap<Point, Ranges> ranges = new HashMap<>();
 	private final Point up = new Point(0, 1), right = new Point(1, 0), down = new Point(0, -1), left = new Point(-1, 0);
-	private static final List<Point> blockedPoints = Warehouse.getBlockedLocations().stream().map(Location::toPoint)
-			.collect(Collectors.toList());
 
 	/**
 	 * Generates the ranges of from every point within the warehouse.
@@ -32,12 +30,12 @@ public class WarehouseMap {
 	public WarehouseMap() {
 		final GridMap world = Warehouse.build();
 		// Generate the warehouseMap values using world.
-		for (byte x = 0; x < world.getXSize(); x++) {
-			for (byte y = 0; y < world.getYSize(); y++) {
+		for (int x = 0; x < world.getXSize(); x++) {
+			for (int y = 0; y < world.getYSize(); y++) {
 				// Create a point from the X and Y co-ordinates.
 				final Point point = new Point(x, y);
 				// Check if the position isn't blocked
-				if (!blockedPoints.contains(point)) {
+				if (!Warehouse.isBlocked(x, y)) {
 					// Take the UP, RIGHT, DOWN and LEFT readings.
 					final float up = world.rangeToObstacleFromGridPosition(x, y, 90);
 					final float right = world.rangeToObstacleFromGridPosition(x, y, 0);
@@ -98,10 +96,10 @@ public class WarehouseMap {
 	/**
 	 * Method to retrieve the blocked points within the warehouse.
 	 * 
-	 * @return List of the blocked points in the warehouse.
+	 * @return A new list of the blocked points in the warehouse, free to be added to.
 	 */
 	public static List<Point> getBlockedPoints() {
-		return blockedPoints;
+		return Warehouse.getBlockedLocations().stream().map(Location::toPoint).collect(Collectors.toList());
 	}
 
 	public void updateRangesAroundPositions(final Point point) {
@@ -113,7 +111,7 @@ public class WarehouseMap {
 		pointsAround.add(point.add(left));
 		// Remove the points from the ones to change if it is outside of the map, or
 		// inside blocked locations.
-		pointsAround.removeIf(p -> !world.isValidGridPosition((int) p.x, (int) p.y) || blockedPoints.contains(p));
+		pointsAround.removeIf(p -> !world.isValidGridPosition((int) p.x, (int) p.y) || Warehouse.isBlocked((int) p.x, (int) p.y));
 		for (Point p : pointsAround) {
 			final Ranges range = ranges.get(p).clone();
 			ranges.remove(p);
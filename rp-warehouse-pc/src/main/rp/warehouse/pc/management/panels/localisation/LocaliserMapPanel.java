@@ -18,7 +18,8 @@ public class LocaliserMapPanel extends JPanel {
      * @param localiser localiser being visualised
      */
     public LocaliserMapPanel(Localiser localiser) {
-        LocaliserMapVisualisation mapVisualisation = new LocaliserMapVisualisation(Warehouse.build(), Warehouse.build(), 200f);
+        LocaliserMapVisualisation mapVisualisation = new LocaliserMapVisualisation(Warehouse.build(), Warehouse.build(),
+                Warehouse.getLayout().getScaleToFit(736, 496));
 
         this.add(mapVisualisation);
         mapVisualisation.setPreferredSize(new Dimension(800, 580));
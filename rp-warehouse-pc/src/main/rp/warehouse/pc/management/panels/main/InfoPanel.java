@@ -5,6 +5,7 @@ import rp.warehouse.pc.data.robot.Robot;
 import rp.warehouse.pc.data.robot.utils.RewardCounter;
 import rp.warehouse.pc.management.providers.main.RobotListenerManager;
 import rp.warehouse.pc.management.providers.main.WarehouseInfoListener;
+import rp.warehouse.pc.route.RoutePlan;
 
 import javax.swing.*;
 import java.awt.*;
@@ -97,6 +98,9 @@ public class InfoPanel extends JPanel implements WarehouseInfoListener {
         updateText();
         RewardCounter.addListener(this);
 
+        // Planning stats aren't pushed to listeners, so refresh them every second
+        new Timer(1000, (e) -> updateText()).start();
+
         // Logo
         JPanel bottom = new JPanel();
 
@@ -136,6 +140,7 @@ public class InfoPanel extends JPanel implements WarehouseInfoListener {
     }
 
     private void updateText() {
-        warehouseInfo.setText("Total reward: " + totalReward + " from " + jobsCompleted + " jobs. " + jobsCancelled + " cancelled " + uncompleted + " uncompleted");
+        warehouseInfo.setText("Total reward: " + totalReward + " from " + jobsCompleted + " jobs. " + jobsCancelled + " cancelled " + uncompleted + " uncompleted. "
+                + Math.round(RoutePlan.getCacheHitRate() * 100) + "% route cache hits");
     }
 }
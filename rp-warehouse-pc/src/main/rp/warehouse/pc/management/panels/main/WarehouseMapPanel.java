@@ -30,7 +30,8 @@ public class WarehouseMapPanel extends JPanel {
             robotsPoses.add(new AbstractMap.SimpleEntry<>(robot, new RobotPoseProvider(robot)));
         }
 
-        WarehouseMapVisualisation mapVisualisation = new WarehouseMapVisualisation(Warehouse.build(), Warehouse.build(), 200f, robotsPoses);
+        WarehouseMapVisualisation mapVisualisation = new WarehouseMapVisualisation(Warehouse.build(), Warehouse.build(),
+                Warehouse.getLayout().getScaleToFit(736, 496), robotsPoses);
 
         this.add(mapVisualisation);
         mapVisualisation.setPreferredSize(new Dimension(800, 580));
@@ -67,9 +67,9 @@ public class WarehouseMapVisualisation extends GridMapVisualisation {
             } else {
 
                 // Draw future routes, if any
-                for (int i : route) {
+                for (int i = 0; i < route.size(); i++) {
                     RobotLocation nextLocation = new RobotLocation(currentLocation);
-                    nextLocation.setDirection(i);
+                    nextLocation.setDirection(route.get(i));
                     nextLocation.forward();
 
                     renderLine(currentLocation.toGridPoint()
@@ -0,0 +1,503 @@
+package rp.warehouse.pc.route;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.DistanceOracle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Conflict-Based Search, planning collision free paths for all robots at once rather than one at a time.
+ * <p>
+ * The high level search keeps a tree of constraints ("robot r may not be at cell c at tick t"). Each node has one
+ * shortest path per robot that obeys its constraints. The first conflict between two paths is split into two
+ * children, one constraining each robot, until a node has no conflicts left.
+ * <p>
+ * Robots do not move in lock step, so the same rule as {@link ReservationTable} is used: a robot is treated as being
+ * in both ends of a move, and two robots conflict if one is in a cell within one tick of the other being there. This
+ * also covers robots swapping cells and robots following too closely.
+ * <p>
+ * With a suboptimality factor above 1 the high level picks, out of every node costing at most that factor times the
+ * cheapest one, the node with the fewest conflicts (BCBS(w, 1)). This usually finds a solution much faster, and the
+ * total path length is still within the factor of the best possible. If no solution is found within the time budget
+ * {@link #solve(int[][], int[])} gives up and returns null so the caller can fall back to planning greedily.
+ * <p>
+ * Like {@link GridPlanner}, the low level search keeps its state in flat arrays reused between searches, here indexed
+ * by {@code tick * cells + cell} up to the furthest tick a search can need.
+ *
+ * @author agent
+ */
+public class ConflictBasedSearch {
+
+    private static final Logger logger = Logger.getLogger(ConflictBasedSearch.class);
+    // How often the low level search checks the clock
+    private static final int CLOCK_CHECK = 256;
+
+    private final int width;
+    private final int height;
+    private final int cells;
+    private final BitSet blocked;
+    private final DistanceOracle distances;
+    private final double suboptimality;
+    private final long budget;
+
+    private long deadline;
+    private boolean timedOut;
+
+    // Low level search state, indexed by tick * cells + cell
+    private int[] seenStamp = new int[0];
+    private int[] forbiddenStamp = new int[0];
+    private int[] parent = new int[0];
+    private int search = 0;
+    // Open list of states, each packed as f-cost then the reversed state index
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    /**
+     * Creates a solver for a grid
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param blocked       cells that can never be entered, indexed by {@code y * width + x}
+     * @param suboptimality how much longer than the best solution the total path length may be, at least 1
+     * @param budgetMillis  how long to search for before giving up, in milliseconds
+     */
+    public ConflictBasedSearch(int width, int height, BitSet blocked, double suboptimality, long budgetMillis) {
+        this(width, height, blocked, null, suboptimality, budgetMillis);
+    }
+
+    /**
+     * Creates a solver for a grid, using the true distances around the grid as the heuristic
+     *
+     * @param width         number of columns
+     * @param height        number of rows
+     * @param blocked       cells that can never be entered, indexed by {@code y * width + x}
+     * @param distances     distances between cells of the same grid, or null to use the Manhattan distance
+     * @param suboptimality how much longer than the best solution the total path length may be, at least 1
+     * @param budgetMillis  how long to search for before giving up, in milliseconds
+     */
+    public ConflictBasedSearch(int width, int height, BitSet blocked, DistanceOracle distances, double suboptimality,
+                               long budgetMillis) {
+        if (suboptimality < 1) {
+            throw new IllegalArgumentException("Suboptimality factor must be at least 1, was " + suboptimality);
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = width * height;
+        this.blocked = blocked;
+        this.distances = distances;
+        this.suboptimality = suboptimality;
+        this.budget = budgetMillis * 1000000L;
+    }
+
+    /**
+     * Plans paths for all robots at once.
+     * <p>
+     * Every robot has a prefix of cells it is already committed to, starting where it is now. A robot with a goal of
+     * -1 is fixed: it follows its prefix and then stays at the end of it.
+     *
+     * @param prefixes cells each robot is already committed to, each with at least one cell
+     * @param goals    goal cell of each robot, or -1 if the robot is fixed
+     * @return the path of each robot including its prefix, or null if no solution was found in time
+     */
+    public int[][] solve(int[][] prefixes, int[] goals) {
+        deadline = System.nanoTime() + budget;
+        timedOut = false;
+        int agents = prefixes.length;
+
+        // Two robots can never both end up in the same cell
+        BitSet ends = new BitSet(cells);
+        for (int i = 0; i < agents; i++) {
+            int end = goals[i] == -1 ? prefixes[i][prefixes[i].length - 1] : goals[i];
+            if (ends.get(end)) {
+                logger.debug("Robots share a final cell " + end + ", no solution");
+                return null;
+            }
+            ends.set(end);
+        }
+
+        int[][] paths = new int[agents][];
+        for (int i = 0; i < agents; i++) {
+            paths[i] = findPath(prefixes[i], goals[i], null, i);
+            if (paths[i] == null) {
+                return null;
+            }
+        }
+
+        List<Constraint> open = new ArrayList<>();
+        open.add(new Constraint(null, -1, -1, -1, paths, countConflicts(paths)));
+        int expanded = 0;
+
+        while (!open.isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                logger.debug("Timed out after " + expanded + " nodes");
+                return null;
+            }
+
+            Constraint node = next(open);
+            int[] conflict = firstConflict(node.paths);
+            if (conflict == null) {
+                logger.debug("Solved after " + expanded + " nodes, cost " + node.cost);
+                return node.paths;
+            }
+            expanded++;
+
+            // conflict = {a, time of a, b, time of b, cell}
+            branch(open, node, conflict[0], conflict[1], conflict[4], prefixes, goals);
+            branch(open, node, conflict[2], conflict[3], conflict[4], prefixes, goals);
+            if (timedOut) {
+                logger.debug("Timed out after " + expanded + " nodes");
+                return null;
+            }
+        }
+
+        logger.debug("No solution after " + expanded + " nodes");
+        return null;
+    }
+
+    /**
+     * Removes the next node to expand from the open list. The cheapest node is always within the focal bound, so
+     * with a factor of 1 this is plain CBS.
+     */
+    private Constraint next(List<Constraint> open) {
+        int min = Integer.MAX_VALUE;
+        for (Constraint node : open) {
+            min = Math.min(min, node.cost);
+        }
+
+        double bound = min * suboptimality;
+        int best = -1;
+        for (int i = 0; i < open.size(); i++) {
+            Constraint node = open.get(i);
+            if (node.cost > bound) {
+                continue;
+            }
+            if (best == -1 || node.conflicts < open.get(best).conflicts
+                    || (node.conflicts == open.get(best).conflicts && node.cost < open.get(best).cost)) {
+                best = i;
+            }
+        }
+
+        // Swap with the last node so removing it is cheap
+        Constraint node = open.get(best);
+        open.set(best, open.get(open.size() - 1));
+        open.remove(open.size() - 1);
+        return node;
+    }
+
+    /**
+     * Adds a child node that stops a robot from being at a cell at a tick, if the robot can still find a path
+     */
+    private void branch(List<Constraint> open, Constraint parent, int agent, int time, int cell, int[][] prefixes,
+                        int[] goals) {
+        // Fixed robots and committed cells can't be changed
+        if (goals[agent] == -1 || time < prefixes[agent].length) {
+            return;
+        }
+
+        Constraint child = new Constraint(parent, agent, cell, time, null, 0);
+        int[] path = findPath(prefixes[agent], goals[agent], child, agent);
+        if (path == null) {
+            return;
+        }
+
+        child.paths = parent.paths.clone();
+        child.paths[agent] = path;
+        child.cost = cost(child.paths);
+        child.conflicts = countConflicts(child.paths);
+        open.add(child);
+    }
+
+    // Low level search
+
+    /**
+     * Finds the shortest path for one robot through space and time, obeying the constraints on it. Robots may wait
+     * in place for a tick.
+     *
+     * @return the path including the prefix, or null if there is none
+     */
+    private int[] findPath(int[] prefix, int goal, Constraint constraints, int agent) {
+        if (goal == -1) {
+            return prefix;
+        }
+
+        int startTime = prefix.length - 1;
+        int start = prefix[startTime];
+        if (heuristic(start, goal) == DistanceOracle.UNREACHABLE) {
+            return null;
+        }
+
+        int lastConstraint = -1;
+        for (Constraint c = constraints; c != null && c.agent != -1; c = c.parent) {
+            if (c.agent == agent) {
+                lastConstraint = Math.max(lastConstraint, c.time);
+            }
+        }
+
+        // Waiting longer than this can't help, as every constraint has passed and the goal can be reached from
+        // anywhere in that many ticks
+        int maxTime = Math.min(Math.max(lastConstraint, startTime) + farthest(goal), Integer.MAX_VALUE / cells - 1);
+        newSearch((maxTime + 1) * cells);
+
+        // Mark this robot's constraints
+        int lastGoalConstraint = -1;
+        for (Constraint c = constraints; c != null && c.agent != -1; c = c.parent) {
+            if (c.agent == agent && c.time <= maxTime) {
+                forbiddenStamp[c.time * cells + c.cell] = search;
+                if (c.cell == goal) {
+                    lastGoalConstraint = Math.max(lastGoalConstraint, c.time);
+                }
+            }
+        }
+        for (int t = 0; t <= startTime; t++) {
+            if (forbiddenStamp[t * cells + prefix[t]] == search) {
+                return null;
+            }
+        }
+
+        int first = startTime * cells + start;
+        seenStamp[first] = search;
+        parent[first] = -1;
+        push(startTime + heuristic(start, goal), first);
+        int expanded = 0;
+
+        while (heapSize > 0) {
+            if (++expanded % CLOCK_CHECK == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                return null;
+            }
+
+            int current = pop();
+            int cell = current % cells;
+            int time = current / cells;
+            if (cell == goal && time > lastGoalConstraint) {
+                return path(prefix, current);
+            }
+            if (time >= maxTime) {
+                continue;
+            }
+
+            int x = cell % width;
+            int y = cell / width;
+            int next = current + cells;
+
+            // North, east, south, west, then wait
+            if (y + 1 < height) {
+                visit(current, next + width, time + 1, goal);
+            }
+            if (x + 1 < width) {
+                visit(current, next + 1, time + 1, goal);
+            }
+            if (y > 0) {
+                visit(current, next - width, time + 1, goal);
+            }
+            if (x > 0) {
+                visit(current, next - 1, time + 1, goal);
+            }
+            visit(current, next, time + 1, goal);
+        }
+
+        return null;
+    }
+
+    private void visit(int from, int state, int time, int goal) {
+        int cell = state % cells;
+        if (blocked.get(cell) || forbiddenStamp[state] == search || seenStamp[state] == search) {
+            return;
+        }
+
+        // Every step takes one tick, so the first time a state is reached is the quickest
+        seenStamp[state] = search;
+        parent[state] = from;
+        push(time + heuristic(cell, goal), state);
+    }
+
+    /**
+     * @return the most ticks it can take to get to the goal from any free cell that can reach it
+     */
+    private int farthest(int goal) {
+        if (distances == null) {
+            return cells;
+        }
+        int farthest = 0;
+        for (int cell = blocked.nextClearBit(0); cell < cells; cell = blocked.nextClearBit(cell + 1)) {
+            int distance = distances.getDistance(cell, goal);
+            if (distance != DistanceOracle.UNREACHABLE) {
+                farthest = Math.max(farthest, distance);
+            }
+        }
+        return farthest;
+    }
+
+    private int heuristic(int cell, int goal) {
+        if (distances != null) {
+            return distances.getDistance(cell, goal);
+        }
+        return Math.abs(cell % width - goal % width) + Math.abs(cell / width - goal / width);
+    }
+
+    private int[] path(int[] prefix, int end) {
+        int[] path = Arrays.copyOf(prefix, end / cells + 1);
+        for (int state = end; parent[state] != -1; state = parent[state]) {
+            path[state / cells] = state % cells;
+        }
+        return path;
+    }
+
+    /**
+     * Starts a new low level search over a number of states. Stamps are compared against the search number so the
+     * arrays never need clearing, only growing.
+     */
+    private void newSearch(int states) {
+        heapSize = 0;
+        if (seenStamp.length < states) {
+            int size = Math.max(states, (int) Math.min(Integer.MAX_VALUE - 8, 2L * seenStamp.length));
+            seenStamp = Arrays.copyOf(seenStamp, size);
+            forbiddenStamp = Arrays.copyOf(forbiddenStamp, size);
+            parent = Arrays.copyOf(parent, size);
+        }
+        if (++search == Integer.MAX_VALUE) {
+            search = 1;
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(forbiddenStamp, 0);
+        }
+    }
+
+    // Heap
+
+    /**
+     * Adds a state to the open list. States are taken cheapest first, then furthest along.
+     */
+    private void push(int f, int state) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) f << 32) | (Integer.MAX_VALUE - state);
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            if (heap[up] <= entry) {
+                break;
+            }
+            heap[i] = heap[up];
+            i = up;
+        }
+        heap[i] = entry;
+    }
+
+    private int pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= last) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return Integer.MAX_VALUE - (int) top;
+    }
+
+    // Conflicts
+
+    /**
+     * @return where a robot is at a tick, staying at the end of its path once it has finished
+     */
+    private static int at(int[] path, int time) {
+        return path[Math.min(Math.max(time, 0), path.length - 1)];
+    }
+
+    /**
+     * Finds the earliest conflict between any two robots
+     *
+     * @return {robot a, tick of a, robot b, tick of b, cell}, or null if there are no conflicts
+     */
+    private static int[] firstConflict(int[][] paths) {
+        int length = 0;
+        for (int[] path : paths) {
+            length = Math.max(length, path.length);
+        }
+
+        for (int t = 0; t < length; t++) {
+            for (int a = 0; a < paths.length; a++) {
+                for (int b = a + 1; b < paths.length; b++) {
+                    int cellA = at(paths[a], t);
+                    if (cellA == at(paths[b], t)) {
+                        return new int[]{a, t, b, t, cellA};
+                    }
+                    if (t > 0 && cellA == at(paths[b], t - 1)) {
+                        return new int[]{a, t, b, t - 1, cellA};
+                    }
+                    if (t > 0 && at(paths[a], t - 1) == at(paths[b], t)) {
+                        return new int[]{a, t - 1, b, t, at(paths[b], t)};
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int countConflicts(int[][] paths) {
+        int length = 0;
+        for (int[] path : paths) {
+            length = Math.max(length, path.length);
+        }
+
+        int conflicts = 0;
+        for (int a = 0; a < paths.length; a++) {
+            for (int b = a + 1; b < paths.length; b++) {
+                for (int t = 0; t < length; t++) {
+                    int cellA = at(paths[a], t);
+                    int cellB = at(paths[b], t);
+                    if (cellA == cellB || (t > 0 && (cellA == at(paths[b], t - 1) || at(paths[a], t - 1) == cellB))) {
+                        conflicts++;
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private static int cost(int[][] paths) {
+        int cost = 0;
+        for (int[] path : paths) {
+            cost += path.length - 1;
+        }
+        return cost;
+    }
+
+    /**
+     * A node of the constraint tree. Each node adds one constraint to its parent's, so the full set is found by
+     * following the parents.
+     */
+    private static class Constraint {
+        private final Constraint parent;
+        private final int agent;
+        private final int cell;
+        private final int time;
+        private int[][] paths;
+        private int cost;
+        private int conflicts;
+
+        private Constraint(Constraint parent, int agent, int cell, int time, int[][] paths, int conflicts) {
+            this.parent = parent;
+            this.agent = agent;
+            this.cell = cell;
+            this.time = time;
+            this.paths = paths;
+            this.cost = paths == null ? 0 : cost(paths);
+            this.conflicts = conflicts;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package rp.warehouse.pc.route;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Incremental planner for one robot, using D* Lite. The search runs backwards from the goal and keeps its state
+ * between plans, so when the robot has moved a little and a few cells have been taken or freed by other robots,
+ * only the part of the search those cells affect is redone.
+ * <p>
+ * Other robots are given as a set of cells that can't be entered, rather than as reservations over time, as the
+ * search tree can only be kept for a graph that doesn't depend on time. Planning to a different goal starts again.
+ *
+ * @author agent
+ */
+public class DStarLite {
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final int width;
+    private final int height;
+    private final BitSet blocked;
+
+    private final int[] g;
+    private final int[] rhs;
+    // Priority queue of inconsistent cells, ordered by (key1, key2)
+    private final int[] key1;
+    private final int[] key2;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    private final BitSet occupied;
+    private int goal = -1;
+    private int start;
+    private int km;
+    private long expanded;
+
+    /**
+     * Creates a planner for a grid of a given size
+     *
+     * @param width   number of columns
+     * @param height  number of rows
+     * @param blocked cells that can never be entered, indexed by {@code y * width + x}
+     */
+    public DStarLite(int width, int height, BitSet blocked) {
+        this.width = width;
+        this.height = height;
+        this.blocked = blocked;
+
+        int cells = width * height;
+        g = new int[cells];
+        rhs = new int[cells];
+        key1 = new int[cells];
+        key2 = new int[cells];
+        heap = new int[cells];
+        heapIndex = new int[cells];
+        occupied = new BitSet(cells);
+    }
+
+    /**
+     * Finds the shortest path between two cells, reusing as much of the last search as possible.
+     * <p>
+     * Like {@link GridPlanner#plan(int, int, GridPlanner.Occupancy)}, if the goal is blocked or occupied the path
+     * stops next to it, and if it can't be reached at all the path only contains the start.
+     *
+     * @param start    starting cell
+     * @param goal     goal cell
+     * @param occupied cells other robots are in the way in. Not changed.
+     * @return the cells of the path in order, including the start
+     */
+    public int[] plan(int start, int goal, BitSet occupied) {
+        if (goal != this.goal) {
+            reset(start, goal);
+        } else {
+            km += heuristic(this.start, start);
+            this.start = start;
+        }
+
+        // Repair around every cell that has been taken or freed since the last plan
+        BitSet changed = (BitSet) this.occupied.clone();
+        this.occupied.clear();
+        this.occupied.or(occupied);
+        this.occupied.clear(start);
+        changed.xor(this.occupied);
+        for (int cell = changed.nextSetBit(0); cell >= 0; cell = changed.nextSetBit(cell + 1)) {
+            updateVertex(cell);
+            updateNeighbours(cell);
+        }
+
+        computeShortestPath();
+        return path();
+    }
+
+    private void reset(int start, int goal) {
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        Arrays.fill(heapIndex, -1);
+        heapSize = 0;
+        occupied.clear();
+        km = 0;
+        this.goal = goal;
+        this.start = start;
+
+        rhs[goal] = 0;
+        insert(goal);
+    }
+
+    private void computeShortestPath() {
+        while (heapSize > 0 && (compare(heap[0], key(start)) < 0 || rhs[start] != g[start])) {
+            int u = heap[0];
+            expanded++;
+
+            int oldKey1 = key1[u];
+            int oldKey2 = key2[u];
+            long newKey = key(u);
+            if (oldKey1 < (int) (newKey >> 32) || (oldKey1 == (int) (newKey >> 32) && oldKey2 < (int) newKey)) {
+                // Key is out of date since the robot moved
+                key1[u] = (int) (newKey >> 32);
+                key2[u] = (int) newKey;
+                siftDown(0);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                remove(u);
+                updateNeighbours(u);
+            } else {
+                g[u] = INFINITY;
+                updateVertex(u);
+                updateNeighbours(u);
+            }
+        }
+    }
+
+    private void updateNeighbours(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        if (y + 1 < height) {
+            updateVertex(cell + width);
+        }
+        if (x + 1 < width) {
+            updateVertex(cell + 1);
+        }
+        if (y > 0) {
+            updateVertex(cell - width);
+        }
+        if (x > 0) {
+            updateVertex(cell - 1);
+        }
+    }
+
+    private void updateVertex(int cell) {
+        if (cell != goal) {
+            rhs[cell] = INFINITY;
+            if (isFree(cell)) {
+                int x = cell % width;
+                int y = cell / width;
+                if (y + 1 < height) {
+                    rhs[cell] = Math.min(rhs[cell], cost(cell + width));
+                }
+                if (x + 1 < width) {
+                    rhs[cell] = Math.min(rhs[cell], cost(cell + 1));
+                }
+                if (y > 0) {
+                    rhs[cell] = Math.min(rhs[cell], cost(cell - width));
+                }
+                if (x > 0) {
+                    rhs[cell] = Math.min(rhs[cell], cost(cell - 1));
+                }
+            }
+        }
+
+        boolean queued = heapIndex[cell] != -1;
+        if (g[cell] != rhs[cell]) {
+            if (queued) {
+                long key = key(cell);
+                key1[cell] = (int) (key >> 32);
+                key2[cell] = (int) key;
+                siftUp(heapIndex[cell]);
+                siftDown(heapIndex[cell]);
+            } else {
+                insert(cell);
+            }
+        } else if (queued) {
+            remove(cell);
+        }
+    }
+
+    /**
+     * @return the cost of getting to the goal through a neighbouring cell
+     */
+    private int cost(int next) {
+        return isFree(next) && g[next] < INFINITY ? g[next] + 1 : INFINITY;
+    }
+
+    /**
+     * The goal is always free so the search can start there, even if it is a shelf or another robot is on it
+     */
+    private boolean isFree(int cell) {
+        return cell == goal || (!blocked.get(cell) && !occupied.get(cell));
+    }
+
+    private int[] path() {
+        if (g[start] >= INFINITY) {
+            return new int[]{start};
+        }
+
+        int[] path = new int[g[start] + 1];
+        path[0] = start;
+        int current = start;
+        for (int i = 1; i < path.length; i++) {
+            // Step to the neighbour closest to the goal, in the order north, east, south, west
+            int x = current % width;
+            int y = current / width;
+            int next = -1;
+            if (y + 1 < height) {
+                next = closer(next, current + width);
+            }
+            if (x + 1 < width) {
+                next = closer(next, current + 1);
+            }
+            if (y > 0) {
+                next = closer(next, current - width);
+            }
+            if (x > 0) {
+                next = closer(next, current - 1);
+            }
+            if (next == -1 || g[next] >= INFINITY) {
+                return Arrays.copyOf(path, i);
+            }
+            path[i] = next;
+            current = next;
+        }
+
+        // Stop next to a goal that can't be entered
+        if (path.length > 1 && (blocked.get(goal) || occupied.get(goal))) {
+            return Arrays.copyOf(path, path.length - 1);
+        }
+        return path;
+    }
+
+    private int closer(int best, int next) {
+        if (!isFree(next)) {
+            return best;
+        }
+        return best == -1 || g[next] < g[best] ? next : best;
+    }
+
+    private int heuristic(int a, int b) {
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+
+    /**
+     * @return the key of a cell, with the first part in the high 32 bits
+     */
+    private long key(int cell) {
+        int min = Math.min(g[cell], rhs[cell]);
+        int first = min >= INFINITY ? INFINITY : min + heuristic(start, cell) + km;
+        return ((long) first << 32) | (min & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the number of cells expanded by all searches so far
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+
+    // Heap
+
+    private int compare(int cell, long key) {
+        int first = (int) (key >> 32);
+        int second = (int) key;
+        if (key1[cell] != first) {
+            return key1[cell] < first ? -1 : 1;
+        }
+        return Integer.compare(key2[cell], second);
+    }
+
+    private boolean before(int a, int b) {
+        if (key1[a] != key1[b]) {
+            return key1[a] < key1[b];
+        }
+        return key2[a] < key2[b];
+    }
+
+    private void insert(int cell) {
+        long key = key(cell);
+        key1[cell] = (int) (key >> 32);
+        key2[cell] = (int) key;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void remove(int cell) {
+        int i = heapIndex[cell];
+        heapIndex[cell] = -1;
+        heapSize--;
+        if (i < heapSize) {
+            int moved = heap[heapSize];
+            heap[i] = moved;
+            heapIndex[moved] = i;
+            siftUp(i);
+            siftDown(heapIndex[moved]);
+        }
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            if (!before(cell, heap[up])) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapIndex[heap[i]] = i;
+            i = up;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], cell)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+}
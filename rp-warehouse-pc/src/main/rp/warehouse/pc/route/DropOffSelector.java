@@ -0,0 +1,97 @@
+package rp.warehouse.pc.route;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.data.DistanceOracle;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.robot.Robot;
+import rp.warehouse.pc.data.robot.utils.Status;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks which drop-off point a robot should go to. Each drop-off costs the distance to it, plus the time the robot
+ * can expect to wait behind robots already heading to or dropping off at it.
+ *
+ * @author agent
+ */
+public class DropOffSelector {
+
+    private static final Logger logger = Logger.getLogger(DropOffSelector.class);
+
+    private final List<Location> dropOffs;
+    private final DistanceOracle distances;
+    private final int serviceTime;
+    // Drop-off each robot was last sent to
+    private final Map<Robot, Location> assigned = new IdentityHashMap<>();
+
+    /**
+     * @param dropOffs    the drop-off points of the warehouse
+     * @param distances   the travel distances around the warehouse
+     * @param serviceTime roughly how many moves' worth of time it takes to unload a robot
+     */
+    public DropOffSelector(List<Location> dropOffs, DistanceOracle distances, int serviceTime) {
+        if (dropOffs.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one drop-off point");
+        }
+        this.dropOffs = dropOffs;
+        this.distances = distances;
+        this.serviceTime = serviceTime;
+    }
+
+    /**
+     * Picks the drop-off with the lowest travel plus queueing cost. A robot keeps the drop-off it was already going
+     * to unless another one is strictly cheaper, so it doesn't switch back and forth as it replans.
+     *
+     * @param robot  the robot going to drop off
+     * @param robots every robot in the warehouse
+     * @return the drop-off to go to
+     */
+    public synchronized Location select(Robot robot, List<Robot> robots) {
+        Location from = robot.getLocation();
+        Location current = assigned.get(robot);
+
+        Location best = null;
+        int bestCost = Integer.MAX_VALUE;
+        for (Location dropOff : dropOffs) {
+            int distance = distances.getDistance(from, dropOff);
+            if (distance == DistanceOracle.UNREACHABLE) {
+                continue;
+            }
+
+            int cost = distance + queueLength(dropOff, robot, robots) * serviceTime;
+            if (cost < bestCost || (cost == bestCost && current != null && dropOff.equals(current))) {
+                best = dropOff;
+                bestCost = cost;
+            }
+        }
+
+        if (best == null) {
+            best = dropOffs.get(0);
+        }
+        if (current == null || !best.equals(current)) {
+            logger.debug(robot.getName() + ": Dropping off at " + best + ", cost " + bestCost);
+        }
+        assigned.put(robot, best);
+        return best;
+    }
+
+    /**
+     * @return the number of other robots heading to or waiting at a drop-off
+     */
+    private int queueLength(Location dropOff, Robot robot, List<Robot> robots) {
+        int queue = 0;
+        for (Robot other : robots) {
+            Location otherDropOff = assigned.get(other);
+            if (other == robot || otherDropOff == null || !dropOff.equals(otherDropOff)) {
+                continue;
+            }
+            int status = other.getStatus();
+            if (status == Status.DROPPING_OFF || status == Status.WAITING_FOR_DROPOFF) {
+                queue++;
+            }
+        }
+        return queue;
+    }
+}
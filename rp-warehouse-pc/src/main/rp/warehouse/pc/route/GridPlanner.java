@@ -0,0 +1,306 @@
+package rp.warehouse.pc.route;
+
+import rp.warehouse.pc.data.DistanceOracle;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A* search over the warehouse grid. Every cell is stored as a single int index ({@code y * width + x}) and all of
+ * the search state lives in flat arrays that are reused between plans, so planning does not allocate per node and
+ * does not recurse.
+ * <p>
+ * The open list is an indexed binary heap ordered by f-cost, then by heuristic, then by the order cells were added.
+ * Given the warehouse distances the heuristic is exact, so with nothing in the way only the cells of the path are
+ * expanded.
+ *
+ * @author agent
+ */
+public class GridPlanner {
+
+    /**
+     * Used to ask whether a cell is occupied at a given tick into the plan, normally by another robot
+     */
+    public interface Occupancy {
+        /**
+         * @param cell cell index
+         * @param tick number of steps into the plan
+         * @return true if the cell cannot be entered at this tick
+         */
+        boolean isOccupied(int cell, int tick);
+    }
+
+    /**
+     * Occupancy used when nothing else is moving around the warehouse
+     */
+    public static final Occupancy EMPTY = (cell, tick) -> false;
+
+    private final int width;
+    private final int height;
+    private final BitSet blocked;
+    private final DistanceOracle distances;
+    private boolean exact;
+
+    // Search state, indexed by cell
+    private final int[] g;
+    private final int[] h;
+    private final int[] order;
+    private final int[] parent;
+    private final int[] openStamp;
+    private final int[] closedStamp;
+    private final int[] heapIndex;
+    private final int[] heap;
+    private int heapSize;
+    private int search = 0;
+    private int counter;
+
+    /**
+     * Creates a planner for a grid of a given size
+     *
+     * @param width   number of columns
+     * @param height  number of rows
+     * @param blocked cells that can never be entered, indexed by {@code y * width + x}
+     */
+    public GridPlanner(int width, int height, BitSet blocked) {
+        this(width, height, blocked, null);
+    }
+
+    /**
+     * Creates a planner for a grid of a given size, using the true distances around the grid as the heuristic
+     *
+     * @param width     number of columns
+     * @param height    number of rows
+     * @param blocked   cells that can never be entered, indexed by {@code y * width + x}
+     * @param distances distances between cells of the same grid, or null to use the Manhattan distance
+     */
+    public GridPlanner(int width, int height, BitSet blocked, DistanceOracle distances) {
+        this.width = width;
+        this.height = height;
+        this.blocked = blocked;
+        this.distances = distances;
+
+        int cells = width * height;
+        g = new int[cells];
+        h = new int[cells];
+        order = new int[cells];
+        parent = new int[cells];
+        openStamp = new int[cells];
+        closedStamp = new int[cells];
+        heapIndex = new int[cells];
+        heap = new int[cells];
+    }
+
+    /**
+     * Finds the shortest path between two cells.
+     * <p>
+     * If the goal is occupied when the search reaches it, the path stops next to the goal. If the goal cannot be
+     * reached at all, the path only contains the start.
+     *
+     * @param start     starting cell
+     * @param goal      goal cell
+     * @param occupancy cells temporarily occupied by other robots
+     * @return the cells of the path in order, including the start
+     */
+    public int[] plan(int start, int goal, Occupancy occupancy) {
+        newSearch();
+
+        // Shelves around the goal mean the search would stop next to it, so only use exact distances to free cells
+        exact = distances != null && !blocked.get(goal) && !blocked.get(start);
+        if (exact && distances.getDistance(start, goal) == DistanceOracle.UNREACHABLE) {
+            return new int[]{start};
+        }
+
+        open(start, 0, -1, goal);
+
+        while (heapSize > 0) {
+            int current = pop();
+            closedStamp[current] = search;
+
+            if (current == goal) {
+                return path(current);
+            }
+
+            int x = current % width;
+            int y = current / width;
+            int tick = g[current] + 1;
+
+            // Same neighbour order as the old planner: north, east, south, west
+            if (y + 1 < height && expand(current, current + width, tick, goal, occupancy)) {
+                return path(current);
+            }
+            if (x + 1 < width && expand(current, current + 1, tick, goal, occupancy)) {
+                return path(current);
+            }
+            if (y > 0 && expand(current, current - width, tick, goal, occupancy)) {
+                return path(current);
+            }
+            if (x > 0 && expand(current, current - 1, tick, goal, occupancy)) {
+                return path(current);
+            }
+        }
+
+        return new int[]{start};
+    }
+
+    /**
+     * Looks at one neighbour of the cell being expanded
+     *
+     * @return true if the neighbour is the goal and it is occupied, meaning the search should stop here
+     */
+    private boolean expand(int current, int next, int tick, int goal, Occupancy occupancy) {
+        if (closedStamp[next] == search) {
+            return false;
+        }
+
+        if (blocked.get(next) || occupancy.isOccupied(next, tick)) {
+            return next == goal;
+        }
+
+        if (openStamp[next] != search) {
+            open(next, tick, current, goal);
+        } else if (tick < g[next]) {
+            g[next] = tick;
+            parent[next] = current;
+            siftUp(heapIndex[next]);
+        }
+        return false;
+    }
+
+    private void open(int cell, int cost, int from, int goal) {
+        openStamp[cell] = search;
+        g[cell] = cost;
+        h[cell] = exact ? distances.getDistance(cell, goal)
+                : Math.abs(cell % width - goal % width) + Math.abs(cell / width - goal / width);
+        order[cell] = counter++;
+        parent[cell] = from;
+
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int[] path(int end) {
+        int length = 0;
+        for (int cell = end; cell != -1; cell = parent[cell]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        for (int cell = end; cell != -1; cell = parent[cell]) {
+            path[--length] = cell;
+        }
+        return path;
+    }
+
+    /**
+     * Starts a new search. Stamps are compared against the search number so the arrays never need clearing.
+     */
+    private void newSearch() {
+        heapSize = 0;
+        counter = 0;
+        if (++search == Integer.MAX_VALUE) {
+            search = 1;
+            Arrays.fill(openStamp, 0);
+            Arrays.fill(closedStamp, 0);
+        }
+    }
+
+    // Heap
+
+    private boolean before(int a, int b) {
+        int fa = g[a] + h[a];
+        int fb = g[b] + h[b];
+        if (fa != fb) {
+            return fa < fb;
+        }
+        if (h[a] != h[b]) {
+            return h[a] < h[b];
+        }
+        return order[a] < order[b];
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            if (!before(cell, heap[up])) {
+                break;
+            }
+            heap[i] = heap[up];
+            heapIndex[heap[i]] = i;
+            i = up;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], cell)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    // Cell helpers
+
+    /**
+     * @return the cell index of a co-ordinate
+     */
+    public int cell(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * @return the x co-ordinate of a cell
+     */
+    public int getX(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * @return the y co-ordinate of a cell
+     */
+    public int getY(int cell) {
+        return cell / width;
+    }
+
+    /**
+     * @return true if the co-ordinate is inside the grid
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,174 @@
+package rp.warehouse.pc.route;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Space-time reservation table shared by all robots, used for cooperative planning. Each robot reserves the cells of
+ * its planned path for every tick up to the horizon, and the planner checks other robots' reservations in constant
+ * time through the {@link GridPlanner.Occupancy} interface.
+ * <p>
+ * Ticks are relative to now: tick 0 is where a robot is, tick 1 where it will be after its next move, and so on.
+ * Both ends of every move are reserved for the tick the move happens in, since the robots do not move in lock step.
+ * This also rules out two robots swapping cells, as each will have reserved the other's cell. Once a path ends the
+ * robot is assumed to stay at its last cell until the horizon.
+ *
+ * @author agent
+ */
+public class ReservationTable implements GridPlanner.Occupancy {
+
+    private final int cells;
+    private final int horizon;
+    // Number of reservations for each (tick, cell), indexed by tick * cells + cell
+    private final int[] reservations;
+    // Per robot: the planned path, the cell it has just left and the slots it currently holds
+    private int[][] paths = new int[0][];
+    private int[] previous = new int[0];
+    private int[][] slots = new int[0][];
+    private int[] slotCount = new int[0];
+
+    /**
+     * Creates an empty table
+     *
+     * @param cells   number of cells in the grid
+     * @param horizon number of ticks into the future that reservations are kept for
+     */
+    public ReservationTable(int cells, int horizon) {
+        if (horizon < 1) {
+            throw new IllegalArgumentException("Horizon must be at least one tick, was " + horizon);
+        }
+        this.cells = cells;
+        this.horizon = horizon;
+        this.reservations = new int[(horizon + 1) * cells];
+    }
+
+    /**
+     * Adds a robot to the table, standing still at a cell
+     *
+     * @param cell where the robot is
+     * @return the ID used for this robot in the table
+     */
+    public synchronized int add(int cell) {
+        int id = paths.length;
+        paths = Arrays.copyOf(paths, id + 1);
+        previous = Arrays.copyOf(previous, id + 1);
+        slots = Arrays.copyOf(slots, id + 1);
+        slotCount = Arrays.copyOf(slotCount, id + 1);
+
+        slots[id] = new int[2 * (horizon + 1) + 2];
+        previous[id] = -1;
+        commit(id, new int[]{cell});
+        return id;
+    }
+
+    /**
+     * Removes the reservations of a robot so it can plan without getting in its own way. Should be followed by
+     * {@link #commit(int, int[])} while holding the table's lock so other robots never see a half-planned state.
+     *
+     * @param id robot ID
+     */
+    public synchronized void release(int id) {
+        for (int i = 0; i < slotCount[id]; i++) {
+            reservations[slots[id][i]]--;
+        }
+        slotCount[id] = 0;
+    }
+
+    /**
+     * Replaces the reservations of a robot with a new path
+     *
+     * @param id   robot ID
+     * @param path cells of the path, starting where the robot is now
+     */
+    public synchronized void commit(int id, int[] path) {
+        release(id);
+        paths[id] = path;
+        reserve(id);
+    }
+
+    /**
+     * Moves a robot one step along its path, keeping the cell it left reserved while it drives out of it
+     *
+     * @param id robot ID
+     */
+    public synchronized void advance(int id) {
+        int[] path = paths[id];
+        release(id);
+        if (path.length > 1) {
+            previous[id] = path[0];
+            paths[id] = Arrays.copyOfRange(path, 1, path.length);
+        }
+        reserve(id);
+        previous[id] = -1;
+    }
+
+    private void reserve(int id) {
+        int[] path = paths[id];
+        if (previous[id] >= 0) {
+            hold(id, previous[id], 0);
+            hold(id, previous[id], 1);
+        }
+
+        int last = path[0];
+        hold(id, last, 0);
+        for (int tick = 1; tick <= horizon; tick++) {
+            int cell = path[Math.min(tick, path.length - 1)];
+            hold(id, cell, tick);
+            if (cell != last) {
+                hold(id, last, tick);
+            }
+            last = cell;
+        }
+    }
+
+    private void hold(int id, int cell, int tick) {
+        int slot = tick * cells + cell;
+        reservations[slot]++;
+        if (slotCount[id] == slots[id].length) {
+            slots[id] = Arrays.copyOf(slots[id], slots[id].length * 2);
+        }
+        slots[id][slotCount[id]++] = slot;
+    }
+
+    /**
+     * Checks if any robot has reserved a cell. Anything past the horizon is treated as free.
+     *
+     * @param cell cell index
+     * @param tick number of ticks from now
+     * @return true if the cell is reserved at that tick
+     */
+    @Override
+    public synchronized boolean isOccupied(int cell, int tick) {
+        return tick <= horizon && reservations[tick * cells + cell] > 0;
+    }
+
+    /**
+     * Marks every cell reserved at a tick
+     *
+     * @param tick  number of ticks from now
+     * @param cells set to add the reserved cells to
+     */
+    public synchronized void getOccupied(int tick, BitSet cells) {
+        if (tick > horizon) {
+            return;
+        }
+        int offset = tick * this.cells;
+        for (int cell = 0; cell < this.cells; cell++) {
+            if (reservations[offset + cell] > 0) {
+                cells.set(cell);
+            }
+        }
+    }
+
+    /**
+     * @param id robot ID
+     * @return where the robot is currently planned to be at each tick
+     */
+    public synchronized int[] getPath(int id) {
+        return paths[id];
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+}
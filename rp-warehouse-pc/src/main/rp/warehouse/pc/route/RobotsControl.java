@@ -1,9 +1,16 @@
 package rp.warehouse.pc.route;
 
 import org.apache.log4j.Logger;
+import rp.warehouse.pc.assignment.AssignmentService;
 import rp.warehouse.pc.assignment.Auctioner;
+import rp.warehouse.pc.assignment.TSP;
+import rp.warehouse.pc.assignment.TourImprover;
 import rp.warehouse.pc.communication.Communication;
+import rp.warehouse.pc.communication.EventLoop;
+import rp.warehouse.pc.communication.MemoryTransport;
+import rp.warehouse.pc.communication.SimulatedNXT;
 import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
 import rp.warehouse.pc.data.robot.Robot;
 import rp.warehouse.pc.data.robot.utils.RobotLocation;
 import rp.warehouse.pc.input.Job;
@@ -12,6 +19,7 @@ import rp.warehouse.pc.localisation.implementation.Localiser;
 import rp.warehouse.pc.management.LoadingView;
 import rp.warehouse.pc.management.LocalisationView;
 import rp.warehouse.pc.management.MainView;
+import rp.warehouse.pc.simulation.WarehouseSimulator;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -29,6 +37,9 @@ import java.util.concurrent.Executors;
  * <p>
  * Warehouse MI     - Can use this class to get Robot classes to get all the
  * required data
+ * <p>
+ * Every robot and its connection is run on one {@link EventLoop}, so the number of threads doesn't grow with the
+ * number of robots.
  *
  * @author roman
  */
@@ -42,6 +53,9 @@ public class RobotsControl {
             new RobotLocation(11, 7, 3), new RobotLocation(0, 7, 3)};
     private static final Logger logger = Logger.getLogger(RobotsControl.class);
     private static List<Queue<Task>> listOfItems;
+    private static AssignmentService assignments;
+    // Time spent shortening the assigned orders, in milliseconds
+    private static final long IMPROVEMENT_TIME = 2000;
 
     /**
      * <p>
@@ -56,7 +70,10 @@ public class RobotsControl {
 
         logger.debug("Starting Robot Creation");
 
-        ExecutorService pool = Executors.newFixedThreadPool(robotNames.length * 2);
+        EventLoop loop = startLoop();
+        if (loop == null) {
+            return;
+        }
 
         List<RobotLocation> locations = new ArrayList<>();
 
@@ -65,7 +82,8 @@ public class RobotsControl {
             try {
                 Communication communication = new Communication(robotIDs[i], robotNames[i]);
                 communications.add(communication);
-                pool.execute(communication);
+                // Localising waits for ranges from this thread while the loop reads them
+                loop.add(communication, null);
 
                 LoadingView.finishedLoading();
 
@@ -93,21 +111,94 @@ public class RobotsControl {
             }
         }
 
+        start(jobs, communications, robotIDs, robotNames, locations, loop);
+    }
+
+    /**
+     * Runs the warehouse with simulated robots instead of real ones, for trying out the PC side on its own. The
+     * robots start on free cells spread across the warehouse, facing north, so don't need localising.
+     *
+     * @param jobs     the jobs, in order
+     * @param count    number of robots
+     * @param moveTime how long each simulated move takes, in milliseconds
+     */
+    public static void simulate(List<Job> jobs, int count, long moveTime) {
+        logger.debug("Starting " + count + " simulated robots");
+
+        EventLoop loop = startLoop();
+        if (loop == null) {
+            return;
+        }
+        // Each simulated NXT still reads and moves on threads of its own, as a real one would be its own brick
+        ExecutorService pool = Executors.newCachedThreadPool();
+
+        List<RobotLocation> starts = WarehouseSimulator.getStarts(count);
+        List<RobotLocation> locations = new ArrayList<>();
+        List<Communication> communications = new ArrayList<>();
+        String[] ids = new String[count];
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            RobotLocation location = starts.get(i);
+            ids[i] = "SIM" + i;
+            names[i] = "Simulated " + i;
+
+            try {
+                MemoryTransport[] transports = MemoryTransport.pair();
+                pool.execute(new SimulatedNXT(transports[1], names[i], location, moveTime));
+                Communication communication = new Communication(transports[0], names[i]);
+                communications.add(communication);
+                locations.add(location);
+            } catch (IOException e) {
+                logger.error("Could not start " + names[i] + ": " + e.getMessage());
+            }
+        }
+
+        LoadingView.finishedLoading();
+        start(jobs, communications, ids, names, locations, loop);
+        pool.shutdown();
+    }
+
+    /**
+     * @return a running event loop, or null if one couldn't be opened
+     */
+    private static EventLoop startLoop() {
+        try {
+            EventLoop loop = new EventLoop();
+            loop.start("Robots");
+            return loop;
+        } catch (IOException e) {
+            logger.fatal("Could not start event loop: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Assigns the jobs and starts the robots once they are connected and localised
+     */
+    private static void start(List<Job> jobs, List<Communication> communications, String[] robotIDs,
+                              String[] robotNames, List<RobotLocation> locations, EventLoop loop) {
         Auctioner auctioner = new Auctioner(jobs, locations);
 
-        listOfItems = auctioner.assign();
+        TSP tsp = new TSP(Warehouse.getDistances(), Warehouse.getDropOffs(), Robot.WEIGHTLIMIT);
+        TourImprover improver = new TourImprover(tsp, IMPROVEMENT_TIME);
+        listOfItems = improver.improve(auctioner.assign(), locations);
+        assignments = new AssignmentService(listOfItems, tsp);
 
         RoutePlan.setRobots(robots);
 
 
-        int i = 0;
         // Create robots
-        for (Queue<Task> items : listOfItems) {
+        for (int i = 0; i < listOfItems.size(); i++) {
             logger.trace("Robot " + i + " is being created");
 
             try {
 
-                Robot newRobot = new Robot(robotIDs[i], robotNames[i], items, communications.get(i), locations.get(i));
+                Robot newRobot = new Robot(robotIDs[i], robotNames[i], assignments.getQueue(i), communications.get(i),
+                        locations.get(i));
+                newRobot.setAssignments(assignments);
+                // A robot that runs out of work waits for more jobs rather than stopping everything
+                final int index = i;
+                newRobot.setOnFinished(() -> assignments.park(index, newRobot::wake));
                 robots.add(newRobot);
 
                 communications.get(i).setRobot(newRobot);
@@ -117,22 +208,31 @@ public class RobotsControl {
             } catch (IOException e) {
                 logger.error("Could not connect to " + robotNames[i]);
             }
-            i++;
         }
 
 
-        // Runs Robot threads
+        // Runs Robots on the loop
         for (Robot robot : robots) {
             //robot.localiseRobot();
-            pool.execute(robot);
+            robot.runOn(loop);
         }
         logger.debug("Array of Robots has been created with " + robots.size() + " robots");
 
         LoadingView.finishedLoading();
         new MainView(robots);
+    }
 
-        // Shut down the pool to prevent new threads being created, and allow the program to end
-        pool.shutdown();
+    /**
+     * Assigns jobs that came in after the robots started, waking any robots that had run out of work
+     *
+     * @param jobs the new jobs, in order
+     */
+    public static void addJobs(List<Job> jobs) {
+        List<RobotLocation> locations = new ArrayList<>();
+        for (Robot robot : robots) {
+            locations.add(robot.getLocation());
+        }
+        assignments.addJobs(jobs, locations);
     }
 }
 //
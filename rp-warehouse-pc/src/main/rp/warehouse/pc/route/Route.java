@@ -6,61 +6,97 @@ import rp.warehouse.pc.data.Location;
 import rp.warehouse.pc.data.robot.Robot;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.NoSuchElementException;
 
 /**
  * This class exists to help route planning, by storing the locations along with the instructions, we can save
  * computation when planning
+ * <p>
+ * Locations are packed as {@code x << 16 | y} into an int array and instructions are kept in a byte array. Neither
+ * array is changed once the route is made, only the position of the next step moves, so copies and snapshots share
+ * the arrays and reading a route never allocates.
  * @author dxj786
  */
 public class Route implements Iterable<Integer> {
     private static final Logger logger = Logger.getLogger(Route.class);
-    private final LinkedList<Location> locations;
-    private final Queue<Integer> route;
+    // Number of moves given to a robot before it plans again
+    static final int MOVES = 2;
+
+    private final int[] locations;
+    private final byte[] route;
+    private final boolean readOnly;
+    private int head = 0;
 
     /**
      * Creates a route from a given route
      * @param route route to copy
      */
     public Route(Route route) {
-        locations = new LinkedList<>(route.locations);
-        this.route = new LinkedList<>(route.route);
+        this(route, false);
+    }
+
+    private Route(Route route, boolean readOnly) {
+        this.locations = route.locations;
+        this.route = route.route;
+        this.head = route.head;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates a route from a planned path
+     * @param path locations of the path, starting with the robot's location
+     * @param pickup whether the route is a pickup or a dropoff
+     * @param goal the intended goal location
+     */
+    Route(List<Location> path, boolean pickup, Location goal) {
+        this(pack(path), pickup, pack(goal.getX(), goal.getY()));
     }
 
     /**
-     * Creates a route from a list of nodes
-     * @param nodes nodes to create the route
+     * Creates a route from a planned path
+     * @param path packed locations of the path, starting with the robot's location
      * @param pickup whether the route is a pickup or a dropoff
-     * @param goalNode the intended goal node
+     * @param goal the packed goal location
      */
-    Route(List<Node> nodes, boolean pickup, Node goalNode) {
-        // Add locations into linkedlist, limiting to 3 steps
-        locations = new LinkedList<>();
-        nodes.stream().limit(3).forEach((n) -> locations.add(n.toLocation()));
+    Route(int[] path, boolean pickup, int goal) {
+        readOnly = false;
 
-        route = new LinkedList<>();
+        // Keep the locations, limiting to 3 steps
+        int count = Math.min(path.length, MOVES + 1);
+        locations = new int[count];
+        System.arraycopy(path, 0, locations, 0, count);
 
-        // Create list of directions from the nodes
-        for (int i = 1; i < nodes.size() && i < 3; i++) {
-            Node prev = nodes.get(i - 1);
-            Node curr = nodes.get(i);
+        byte[] steps = new byte[MOVES + 1];
+        int size = 0;
 
-            if (prev.getX() == curr.getX() - 1) {
-                route.add(Protocol.EAST);
+        // Create list of directions from the path
+        boolean waits = false;
+        for (int i = 1; i < count; i++) {
+            int prev = path[i - 1];
+            int curr = path[i];
+
+            // Planned to wait a tick for another robot, replan afterwards
+            if (prev == curr) {
+                steps[size++] = Protocol.WAITING;
+                waits = true;
+                break;
+            }
+
+            if (unpackX(prev) == unpackX(curr) - 1) {
+                steps[size++] = Protocol.EAST;
             }
 
-            if (prev.getX() == curr.getX() + 1) {
-                route.add(Protocol.WEST);
+            if (unpackX(prev) == unpackX(curr) + 1) {
+                steps[size++] = Protocol.WEST;
             }
 
-            if (prev.getY() == curr.getY() + 1) {
-                route.add(Protocol.SOUTH);
+            if (unpackY(prev) == unpackY(curr) + 1) {
+                steps[size++] = Protocol.SOUTH;
             }
 
-            if (prev.getY() == curr.getY() - 1) {
-                route.add(Protocol.NORTH);
+            if (unpackY(prev) == unpackY(curr) - 1) {
+                steps[size++] = Protocol.NORTH;
             }
 
         }
@@ -68,34 +104,80 @@ public class Route implements Iterable<Integer> {
         /* If the route is small enough, check that we have the dropoff, if we did, add pickup or dropoff to the route,
            if not, make the robot wait as we will be next to a location currently occupied by a different robot
          */
-        if (nodes.size() < 3) {
-            if (!nodes.get(nodes.size() - 1).equals(goalNode)) {
-                route.add(Protocol.WAITING);
+        if (!waits && path.length <= MOVES) {
+            if (path[path.length - 1] != goal) {
+                steps[size++] = Protocol.WAITING;
             } else {
-                route.add(pickup ? Protocol.PICKUP : Protocol.DROPOFF);
+                steps[size++] = (byte) (pickup ? Protocol.PICKUP : Protocol.DROPOFF);
             }
         }
 
+        route = new byte[size];
+        System.arraycopy(steps, 0, route, 0, size);
+
         // Logging
-        StringBuilder routeString = new StringBuilder();
-        routeString.append("[ ");
-        for (int i : route) {
-            routeString.append(Robot.getDirectionString(i)).append(", ");
+        if (logger.isDebugEnabled()) {
+            StringBuilder routeString = new StringBuilder();
+            routeString.append("[ ");
+            for (byte i : route) {
+                routeString.append(Robot.getDirectionString(i)).append(", ");
+            }
+            routeString.append("]");
+            logger.debug(routeString.toString());
+            logger.debug(locationString());
+        }
+    }
+
+    /**
+     * Packs a location into an int
+     * @param x x co-ordinate
+     * @param y y co-ordinate
+     * @return {@code x << 16 | y}
+     */
+    static int pack(int x, int y) {
+        return x << 16 | (y & 0xFFFF);
+    }
+
+    private static int[] pack(List<Location> path) {
+        int[] packed = new int[path.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = pack(path.get(i).getX(), path.get(i).getY());
         }
-        routeString.append("]");
-        logger.debug(routeString.toString());
-        logger.debug(locations.toString());
+        return packed;
+    }
+
+    private static int unpackX(int packed) {
+        return packed >> 16;
+    }
+
+    private static int unpackY(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * A read only view of the route as it is now. Shares the arrays of this route, so is cheap to make, and does not
+     * change as this route is polled.
+     * @return snapshot of the route
+     * @see #poll()
+     */
+    public Route snapshot() {
+        return new Route(this, true);
     }
 
     /**
      * get the first instruction, and remove it
      * @return the first instruction in the route
      * @throws NullPointerException No more elements
-     * @see LinkedList#poll()
+     * @throws UnsupportedOperationException if this is a snapshot
      */
     public int poll() throws NullPointerException {
-        locations.poll();
-        return route.poll();
+        if (readOnly) {
+            throw new UnsupportedOperationException("Route snapshots cannot be polled");
+        }
+        if (head >= route.length) {
+            throw new NullPointerException("No more instructions in the route");
+        }
+        return route[head++];
     }
 
     /**
@@ -103,26 +185,68 @@ public class Route implements Iterable<Integer> {
      * @return size of the route
      */
     public int size() {
-        return route.size();
+        return route.length - head;
+    }
+
+    /**
+     * Gets an instruction without removing it
+     * @param i number of instructions from the front of the route
+     * @return the instruction
+     * @throws IndexOutOfBoundsException if there aren't that many instructions left
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+        }
+        return route[head + i];
     }
 
     /**
      * Gets the location this plan expects the robot to be at a certain arbitrary 'tick' of time
      * @param i number of ticks into the plan
      * @return Planned location
-     * @see LinkedList#get(int)
+     * @throws IndexOutOfBoundsException if the plan doesn't go that far
      */
     public Location getLocation(int i) {
-        return locations.get(i);
+        int packed = getPacked(i);
+        return new Location(unpackX(packed), unpackY(packed));
+    }
+
+    /**
+     * Gets the x co-ordinate the plan expects the robot to be at a certain 'tick' of time, without allocating
+     * @param i number of ticks into the plan
+     * @return Planned x co-ordinate
+     */
+    public int getX(int i) {
+        return unpackX(getPacked(i));
+    }
+
+    /**
+     * Gets the y co-ordinate the plan expects the robot to be at a certain 'tick' of time, without allocating
+     * @param i number of ticks into the plan
+     * @return Planned y co-ordinate
+     */
+    public int getY(int i) {
+        return unpackY(getPacked(i));
+    }
+
+    private int getPacked(int i) {
+        if (i < 0 || head + i >= locations.length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + Math.max(0, locations.length - head));
+        }
+        return locations[head + i];
     }
 
     /**
      * get the first instruction, but don't remove it
      * @return First instruction of the route
-     * @see LinkedList#peek()
+     * @throws NullPointerException No more elements
      */
     public int peek() {
-        return route.peek();
+        if (head >= route.length) {
+            throw new NullPointerException("No more instructions in the route");
+        }
+        return route[head];
     }
 
     /**
@@ -130,21 +254,54 @@ public class Route implements Iterable<Integer> {
      * @return true if there are no more steps
      */
     public boolean isEmpty() {
-        return route.isEmpty();
+        return head >= route.length;
+    }
+
+    private String locationString() {
+        StringBuilder s = new StringBuilder("[");
+        for (int i = head; i < locations.length; i++) {
+            if (i > head) {
+                s.append(", ");
+            }
+            s.append(new Location(unpackX(locations[i]), unpackY(locations[i])));
+        }
+        return s.append("]").toString();
     }
 
     @Override
     public String toString() {
-        return locations.toString() + "\n" + route.toString();
+        StringBuilder s = new StringBuilder(locationString()).append("\n[");
+        for (int i = head; i < route.length; i++) {
+            if (i > head) {
+                s.append(", ");
+            }
+            s.append(route[i]);
+        }
+        return s.append("]").toString();
     }
 
     /**
-     * Iterator over the route steps
+     * Iterator over the route steps. Use {@link #get(int)} and {@link #size()} to avoid allocating.
      * @return iterator over the directions
-     * @see LinkedList#iterator()
      */
     @Override
     public Iterator<Integer> iterator() {
-        return route.iterator();
+        final int start = head;
+        return new Iterator<Integer>() {
+            private int next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next < route.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (int) route[next++];
+            }
+        };
     }
 }
@@ -0,0 +1,117 @@
+package rp.warehouse.pc.route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of shortest paths that ignore other robots, keyed on (start, goal).
+ * <p>
+ * Every cell along a cached path is also a start for the rest of that path, so a robot that replans towards the same
+ * goal a few moves later finds its path in the cache. Entries only hold on to the path they came from, so
+ * caching a path of n cells costs n small entries and one array.
+ *
+ * @author agent
+ */
+public class RouteCache {
+
+    private final int cells;
+    private final Map<Long, Entry> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param cells    number of cells in the grid
+     * @param capacity most (start, goal) pairs to keep before dropping the least recently used
+     */
+    public RouteCache(int cells, final int capacity) {
+        this.cells = cells;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the cached path between two cells
+     *
+     * @param start starting cell
+     * @param goal  goal cell
+     * @return the cells of the path starting with {@code start}, or null if it isn't cached. Must not be changed.
+     */
+    public synchronized int[] get(int start, int goal) {
+        Entry entry = entries.get(key(start, goal));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        if (entry.offset == 0) {
+            return entry.path;
+        }
+        int[] path = new int[entry.path.length - entry.offset];
+        System.arraycopy(entry.path, entry.offset, path, 0, path.length);
+        return path;
+    }
+
+    /**
+     * Caches a path, along with the rest of the path from every cell on it
+     *
+     * @param path cells of the path, which must not be changed afterwards
+     * @param goal the goal the path was planned to, which it may stop short of
+     */
+    public synchronized void put(int[] path, int goal) {
+        // Put the start in last so it is the most recently used
+        for (int i = path.length - 1; i >= 0; i--) {
+            entries.put(key(path[i], goal), new Entry(path, i));
+        }
+    }
+
+    /**
+     * Removes every path, keeping the hit count
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private long key(int start, int goal) {
+        return (long) start * cells + goal;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups that found a path, or 0 if there haven't been any
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * A path and where in it the cached route starts
+     */
+    private static class Entry {
+        private final int[] path;
+        private final int offset;
+
+        private Entry(int[] path, int offset) {
+            this.path = path;
+            this.offset = offset;
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package rp.warehouse.pc.route;
 
-import lejos.geom.Point;
 import org.apache.log4j.Logger;
+import rp.warehouse.pc.communication.Protocol;
 import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
 import rp.warehouse.pc.data.robot.Robot;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * Used to plan the route to the goal location.
  * <p>
  * The route plan commands are sent to route execution as a queue of integers, where different integers represent north, east, south, and west.
+ * <p>
+ * By default each robot is planned on its own around the reservations of the others. With
+ * {@link #setConflictBasedSearch(double, long)} every robot is planned at once using {@link ConflictBasedSearch},
+ * going back to planning on its own whenever that doesn't find a solution in time.
  *
  * @author alihejazi & dxj786
  */
@@ -20,9 +30,29 @@ import java.util.List;
 public class RoutePlan {
 
     private static final Logger logger = Logger.getLogger(RoutePlan.class);
-    private static final Location dropoff = new Location(4, 7);
+    private static int horizon = 8;
+    private static WarehouseLayout layout;
+    private static GridPlanner planner;
+    private static ReservationTable reservations;
+    private static final int CACHE_SIZE = 4096;
+    private static RouteCache cache;
+    // Incremental planner for each robot, by reservation ID
+    private static final List<DStarLite> incremental = new ArrayList<>();
+    // Roughly how many moves' worth of time it takes to unload a robot
+    private static final int DROPOFF_TIME = 10;
+    private static DropOffSelector dropOffs;
+    private static final Map<Robot, Integer> reservationIDs = new IdentityHashMap<>();
     private static List<Robot> robotsList = new ArrayList<>();
 
+    // Conflict-based search, null when planning greedily
+    private static boolean conflictBased = false;
+    private static double suboptimality = 1.5;
+    private static long budget = 50;
+    private static ConflictBasedSearch solver;
+    private static final Map<Robot, Integer> goals = new IdentityHashMap<>();
+    // Robots whose reserved path came from the last conflict-based solution, by reservation ID
+    private static final BitSet solved = new BitSet();
+
     /**
      * A static method returning a queue of integers, representing commands for route execution to understand
      *
@@ -35,20 +65,195 @@ public class RoutePlan {
     }
 
     private static Route planRoute(Robot robot, Location goalLocation, boolean pickup) {
-        Node start = new Node(robot.getLocation().getX(), robot.getLocation().getY(), robot);
-        Node end = new Node(goalLocation.getX(), goalLocation.getY(), robot);
+        updatePlanner();
+        int id = getReservationID(robot);
+
+        Location location = robot.getLocation();
+        int start = planner.cell(location.getX(), location.getY());
+        int goal = planner.cell(goalLocation.getX(), goalLocation.getY());
+        goals.put(robot, goal);
+
+        if (conflictBased) {
+            int[] cells = planTogether(robot, id, start, goal);
+            if (cells != null) {
+                return toRoute(cells, pickup, goalLocation);
+            }
+            solved.clear();
+        }
+
+        // Plan against everyone else's reservations, then reserve the new path in one go
+        reservations.release(id);
+        int[] cells = cachedPlan(start, goal);
+        if (cells == null) {
+            cells = incrementalPlan(id, start, goal);
+        }
+        if (cells == null) {
+            cells = planner.plan(start, goal, reservations);
+        }
+        reservations.commit(id, cells);
+
+        return toRoute(cells, pickup, goalLocation);
+    }
+
+    /**
+     * Looks up the shortest path ignoring other robots, and checks it against everyone else's reservations.
+     *
+     * @return the cells of the path, or null if another robot gets in the way too soon and a search is needed
+     */
+    private static int[] cachedPlan(int start, int goal) {
+        int[] path = cache.get(start, goal);
+        if (path == null) {
+            path = planner.plan(start, goal, GridPlanner.EMPTY);
+            cache.put(path, goal);
+        }
+
+        return repair(path);
+    }
+
+    /**
+     * Plans with the robot's own incremental planner, which treats any cell another robot has reserved over the
+     * next few moves as blocked, so most replans only change a little of its last search.
+     *
+     * @return the cells of the path, or null if another robot still gets in the way too soon
+     */
+    private static int[] incrementalPlan(int id, int start, int goal) {
+        while (incremental.size() <= id) {
+            incremental.add(new DStarLite(planner.getWidth(), planner.getHeight(), layout.getBlocked()));
+        }
+
+        BitSet occupied = new BitSet();
+        for (int tick = 1; tick <= Route.MOVES; tick++) {
+            reservations.getOccupied(tick, occupied);
+        }
+        return repair(incremental.get(id).plan(start, goal, occupied));
+    }
+
+    /**
+     * Checks a path against everyone else's reservations. If another robot gets in the way after the moves the
+     * robot will be given, the path is cut short there and looked at again when the robot next plans.
+     *
+     * @return the cells of the path, or null if another robot gets in the way too soon
+     */
+    private static int[] repair(int[] path) {
+        for (int tick = 1; tick < path.length && tick <= reservations.getHorizon(); tick++) {
+            if (reservations.isOccupied(path[tick], tick)) {
+                return tick > Route.MOVES ? Arrays.copyOf(path, tick) : null;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Plans all robots at once, or reuses the last solution if it still takes this robot to its goal
+     *
+     * @return the cells of the path of the planning robot, or null if there was no solution in time
+     */
+    private static int[] planTogether(Robot robot, int id, int start, int goal) {
+        int[] current = reservations.getPath(id);
+        if (solved.get(id) && current[0] == start && current[current.length - 1] == goal) {
+            return current;
+        }
+
+        // The planning robot goes first so it keeps its goal if another robot is heading to the same place
+        List<Robot> agents = new ArrayList<>();
+        agents.add(robot);
+        for (Robot other : robotsList) {
+            if (other != robot) {
+                agents.add(other);
+            }
+        }
+
+        int[][] prefixes = new int[agents.size()][];
+        int[] agentGoals = new int[agents.size()];
+        BitSet claimed = new BitSet();
+        for (int i = 0; i < agents.size(); i++) {
+            Robot agent = agents.get(i);
+            int[] path = reservations.getPath(reservationIDs.get(agent));
+
+            if (agent == robot) {
+                prefixes[i] = new int[]{start};
+                agentGoals[i] = goal;
+            } else {
+                // Moves already sent to a robot can't be taken back
+                prefixes[i] = Arrays.copyOf(path, Math.min(path.length, remainingMoves(agent) + 1));
+                Integer agentGoal = goals.get(agent);
+                agentGoals[i] = agent.isInTransit() && agentGoal != null ? agentGoal : -1;
+            }
+
+            if (agentGoals[i] != -1 && claimed.get(agentGoals[i])) {
+                agentGoals[i] = -1;
+            } else if (agentGoals[i] != -1) {
+                claimed.set(agentGoals[i]);
+            }
+        }
+
+        int[][] paths = solver.solve(prefixes, agentGoals);
+        if (paths == null) {
+            logger.debug("No conflict-free plan in time, planning on its own");
+            return null;
+        }
 
-        return start.plan(start, end, pickup);
+        solved.clear();
+        for (int i = 0; i < agents.size(); i++) {
+            int agentID = reservationIDs.get(agents.get(i));
+            reservations.commit(agentID, paths[i]);
+            if (agentGoals[i] != -1) {
+                solved.set(agentID);
+            }
+        }
+        return paths[0];
     }
 
     /**
-     * A method to return a queue of integers (commands) on how to reach the next drop off point.
+     * @return the number of moves a robot has been given but not made yet, including the ones it is making
+     */
+    private static int remainingMoves(Robot robot) {
+        Route route = robot.getRoute();
+        int moves = robot.getMovesInFlight();
+        if (route != null) {
+            for (int i = 0; i < route.size(); i++) {
+                int instruction = route.get(i);
+                if (instruction >= Protocol.NORTH && instruction <= Protocol.WEST) {
+                    moves++;
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static Route toRoute(int[] cells, boolean pickup, Location goalLocation) {
+        int[] path = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            path[i] = Route.pack(planner.getX(cells[i]), planner.getY(cells[i]));
+        }
+
+        return new Route(path, pickup, Route.pack(goalLocation.getX(), goalLocation.getY()));
+    }
+
+    /**
+     * A method to return a queue of integers (commands) on how to reach the next drop off point. If the warehouse
+     * has more than one, the one with the lowest travel and queueing cost is used.
      *
      * @param robot The robot is passed so that we know its current location, in order to plan the route for the next drop off point
      * @return we return 'plan' - a queue of integer route instructions for RouteExecution to understand
      */
     public synchronized static Route planDropOff(Robot robot) {
-        return planRoute(robot, dropoff, false);
+        updatePlanner();
+        return planRoute(robot, dropOffs.select(robot, robotsList), false);
+    }
+
+    /**
+     * Tells the planner that a robot has finished the next move of its route, so its reservations move along with
+     * it. Called once the NXT says the move is done, not when it is sent, so the cells the robot is still driving
+     * through stay reserved.
+     *
+     * @param robot the robot that moved
+     */
+    public synchronized static void moved(Robot robot) {
+        Integer id = reservationIDs.get(robot);
+        if (id != null && reservations != null) {
+            reservations.advance(id);
+        }
     }
 
     /**
@@ -56,8 +261,134 @@ public class RoutePlan {
      *
      * @param robots the list of robots to be added
      */
-    public static void setRobots(List<Robot> robots) {
-        Node.setRobots(robots);
+    public synchronized static void setRobots(List<Robot> robots) {
+        robotsList = robots;
+        resetReservations();
+    }
+
+    /**
+     * @return the robots currently on the floor
+     */
+    public synchronized static List<Robot> getRobots() {
+        return robotsList;
+    }
+
+    /**
+     * Takes a robot off the floor, so other robots can plan through where it was standing
+     *
+     * @param robot the robot that has stopped
+     */
+    public synchronized static void removeRobot(Robot robot) {
+        List<Robot> remaining = new ArrayList<>(robotsList);
+        remaining.remove(robot);
+        robotsList = remaining;
+
+        Integer id = reservationIDs.get(robot);
+        if (id != null && reservations != null) {
+            reservations.release(id);
+            solved.clear(id);
+        }
+        goals.remove(robot);
+    }
+
+    /**
+     * Sets how many ticks ahead robots plan around each other. Clears all current reservations.
+     *
+     * @param ticks number of ticks
+     */
+    public synchronized static void setHorizon(int ticks) {
+        horizon = ticks;
+        resetReservations();
+    }
+
+    /**
+     * @return the fraction of plans that found the path in the route cache
+     */
+    public synchronized static double getCacheHitRate() {
+        return cache == null ? 0 : cache.getHitRate();
+    }
+
+    /**
+     * Plans every robot at once with conflict-based search, falling back to planning each robot on its own if no
+     * solution is found in time
+     *
+     * @param factor       how much longer than the best solution the total path length may be, at least 1
+     * @param budgetMillis how long to search for, in milliseconds
+     */
+    public synchronized static void setConflictBasedSearch(double factor, long budgetMillis) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Suboptimality factor must be at least 1, was " + factor);
+        }
+        conflictBased = true;
+        suboptimality = factor;
+        budget = budgetMillis;
+        solver = null;
+        solved.clear();
+    }
+
+    /**
+     * Goes back to planning each robot on its own around the others
+     */
+    public synchronized static void setGreedy() {
+        conflictBased = false;
+        solver = null;
+        solved.clear();
+    }
+
+    /**
+     * Gets the ID of a robot in the reservation table, adding it and any other new robots where they currently are
+     *
+     * @param robot the robot being planned for
+     * @return the robot's ID in the reservation table
+     */
+    private static int getReservationID(Robot robot) {
+        if (reservations == null) {
+            reservations = new ReservationTable(planner.getWidth() * planner.getHeight(), horizon);
+        }
+
+        for (Robot other : robotsList) {
+            reserve(other);
+        }
+        return reserve(robot);
+    }
+
+    private static int reserve(Robot robot) {
+        Integer id = reservationIDs.get(robot);
+        if (id == null) {
+            Location location = robot.getLocation();
+            id = reservations.add(planner.cell(location.getX(), location.getY()));
+            reservationIDs.put(robot, id);
+            logger.trace("Added robot to reservations at " + location);
+        }
+        return id;
+    }
+
+    private static void resetReservations() {
+        reservations = null;
+        reservationIDs.clear();
+        goals.clear();
+        solved.clear();
+        incremental.clear();
+    }
+
+    /**
+     * Creates a new planner if the warehouse layout has changed since the last plan
+     */
+    private static void updatePlanner() {
+        WarehouseLayout current = Warehouse.getLayout();
+        if (current != layout) {
+            layout = current;
+            planner = new GridPlanner(layout.getGridWidth(), layout.getGridHeight(), layout.getBlocked(),
+                    layout.getDistances());
+            solver = null;
+            cache = new RouteCache(layout.getGridWidth() * layout.getGridHeight(), CACHE_SIZE);
+            dropOffs = new DropOffSelector(layout.getDropOffs(), layout.getDistances(), DROPOFF_TIME);
+            resetReservations();
+        }
+        if (conflictBased && solver == null) {
+            solver = new ConflictBasedSearch(layout.getGridWidth(), layout.getGridHeight(), layout.getBlocked(),
+                    layout.getDistances(), suboptimality, budget);
+        }
     }
 
 }
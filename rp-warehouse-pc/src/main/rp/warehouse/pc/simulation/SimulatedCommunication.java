@@ -0,0 +1,204 @@
+package rp.warehouse.pc.simulation;
+
+import rp.warehouse.pc.communication.Communication;
+import rp.warehouse.pc.communication.MemoryTransport;
+import rp.warehouse.pc.communication.Protocol;
+import rp.warehouse.pc.communication.SimulatedNXT;
+import rp.warehouse.pc.data.robot.utils.Clock;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.localisation.Ranges;
+
+import java.io.IOException;
+
+/**
+ * Stands in for the connection to a robot when simulating. Moves, pickups and drop offs take a set time on the
+ * clock, and are worked out in the robot's own thread so the only waiting done is on the clock. The robot checks
+ * on them each tick, which is what moves the clock on.
+ *
+ * @author agent
+ */
+class SimulatedCommunication extends Communication {
+    private final Clock clock;
+    private final long moveTime;
+    private final long pickTime;
+    private final long dropTime;
+
+    // When each of the last moves finishes, by sequence number
+    private final long[] finishes = new long[Protocol.WINDOW];
+    private int sent = 0;
+    // When the last pickup or drop off finishes, and how many items it was for
+    private long loadingFinish = 0;
+    private int loadingReply = NO_REPLY;
+    // Where the robot will be once the moves sent so far are done
+    private int x;
+    private int y;
+    private int direction;
+
+    private long busy = 0;
+    private int moves = 0;
+    private int picks = 0;
+    private int drops = 0;
+
+    /**
+     * @param name     name of the robot
+     * @param start    where the robot starts, and the way it is facing
+     * @param clock    the clock moves and pickups take time on
+     * @param moveTime how long each move takes
+     * @param pickTime how long each pickup takes
+     * @param dropTime how long each drop off takes
+     * @throws IOException never, as nothing is connected
+     */
+    SimulatedCommunication(String name, RobotLocation start, Clock clock, long moveTime, long pickTime,
+                           long dropTime) throws IOException {
+        super(MemoryTransport.pair()[0], name);
+        this.x = start.getX();
+        this.y = start.getY();
+        this.direction = start.getDirection();
+        this.clock = clock;
+        this.moveTime = moveTime;
+        this.pickTime = pickTime;
+        this.dropTime = dropTime;
+    }
+
+    @Override
+    public void run() {
+        // Nothing to receive
+    }
+
+    @Override
+    public int queueMovement(int direction) {
+        // Only WINDOW moves can be waiting at once
+        if (sent >= Protocol.WINDOW) {
+            awaitMovement(sent + 1 - Protocol.WINDOW);
+        }
+        long start = Math.max(clock.now(), sent == 0 ? 0 : finishes[sent % Protocol.WINDOW]);
+        sent++;
+        finishes[sent % Protocol.WINDOW] = start + moveTime;
+        // Moves that would leave the grid or hit a shelf fail, as on the NXT
+        if (SimulatedNXT.isFree(x + SimulatedNXT.dx(direction), y + SimulatedNXT.dy(direction))) {
+            x += SimulatedNXT.dx(direction);
+            y += SimulatedNXT.dy(direction);
+            this.direction = direction;
+        }
+        busy += moveTime;
+        moves++;
+        return sent;
+    }
+
+    @Override
+    public boolean canQueueMovement() {
+        // The move WINDOW before the next one must have finished
+        return sent < Protocol.WINDOW || clock.now() >= finishes[(sent + 1) % Protocol.WINDOW];
+    }
+
+    @Override
+    public int getFinishedMoves() {
+        // Moves more than WINDOW back were finished before later ones were sent
+        int finished = Math.max(0, sent - Protocol.WINDOW);
+        while (finished < sent && clock.now() >= finishes[(finished + 1) % Protocol.WINDOW]) {
+            finished++;
+        }
+        return finished;
+    }
+
+    @Override
+    public boolean hasFinishedMoving() {
+        return sent == 0 || clock.now() >= finishes[sent % Protocol.WINDOW];
+    }
+
+    @Override
+    public void awaitMovement(int sequence) {
+        // Older moves were finished before later ones were sent
+        if (sequence > sent - Protocol.WINDOW && sequence <= sent) {
+            sleepUntil(finishes[sequence % Protocol.WINDOW]);
+        }
+    }
+
+    @Override
+    public void awaitMovements() {
+        awaitMovement(sent);
+    }
+
+    @Override
+    public void sendMovement(int direction) {
+        awaitMovement(queueMovement(direction));
+    }
+
+    @Override
+    public int sendLoadingRequest(int amountToLoad) {
+        awaitMovements();
+        long time = amountToLoad > 0 ? pickTime : dropTime;
+        busy += time;
+        sleepUntil(clock.now() + time);
+        if (amountToLoad > 0) {
+            picks++;
+        } else {
+            drops++;
+        }
+        return amountToLoad;
+    }
+
+    @Override
+    public void requestLoading(int amountToLoad) {
+        long time = amountToLoad > 0 ? pickTime : dropTime;
+        long start = Math.max(clock.now(), sent == 0 ? 0 : finishes[sent % Protocol.WINDOW]);
+        loadingFinish = start + time;
+        loadingReply = amountToLoad;
+        busy += time;
+        if (amountToLoad > 0) {
+            picks++;
+        } else {
+            drops++;
+        }
+    }
+
+    @Override
+    public int pollLoading() {
+        if (loadingReply == NO_REPLY || clock.now() < loadingFinish) {
+            return NO_REPLY;
+        }
+        int reply = loadingReply;
+        loadingReply = NO_REPLY;
+        return reply;
+    }
+
+    @Override
+    public Ranges getRanges() {
+        // Read once the robot has got where it is going
+        awaitMovements();
+        return Ranges.fromArray(SimulatedNXT.getRanges(x, y, direction), Ranges.physicalConverter);
+    }
+
+    @Override
+    public void setDirection(int direction) {
+        this.direction = direction;
+    }
+
+    private void sleepUntil(long time) {
+        try {
+            clock.sleepUntil(time);
+        } catch (InterruptedException e) {
+            // Let the robot see it the next time it waits
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the time spent moving, picking up and dropping off
+     */
+    long getBusy() {
+        return busy;
+    }
+
+    int getMoves() {
+        return moves;
+    }
+
+    int getPicks() {
+        return picks;
+    }
+
+    int getDrops() {
+        return drops;
+    }
+}
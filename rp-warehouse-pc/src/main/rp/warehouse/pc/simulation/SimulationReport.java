@@ -0,0 +1,108 @@
+package rp.warehouse.pc.simulation;
+
+/**
+ * What happened over a simulated shift
+ *
+ * @author agent
+ */
+public class SimulationReport {
+    private static final double HOUR = 60 * 60 * 1000;
+
+    private final long duration;
+    private final boolean finished;
+    private final int robots;
+    private final int picks;
+    private final int drops;
+    private final int moves;
+    private final int waits;
+    private final long idle;
+    private final int jobsDone;
+    private final float reward;
+
+    /**
+     * @param duration how long the shift went on for, in milliseconds of simulated time
+     * @param finished whether every robot finished its work before the end of the shift
+     * @param robots   number of robots
+     * @param picks    number of items picked up
+     * @param drops    number of drop offs
+     * @param moves    number of moves between junctions
+     * @param waits    number of times a robot waited for another
+     * @param idle     total time robots were doing nothing, in milliseconds
+     * @param jobsDone number of jobs completed
+     * @param reward   reward earned
+     */
+    SimulationReport(long duration, boolean finished, int robots, int picks, int drops, int moves, int waits,
+                     long idle, int jobsDone, float reward) {
+        this.duration = duration;
+        this.finished = finished;
+        this.robots = robots;
+        this.picks = picks;
+        this.drops = drops;
+        this.moves = moves;
+        this.waits = waits;
+        this.idle = idle;
+        this.jobsDone = jobsDone;
+        this.reward = reward;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getPicks() {
+        return picks;
+    }
+
+    public int getDrops() {
+        return drops;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getWaits() {
+        return waits;
+    }
+
+    public long getIdle() {
+        return idle;
+    }
+
+    public int getJobsDone() {
+        return jobsDone;
+    }
+
+    public float getReward() {
+        return reward;
+    }
+
+    /**
+     * @return items picked up per hour of the shift
+     */
+    public double getPicksPerHour() {
+        return duration == 0 ? 0 : picks * HOUR / duration;
+    }
+
+    /**
+     * @return the fraction of robot time spent doing nothing
+     */
+    public double getIdleFraction() {
+        return duration == 0 || robots == 0 ? 0 : (double) idle / (duration * (long) robots);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s after %.2f hours with %d robots%n"
+                        + "  picks: %d (%.1f an hour)%n"
+                        + "  drop offs: %d, moves: %d, waits: %d%n"
+                        + "  idle: %.1f%%%n"
+                        + "  jobs done: %d, reward: %.2f",
+                finished ? "Finished" : "Stopped", duration / HOUR, robots, picks, getPicksPerHour(), drops, moves,
+                waits, getIdleFraction() * 100, jobsDone, reward);
+    }
+}
@@ -0,0 +1,103 @@
+package rp.warehouse.pc.simulation;
+
+import rp.warehouse.pc.data.robot.utils.Clock;
+
+import java.util.PriorityQueue;
+
+/**
+ * A clock for running robots faster than real time. Each robot thread takes part in the clock, and time only moves
+ * on once every thread taking part is asleep, when it jumps straight to the earliest time any of them wakes at.
+ * <p>
+ * Threads must {@link #join()} before any of them start, and only wait for time through this clock, or time will
+ * move on without them.
+ *
+ * @author agent
+ */
+public class VirtualClock implements Clock {
+
+    private final PriorityQueue<Long> wakeUps = new PriorityQueue<>();
+    private final long end;
+    private int participants = 0;
+    private long now = 0;
+    private boolean stopped = false;
+
+    /**
+     * @param end the time to stop at, after which every sleeping thread is interrupted
+     */
+    public VirtualClock(long end) {
+        this.end = end;
+    }
+
+    /**
+     * Adds a thread taking part, so time waits for it
+     */
+    public synchronized void join() {
+        participants++;
+    }
+
+    @Override
+    public synchronized long now() {
+        return now;
+    }
+
+    @Override
+    public synchronized void sleepUntil(long time) throws InterruptedException {
+        if (stopped || Thread.interrupted()) {
+            throw new InterruptedException("Clock stopped");
+        }
+        if (time <= now) {
+            return;
+        }
+
+        wakeUps.add(time);
+        advance();
+        try {
+            while (now < time) {
+                if (stopped) {
+                    throw new InterruptedException("Clock stopped");
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            wakeUps.remove(time);
+            throw e;
+        }
+    }
+
+    /**
+     * Called by a thread that has finished taking part, so time doesn't wait for it
+     */
+    public synchronized void leave() {
+        participants--;
+        advance();
+    }
+
+    /**
+     * @return true if the end time was reached before every thread finished
+     */
+    public synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Moves time on to the earliest wake up if every thread is asleep
+     */
+    private void advance() {
+        if (participants <= 0 || wakeUps.size() < participants) {
+            return;
+        }
+
+        long next = wakeUps.peek();
+        if (next > end) {
+            now = end;
+            stopped = true;
+        } else {
+            now = next;
+            // Threads waking now count as running straight away, so time can't move on again before they do
+            while (!wakeUps.isEmpty() && wakeUps.peek() <= now) {
+                wakeUps.poll();
+            }
+        }
+        notifyAll();
+    }
+}
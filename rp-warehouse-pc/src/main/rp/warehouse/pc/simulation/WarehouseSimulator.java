@@ -0,0 +1,197 @@
+package rp.warehouse.pc.simulation;
+
+import org.apache.log4j.Logger;
+import rp.warehouse.pc.assignment.AssignmentService;
+import rp.warehouse.pc.assignment.Auctioner;
+import rp.warehouse.pc.assignment.TSP;
+import rp.warehouse.pc.communication.Protocol;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.robot.Robot;
+import rp.warehouse.pc.data.robot.utils.RewardCounter;
+import rp.warehouse.pc.data.robot.utils.RewardLedger;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.input.Job;
+import rp.warehouse.pc.input.JobInput;
+import rp.warehouse.pc.route.RoutePlan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Runs a shift of the warehouse with simulated robots on a {@link VirtualClock}, much faster than real time, to
+ * see how many items a number of robots can pick. The real {@link Robot}, {@link RoutePlan}, {@link Auctioner} and
+ * {@link RewardCounter} are used; only the connections to the robots are simulated.
+ *
+ * @author agent
+ */
+public class WarehouseSimulator {
+    private static final Logger logger = Logger.getLogger(WarehouseSimulator.class);
+
+    // Rough times taken by the real robots, in milliseconds
+    public static final long MOVE_TIME = 2000;
+    public static final long PICK_TIME = 5000;
+    public static final long DROP_TIME = 3000;
+    public static final long SHIFT = 8 * 60 * 60 * 1000;
+
+    private final long moveTime;
+    private final long pickTime;
+    private final long dropTime;
+    private final long shift;
+
+    /**
+     * @param moveTime how long each move between junctions takes
+     * @param pickTime how long each pickup takes
+     * @param dropTime how long each drop off takes
+     * @param shift    how long to run for at most
+     */
+    public WarehouseSimulator(long moveTime, long pickTime, long dropTime, long shift) {
+        this.moveTime = moveTime;
+        this.pickTime = pickTime;
+        this.dropTime = dropTime;
+        this.shift = shift;
+    }
+
+    /**
+     * Runs a shift with jobs from the usual files, printing what happened.
+     * <p>
+     * Arguments: number of robots, then optionally the length of the shift in hours
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int robots = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long shift = args.length > 1 ? (long) (Double.parseDouble(args[1]) * 60 * 60 * 1000) : SHIFT;
+
+        if (new File("./warehouse.csv").exists()) {
+            Warehouse.load("./warehouse.csv");
+        }
+        Warehouse.loadDistances(new File("."));
+        JobInput input = new JobInput("./items.csv", "./jobs.csv", "./locations.csv", "", new File("./inputs.bin"));
+
+        WarehouseSimulator simulator = new WarehouseSimulator(MOVE_TIME, PICK_TIME, DROP_TIME, shift);
+        System.out.println(simulator.run(input.getJobs().getJobs(), getStarts(robots)));
+    }
+
+    /**
+     * Spreads robots out over the free cells of the warehouse, facing north
+     *
+     * @param count number of robots
+     * @return where each robot starts
+     * @throws IllegalArgumentException if there isn't room for that many robots
+     */
+    public static List<RobotLocation> getStarts(int count) {
+        List<Location> free = Warehouse.getFreeLocations();
+        if (count > free.size()) {
+            throw new IllegalArgumentException("Only room for " + free.size() + " robots");
+        }
+
+        List<RobotLocation> starts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Location cell = free.get(i * free.size() / count);
+            starts.add(new RobotLocation(cell.getX(), cell.getY(), Protocol.NORTH));
+        }
+        return starts;
+    }
+
+    /**
+     * Runs a shift. Replaces the ledger of {@link RewardCounter} and the robots of {@link RoutePlan} while running,
+     * so nothing else should be using them, and puts them back afterwards.
+     *
+     * @param jobs   the jobs, in order
+     * @param starts where each robot starts
+     * @return what happened
+     * @throws InterruptedException if interrupted while waiting for the robots
+     */
+    public SimulationReport run(List<Job> jobs, List<RobotLocation> starts) throws InterruptedException {
+        RewardLedger previous = RewardCounter.getLedger();
+        List<Robot> previousRobots = RoutePlan.getRobots();
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        RewardCounter.setLedger(ledger);
+        try {
+            ledger.addJobs(jobs);
+
+            TSP tsp = new TSP(Warehouse.getDistances(), Warehouse.getDropOffs(), Robot.WEIGHTLIMIT);
+            List<Queue<Task>> assigned = new Auctioner(new ArrayList<>(jobs), starts).assign();
+            AssignmentService assignments = new AssignmentService(assigned, tsp);
+
+            VirtualClock clock = new VirtualClock(shift);
+            List<Robot> robots = new ArrayList<>();
+            List<SimulatedCommunication> communications = new ArrayList<>();
+            for (int i = 0; i < starts.size(); i++) {
+                Queue<Task> tasks = assignments.getQueue(i);
+                // Robots need a task to start with
+                if (tasks.isEmpty() && !assignments.steal(tasks, starts.get(i), 0)) {
+                    logger.debug("Nothing for robot " + i + " to do");
+                    continue;
+                }
+                try {
+                    String name = "Simulated " + i;
+                    SimulatedCommunication communication = new SimulatedCommunication(name, starts.get(i), clock,
+                            moveTime, pickTime, dropTime);
+                    Robot robot = new Robot("SIM" + i, name, tasks, communication, new RobotLocation(starts.get(i)));
+                    robot.setAssignments(assignments);
+                    robot.setClock(clock);
+                    // A finished robot is taken off the floor rather than parking on a drop-off for the rest of the shift
+                    robot.setOnFinished(() -> {
+                        logger.debug(name + ": Finished at " + clock.now());
+                        RoutePlan.removeRobot(robot);
+                    });
+                    robots.add(robot);
+                    communications.add(communication);
+                    clock.join();
+                } catch (IOException e) {
+                    logger.error("Could not create robot " + i + ": " + e.getMessage());
+                }
+            }
+            RoutePlan.setRobots(robots);
+
+            // Each robot stops taking part in the clock when it has finished
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < robots.size(); i++) {
+                final int robot = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        robots.get(robot).run();
+                    } finally {
+                        clock.leave();
+                    }
+                }, robots.get(i).getName());
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            int picks = 0;
+            int drops = 0;
+            int moves = 0;
+            int waits = 0;
+            long idle = 0;
+            long duration = clock.now();
+            for (int i = 0; i < robots.size(); i++) {
+                SimulatedCommunication communication = communications.get(i);
+                picks += communication.getPicks();
+                drops += communication.getDrops();
+                moves += communication.getMoves();
+                waits += robots.get(i).getWaits();
+                // A robot that finished early is idle for the rest of the shift
+                idle += Math.max(0, duration - communication.getBusy());
+            }
+
+            SimulationReport report = new SimulationReport(duration, !clock.isStopped(), robots.size(), picks,
+                    drops, moves, waits, idle, ledger.getJobsDone(), ledger.getPointsEarned());
+            logger.info(report);
+            return report;
+        } finally {
+            RewardCounter.setLedger(previous);
+            RoutePlan.setRobots(previousRobots);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package rp.warehouse.pc.assignment;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.input.Job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+public class AssignmentServiceTest {
+
+    private AssignmentService service;
+
+    @Before
+    public void setup() {
+        Warehouse.setLayout(WarehouseLayout.createDefault());
+        Queue<Task> busy = new LinkedList<>();
+        for (int x = 0; x < 6; x++) {
+            busy.add(task(x, 0, "a"));
+        }
+        service = new AssignmentService(Arrays.asList(busy, new LinkedList<>()), new TSP());
+    }
+
+    @Test
+    public void idleRobotTakesBackHalf() {
+        Queue<Task> idle = service.getQueue(1);
+        Assert.assertTrue(service.steal(idle, new Location(11, 0), 0));
+
+        Assert.assertEquals(3, service.getQueue(0).size());
+        Assert.assertEquals(3, idle.size());
+        // Ordered from where the idle robot is
+        Assert.assertEquals(new Location(5, 0), idle.peek().getItem().getLocation());
+    }
+
+    @Test
+    public void nothingToTakeFromOneItem() {
+        Queue<Task> idle = service.getQueue(1);
+        service.steal(idle, new Location(0, 0), 0);
+        while (service.getQueue(0).size() > 1) {
+            service.getQueue(0).poll();
+        }
+        idle.clear();
+
+        Assert.assertFalse(service.steal(idle, new Location(0, 0), 0));
+        Assert.assertEquals(1, service.getQueue(0).size());
+    }
+
+    @Test
+    public void keepsStolenJobsTogether() {
+        Queue<Task> busy = new LinkedList<>();
+        for (int x = 0; x < 4; x++) {
+            busy.add(task(x, 7, "f"));
+        }
+        busy.addAll(Arrays.asList(task(8, 0, "a"), task(0, 0, "a"), task(9, 0, "b"), task(1, 0, "b")));
+        AssignmentService jobs = new AssignmentService(Arrays.asList(busy, new LinkedList<>()), new TSP());
+
+        Queue<Task> idle = jobs.getQueue(1);
+        Assert.assertTrue(jobs.steal(idle, new Location(11, 0), 0));
+
+        List<String> order = new ArrayList<>();
+        for (Task task : idle) {
+            order.add(task.getJobID() + task.getItem().getLocation());
+        }
+        Assert.assertEquals(Arrays.asList("a" + new Location(8, 0), "a" + new Location(0, 0),
+                "b" + new Location(1, 0), "b" + new Location(9, 0)), order);
+    }
+
+    @Test
+    public void takesLastItemFromParkedRobot() {
+        Queue<Task> lone = new LinkedList<>(Collections.singletonList(task(3, 0, "a")));
+        AssignmentService straggler = new AssignmentService(Arrays.asList(lone, new LinkedList<>()), new TSP());
+        Queue<Task> idle = straggler.getQueue(1);
+
+        // The owner is still running and will get to it
+        Assert.assertFalse(straggler.steal(idle, new Location(0, 0), 0));
+
+        // Parked before the item came in, so it is left for whoever is free
+        straggler.getQueue(0).poll();
+        straggler.park(0, () -> { });
+        straggler.getQueue(0).add(task(3, 0, "a"));
+        Assert.assertTrue(straggler.steal(idle, new Location(0, 0), 0));
+        Assert.assertEquals(1, idle.size());
+        Assert.assertTrue(straggler.getQueue(0).isEmpty());
+    }
+
+    @Test
+    public void newJobsGoOnTheEnd() {
+        ArrayList<Task> tasks = new ArrayList<>(Collections.singletonList(task(11, 7, "b")));
+        List<Job> jobs = new ArrayList<>(Collections.singletonList(new Job("b", tasks)));
+        service.addJobs(jobs, Arrays.asList(new Location(0, 0), new Location(11, 6)));
+
+        Assert.assertEquals(7, service.size());
+        Assert.assertEquals(1, service.getQueue(1).size());
+        Assert.assertEquals("b", service.getQueue(1).peek().getJobID());
+    }
+
+    @Test
+    public void parkedRobotWokenByNewJobs() {
+        int[] wakes = new int[1];
+        service.park(1, () -> wakes[0]++);
+        Assert.assertEquals(0, wakes[0]);
+
+        ArrayList<Task> tasks = new ArrayList<>(Collections.singletonList(task(11, 7, "b")));
+        service.addJobs(new ArrayList<>(Collections.singletonList(new Job("b", tasks))),
+                Arrays.asList(new Location(0, 0), new Location(11, 6)));
+        Assert.assertEquals(1, wakes[0]);
+
+        // Only woken once, and straight away if there is work in its queue
+        service.addJobs(new ArrayList<>(), Arrays.asList(new Location(0, 0), new Location(11, 6)));
+        Assert.assertEquals(1, wakes[0]);
+        service.park(1, () -> wakes[0]++);
+        Assert.assertEquals(2, wakes[0]);
+    }
+
+    @Test
+    public void newJobsCarryOnWithLoadLeftInQueue() {
+        // The first robot will be full after its queue, so has to drop off before anything else
+        Queue<Task> full = new LinkedList<>(Collections.singletonList(
+                new Task(new Item("", 0f, 3f, new Location(5, 0)), 1, "a")));
+        TSP tsp = new TSP(null, Collections.singletonList(new Location(0, 7)), 3f);
+        AssignmentService loaded = new AssignmentService(Arrays.asList(full, new LinkedList<>()), tsp);
+
+        ArrayList<Task> tasks = new ArrayList<>(Collections.singletonList(task(6, 0, "b")));
+        loaded.addJobs(new ArrayList<>(Collections.singletonList(new Job("b", tasks))),
+                Arrays.asList(new Location(0, 0), new Location(10, 0)));
+
+        Assert.assertEquals(1, loaded.getQueue(0).size());
+        Assert.assertEquals("b", loaded.getQueue(1).peek().getJobID());
+    }
+
+    private Task task(int x, int y, String job) {
+        return new Task(new Item("", 0f, 1f, new Location(x, y)), 1, job);
+    }
+}
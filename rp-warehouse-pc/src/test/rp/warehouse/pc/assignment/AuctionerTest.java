@@ -0,0 +1,94 @@
+package rp.warehouse.pc.assignment;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.input.Job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class AuctionerTest {
+
+    private final List<RobotLocation> robots = Arrays.asList(new RobotLocation(0, 0, 3),
+            new RobotLocation(11, 7, 3), new RobotLocation(0, 7, 3));
+
+    @Before
+    public void setup() {
+        Warehouse.setLayout(WarehouseLayout.createDefault());
+    }
+
+    @Test
+    public void assignsEveryItemOnce() {
+        List<Job> jobs = jobs(5, 40);
+        Map<Task, Integer> counts = new IdentityHashMap<>();
+        for (Job job : jobs) {
+            for (Task task : job.getItems()) {
+                counts.put(task, 0);
+            }
+        }
+
+        for (Queue<Task> queue : new Auctioner(jobs, robots).assign()) {
+            for (Task task : queue) {
+                counts.put(task, counts.get(task) + 1);
+            }
+        }
+
+        for (int count : counts.values()) {
+            Assert.assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void parallelMatchesSingleThread() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            List<Queue<Task>> expected = new Auctioner(jobs(5, 40), robots, single).assign();
+            List<Queue<Task>> actual = new Auctioner(jobs(5, 40), robots, parallel).assign();
+
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(locations(expected.get(i)), locations(actual.get(i)));
+            }
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    private List<Job> jobs(int count, int items) {
+        Random random = new Random(7);
+        List<Location> free = Warehouse.getFreeLocations();
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ArrayList<Task> tasks = new ArrayList<>();
+            for (int j = 0; j < items; j++) {
+                Item item = new Item("item" + j, 1f, 1f, free.get(random.nextInt(free.size())));
+                tasks.add(new Task(item, 1, "job" + i));
+            }
+            jobs.add(new Job("job" + i, tasks));
+        }
+        return jobs;
+    }
+
+    private List<String> locations(Queue<Task> queue) {
+        List<String> locations = new ArrayList<>();
+        for (Task task : queue) {
+            locations.add(task.getItem().getLocation().toString());
+        }
+        return locations;
+    }
+}
@@ -2,11 +2,15 @@ package rp.warehouse.pc.assignment;
 
 import org.junit.Test;
 
+import rp.warehouse.pc.data.DistanceOracle;
 import rp.warehouse.pc.data.Item;
 import rp.warehouse.pc.data.Location;
 import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.WarehouseLayout;
 
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Before;;
@@ -55,4 +59,87 @@ public class TSPTest {
 		
 		Assert.assertEquals(correct, actual);
 	}
+
+	@Test
+	public void usesDistancesAroundShelves() {
+		TSP warehouseTsp = new TSP(new DistanceOracle(WarehouseLayout.createDefault()));
+		Assert.assertEquals(7, warehouseTsp.getDistance(new Location(2, 2), new Location(0, 3)));
+		Assert.assertEquals(4, warehouseTsp.getDistance(new Location(0, 0), new Location(2, 2)));
+	}
+
+	@Test
+	public void includesNearestDropOff() {
+		TSP dropOffTsp = new TSP(null, Arrays.asList(new Location(4, 7), new Location(0, 6)));
+		Assert.assertEquals(18 + 3, dropOffTsp.getTotalDistance(start, testItems));
+	}
+
+	@Test
+	public void insertionCostMatchesTotalDistance() {
+		TSP dropOffTsp = new TSP(new DistanceOracle(WarehouseLayout.createDefault()),
+				Arrays.asList(new Location(4, 7), new Location(0, 6)));
+		LinkedList<Task> order = new LinkedList<Task>();
+		for (Task item : testItems) {
+			ItemOrder inserted = dropOffTsp.insertMinimumEdge(item, order, start);
+			order = (LinkedList<Task>) inserted.getOrder();
+			Assert.assertEquals(dropOffTsp.getTotalDistance(start, order), inserted.getPathCost());
+		}
+	}
+
+	@Test
+	public void insertionCountsDropOffTrips() {
+		TSP capacityTsp = new TSP(null, Arrays.asList(new Location(4, 7), new Location(0, 6)), 10f);
+		Random random = new Random(5);
+		for (int run = 0; run < 50; run++) {
+			LinkedList<Task> order = new LinkedList<Task>();
+			for (int i = 0; i < 8; i++) {
+				order.add(new Task(new Item("", 0f, 1f + random.nextInt(5),
+						new Location(random.nextInt(12), random.nextInt(8))), 1, ""));
+			}
+			Task item = new Task(new Item("", 0f, 1f + random.nextInt(5),
+					new Location(random.nextInt(12), random.nextInt(8))), 1, "");
+
+			int lowest = Integer.MAX_VALUE;
+			for (int i = 0; i <= order.size(); i++) {
+				LinkedList<Task> inserted = new LinkedList<Task>(order);
+				inserted.add(i, item);
+				lowest = Math.min(lowest, capacityTsp.getTotalDistance(start, inserted));
+			}
+
+			ItemOrder best = capacityTsp.insertMinimumEdge(item, order, start);
+			Assert.assertEquals(lowest, best.getPathCost());
+			Assert.assertEquals(lowest, capacityTsp.getTotalDistance(start, (LinkedList<Task>) best.getOrder()));
+		}
+	}
+
+	@Test
+	public void keptStopsGiveSameOrder() {
+		TSP capacityTsp = new TSP(null, Arrays.asList(new Location(4, 7), new Location(0, 6)), 10f);
+		Random random = new Random(7);
+		int[] xs = new int[9];
+		int[] ys = new int[9];
+		float[] ws = new float[9];
+		LinkedList<Task> order = new LinkedList<Task>();
+		for (int i = 0; i < 8; i++) {
+			Task item = new Task(new Item("", 0f, 1f + random.nextInt(5),
+					new Location(random.nextInt(12), random.nextInt(8))), 1, "");
+			capacityTsp.getStops(order, start, 2f, xs, ys, ws);
+			ItemOrder kept = capacityTsp.insertMinimumEdge(item, order, xs, ys, ws);
+			ItemOrder built = capacityTsp.insertMinimumEdge(item, order, start, 2f);
+			Assert.assertEquals(built.getPathCost(), kept.getPathCost());
+			Assert.assertEquals(built.getOrder(), kept.getOrder());
+			order = (LinkedList<Task>) kept.getOrder();
+		}
+	}
+
+	@Test
+	public void tripCostsMoreThanDirect() {
+		TSP capacityTsp = new TSP(null, Arrays.asList(new Location(0, 6)), 5f);
+		LinkedList<Task> heavy = new LinkedList<Task>();
+		heavy.add(new Task(new Item("", 0f, 3f, new Location(2, 0)), 1, ""));
+		heavy.add(new Task(new Item("", 0f, 3f, new Location(4, 0)), 1, ""));
+
+		// To (2, 0), round by the drop-off to (4, 0), then back to the drop-off
+		Assert.assertEquals(2 + (8 + 10) + 10, capacityTsp.getTotalDistance(start, heavy));
+		Assert.assertEquals(3f, capacityTsp.getLoad(0, heavy), 0);
+	}
 }
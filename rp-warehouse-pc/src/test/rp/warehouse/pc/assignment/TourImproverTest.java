@@ -0,0 +1,54 @@
+package rp.warehouse.pc.assignment;
+
+import org.junit.Assert;
+import org.junit.Test;
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+public class TourImproverTest {
+
+    private final Location start = new Location(0, 0);
+
+    @Test
+    public void reversesBackwardsRun() {
+        TourImprover improver = new TourImprover(new TSP(null, Collections.<Location>emptyList(), 50f), 1000);
+        LinkedList<Task> order = new LinkedList<>(Arrays.asList(task(3, 0, 1f, "a"), task(1, 0, 1f, "a"),
+                task(2, 0, 1f, "a")));
+
+        Queue<Task> improved = improver.improve(order, start, Long.MAX_VALUE);
+        Assert.assertEquals(3, improver.getCost(start, improved.toArray(new Task[0])));
+        Assert.assertEquals(new Location(1, 0), improved.peek().getItem().getLocation());
+    }
+
+    @Test
+    public void countsTripsToDropOff() {
+        TourImprover improver = new TourImprover(new TSP(null, Arrays.asList(new Location(0, 5)), 10f), 1000);
+        Task[] tasks = new Task[]{task(2, 0, 6f, "a"), task(4, 0, 6f, "a")};
+
+        // To (2, 0), round by the drop-off to (4, 0), then back to the drop-off
+        Assert.assertEquals(2 + (7 + 9) + 9, improver.getCost(start, tasks));
+    }
+
+    @Test
+    public void keepsJobsInOrder() {
+        TourImprover improver = new TourImprover(new TSP(null, Collections.<Location>emptyList(), 50f), 1000);
+        LinkedList<Task> order = new LinkedList<>(Arrays.asList(task(5, 0, 1f, "a"), task(1, 0, 1f, "b"),
+                task(4, 0, 1f, "b")));
+
+        List<Task> improved = new LinkedList<>(improver.improve(order, start, Long.MAX_VALUE));
+        Assert.assertEquals("a", improved.get(0).getJobID());
+        Assert.assertEquals(new Location(4, 0), improved.get(1).getItem().getLocation());
+        Assert.assertEquals(new Location(1, 0), improved.get(2).getItem().getLocation());
+    }
+
+    private Task task(int x, int y, float weight, String job) {
+        return new Task(new Item("", 0f, weight, new Location(x, y)), 1, job);
+    }
+}
@@ -0,0 +1,117 @@
+package rp.warehouse.pc.communication;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventLoopTest {
+
+    private EventLoop loop;
+    private final List<SimulatedNXT> robots = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        Warehouse.setLayout(WarehouseLayout.createDefault());
+        loop = new EventLoop();
+        loop.start("Test loop");
+    }
+
+    @After
+    public void tearDown() {
+        loop.close();
+        for (SimulatedNXT robot : robots) {
+            robot.close();
+        }
+    }
+
+    @Test
+    public void runsTimersInOrder() throws InterruptedException {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        loop.schedule(() -> {
+            order.add("last");
+            done.countDown();
+        }, 40);
+        loop.schedule(() -> {
+            order.add("first");
+            done.countDown();
+        }, 10);
+        loop.schedule(() -> {
+            order.add("second");
+            done.countDown();
+        }, 10);
+
+        Assert.assertTrue(done.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("first", "second", "last"), order);
+    }
+
+    @Test
+    public void readsConnectionsWithoutChannels() throws Exception {
+        MemoryTransport[] transports = MemoryTransport.pair();
+        startRobot(transports[1]);
+        checkConnection(new Communication(transports[0], "Memory"));
+    }
+
+    @Test
+    public void readsConnectionsThroughSelector() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            SocketTransport transport = SocketTransport.connect(server.getLocalPort());
+            Socket accepted = server.accept();
+            startRobot(new SocketTransport(accepted));
+
+            Assert.assertNotNull(transport.getChannel());
+            checkConnection(new Communication(transport, "Socket"));
+        }
+    }
+
+    /**
+     * Moves a robot east twice then picks up, doing everything on the loop
+     */
+    private void checkConnection(Communication communication) throws InterruptedException {
+        CountDownLatch moved = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        int[] reply = new int[1];
+        loop.add(communication, () -> {
+            if (moved.getCount() > 0 && communication.hasFinishedMoving()) {
+                moved.countDown();
+                communication.requestLoading(3);
+            } else if (moved.getCount() == 0) {
+                reply[0] = communication.pollLoading();
+                loaded.countDown();
+            }
+        });
+        loop.execute(() -> {
+            communication.queueMovement(Protocol.EAST);
+            communication.queueMovement(Protocol.EAST);
+        });
+
+        Assert.assertTrue(moved.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(loaded.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(3, reply[0]);
+        Assert.assertEquals(2, robots.get(0).getLocation().getX());
+        communication.close();
+    }
+
+    private void startRobot(Transport transport) throws IOException {
+        SimulatedNXT robot = new SimulatedNXT(transport, "Simulated", new RobotLocation(0, 0, Protocol.NORTH), 5);
+        robots.add(robot);
+        Thread thread = new Thread(robot);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,116 @@
+package rp.warehouse.pc.communication;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class MessageCodecTest {
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        MessageCodec writer = new MessageCodec(new ByteArrayInputStream(new byte[0]), sent);
+        writer.write(Protocol.MOVE, 7, Protocol.EAST);
+        writer.writeFloats(Protocol.LOCALISE, 1.5f, -2.0f, 0.0f, 1000.25f);
+        writer.send(Protocol.CANCEL);
+
+        MessageCodec reader = new MessageCodec(new ByteArrayInputStream(sent.toByteArray()),
+                new ByteArrayOutputStream());
+        Assert.assertEquals(Protocol.MOVE, reader.read());
+        Assert.assertEquals(7, reader.readInt());
+        Assert.assertEquals(Protocol.EAST, reader.readInt());
+        Assert.assertEquals(Protocol.LOCALISE, reader.read());
+        Assert.assertEquals(1.5f, reader.readFloat(), 0);
+        Assert.assertEquals(-2.0f, reader.readFloat(), 0);
+        Assert.assertEquals(0.0f, reader.readFloat(), 0);
+        Assert.assertEquals(1000.25f, reader.readFloat(), 0);
+        Assert.assertEquals(Protocol.CANCEL, reader.read());
+    }
+
+    @Test
+    public void writesBufferedMessagesInOneGo() throws IOException {
+        CountingStream sent = new CountingStream();
+        MessageCodec writer = new MessageCodec(new ByteArrayInputStream(new byte[0]), sent);
+        for (int i = 0; i < 10; i++) {
+            writer.write(Protocol.MOVE, i, Protocol.NORTH);
+        }
+        Assert.assertEquals(0, sent.writes);
+        writer.flush();
+
+        Assert.assertEquals(1, sent.writes);
+        Assert.assertEquals(10 * (3 + 8), sent.size());
+    }
+
+    @Test
+    public void skipsUnreadValues() throws IOException {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        MessageCodec writer = new MessageCodec(new ByteArrayInputStream(new byte[0]), sent);
+        writer.write(Protocol.PICKUP, 3, 4, 5);
+        writer.send(Protocol.OK, 9);
+
+        MessageCodec reader = new MessageCodec(new ByteArrayInputStream(sent.toByteArray()),
+                new ByteArrayOutputStream());
+        Assert.assertEquals(Protocol.PICKUP, reader.read());
+        Assert.assertEquals(3, reader.readInt());
+        Assert.assertEquals(Protocol.OK, reader.read());
+        Assert.assertEquals(9, reader.readInt());
+        try {
+            reader.readInt();
+            Assert.fail("Read past the end of a message");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void failsOnCutOffFrame() throws IOException {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        new MessageCodec(new ByteArrayInputStream(new byte[0]), sent).send(Protocol.MOVE, 1, 2);
+        byte[] frame = sent.toByteArray();
+        InputStream cut = new ByteArrayInputStream(frame, 0, frame.length - 1);
+
+        new MessageCodec(cut, new ByteArrayOutputStream()).read();
+    }
+
+    @Test
+    public void pollsMessagesAsTheyArrive() throws IOException {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        MessageCodec writer = new MessageCodec(new ByteArrayInputStream(new byte[0]), sent);
+        writer.write(Protocol.OK, 4);
+        writer.send(Protocol.PICKUP, 2);
+        byte[] frames = sent.toByteArray();
+
+        MemoryTransport[] transports = MemoryTransport.pair();
+        MessageCodec reader = new MessageCodec(transports[0].getInputStream(), new ByteArrayOutputStream());
+        Assert.assertEquals(0, reader.receiveAvailable());
+        Assert.assertEquals(MessageCodec.NONE, reader.poll());
+
+        // First message and part of the second
+        transports[1].getOutputStream().write(frames, 0, 9);
+        Assert.assertEquals(9, reader.receiveAvailable());
+        Assert.assertEquals(Protocol.OK, reader.poll());
+        Assert.assertEquals(4, reader.readInt());
+        Assert.assertEquals(MessageCodec.NONE, reader.poll());
+
+        transports[1].getOutputStream().write(frames, 9, frames.length - 9);
+        reader.receiveAvailable();
+        Assert.assertEquals(Protocol.PICKUP, reader.poll());
+        Assert.assertEquals(2, reader.readInt());
+        Assert.assertEquals(MessageCodec.NONE, reader.poll());
+    }
+
+    private static class CountingStream extends ByteArrayOutputStream {
+        private int writes = 0;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+}
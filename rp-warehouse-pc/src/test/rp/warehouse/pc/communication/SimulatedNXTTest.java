@@ -0,0 +1,65 @@
+package rp.warehouse.pc.communication;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+
+import java.io.IOException;
+
+public class SimulatedNXTTest {
+
+    private SimulatedNXT nxt;
+    private Communication communication;
+
+    @Before
+    public void setUp() throws IOException {
+        MemoryTransport[] transports = MemoryTransport.pair();
+        nxt = new SimulatedNXT(transports[1], "Simulated", new RobotLocation(0, 0, Protocol.NORTH), 5);
+        communication = new Communication(transports[0], "Simulated");
+        startDaemon(nxt);
+        startDaemon(communication);
+    }
+
+    @After
+    public void tearDown() {
+        communication.close();
+        nxt.close();
+    }
+
+    @Test
+    public void doesQueuedMovesInOrder() {
+        communication.queueMovement(Protocol.EAST);
+        communication.queueMovement(Protocol.EAST);
+        int last = communication.queueMovement(Protocol.NORTH);
+        communication.awaitMovement(last);
+
+        RobotLocation location = nxt.getLocation();
+        Assert.assertEquals(2, location.getX());
+        Assert.assertEquals(1, location.getY());
+        Assert.assertEquals(Protocol.NORTH, location.getDirection());
+    }
+
+    @Test
+    public void refusesMoveIntoShelf() {
+        communication.sendMovement(Protocol.EAST);
+        communication.sendMovement(Protocol.NORTH);
+
+        RobotLocation location = nxt.getLocation();
+        Assert.assertEquals(1, location.getX());
+        Assert.assertEquals(0, location.getY());
+    }
+
+    @Test
+    public void confirmsPickups() {
+        Assert.assertEquals(4, communication.sendLoadingRequest(4));
+        Assert.assertEquals(0, communication.sendLoadingRequest(0));
+    }
+
+    private static void startDaemon(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,52 @@
+package rp.warehouse.pc.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class DistanceOracleTest {
+
+    @Test
+    public void distanceGoesAroundShelves() {
+        DistanceOracle distances = new DistanceOracle(WarehouseLayout.createDefault());
+
+        // Shelf in column 1 is between these, so go around the bottom
+        Assertions.assertEquals(2 + 2 + 3, distances.getDistance(new Location(2, 2), new Location(0, 3)));
+        Assertions.assertEquals(distances.getDistance(new Location(0, 3), new Location(2, 2)),
+                distances.getDistance(new Location(2, 2), new Location(0, 3)));
+        Assertions.assertEquals(0, distances.getDistance(new Location(5, 5), new Location(5, 5)));
+    }
+
+    @Test
+    public void blockedPointsAreUnreachable() {
+        DistanceOracle distances = new DistanceOracle(WarehouseLayout.createDefault());
+
+        Assertions.assertEquals(DistanceOracle.UNREACHABLE, distances.getDistance(new Location(0, 0), new Location(1, 1)));
+        Assertions.assertEquals(DistanceOracle.UNREACHABLE, distances.getDistance(new Location(0, 0), new Location(12, 0)));
+    }
+
+    @Test
+    public void cachedDistancesMatch() throws IOException {
+        WarehouseLayout layout = WarehouseLayout.createDefault();
+        File directory = Files.createTempDirectory("distances").toFile();
+        try {
+            DistanceOracle computed = DistanceOracle.load(layout, directory);
+            Assertions.assertEquals(1, directory.listFiles().length);
+
+            DistanceOracle cached = DistanceOracle.load(layout, directory);
+            for (int from = 0; from < 12 * 8; from++) {
+                for (int to = 0; to < 12 * 8; to++) {
+                    Assertions.assertEquals(computed.getDistance(from, to), cached.getDistance(from, to));
+                }
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
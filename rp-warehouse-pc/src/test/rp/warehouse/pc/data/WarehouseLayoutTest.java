@@ -0,0 +1,48 @@
+package rp.warehouse.pc.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+public class WarehouseLayoutTest {
+
+    String layoutLocation = "./test/rp/warehouse/pc/data/layoutTest.csv";
+
+    @Test
+    public void defaultLayoutMatchesOriginalWarehouse() {
+        WarehouseLayout layout = WarehouseLayout.createDefault();
+        Assertions.assertEquals(12, layout.getGridWidth());
+        Assertions.assertEquals(8, layout.getGridHeight());
+        Assertions.assertEquals(20, layout.getBlockedLocations().size());
+        Assertions.assertTrue(layout.isBlocked(4, 3));
+        Assertions.assertFalse(layout.isBlocked(4, 7));
+        Assertions.assertEquals(new Location(4, 7), layout.getDropOffs().get(0));
+    }
+
+    @Test
+    public void readsLayoutFile() throws IOException {
+        WarehouseLayout layout = WarehouseLayout.read(layoutLocation);
+        Assertions.assertEquals(20, layout.getGridWidth());
+        Assertions.assertEquals(10, layout.getGridHeight());
+        Assertions.assertEquals(6 + 24, layout.getBlockedLocations().size());
+        Assertions.assertTrue(layout.isBlocked(2, 7));
+        Assertions.assertTrue(layout.isBlocked(16, 3));
+        Assertions.assertFalse(layout.isBlocked(17, 3));
+        Assertions.assertEquals(2, layout.getDropOffs().size());
+    }
+
+    @Test
+    public void pointsOutsideGridAreNotValid() {
+        WarehouseLayout layout = WarehouseLayout.createDefault();
+        Assertions.assertFalse(layout.isValid(-1, 0));
+        Assertions.assertFalse(layout.isValid(12, 0));
+        Assertions.assertFalse(layout.isValid(1, 1));
+        Assertions.assertTrue(layout.isValid(0, 0));
+    }
+
+    @Test
+    public void missingFileThrows() {
+        Assertions.assertThrows(IOException.class, () -> WarehouseLayout.read("./doesNotExist.csv"));
+    }
+}
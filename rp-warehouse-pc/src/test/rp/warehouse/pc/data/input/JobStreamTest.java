@@ -0,0 +1,126 @@
+package rp.warehouse.pc.data.input;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rp.warehouse.pc.input.Job;
+import rp.warehouse.pc.input.JobInput;
+import rp.warehouse.pc.input.JobStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class JobStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LinkedBlockingQueue<Job> received = new LinkedBlockingQueue<>();
+    private JobStream stream;
+
+    @Before
+    public void setup() throws IOException {
+        File items = write("items.csv", "aa,1.0,2.0\nab,3.0,1.5\n");
+        File locations = write("locations.csv", "0,1,aa\n4,2,ab\n");
+        File jobs = write("jobs.csv", "");
+        JobInput input = new JobInput(items.getPath(), jobs.getPath(), locations.getPath(), "");
+        stream = new JobStream(input, (List<Job> newJobs) -> received.addAll(newJobs));
+    }
+
+    @After
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    @Test
+    public void followsFilesInDirectory() throws Exception {
+        File incoming = folder.newFolder("incoming");
+        Files.write(new File(incoming, "first.csv").toPath(), "1,aa,2\n".getBytes(StandardCharsets.UTF_8));
+        stream.watch(incoming.toPath());
+        Assert.assertEquals("1", take().getName());
+
+        // Only whole lines are read
+        File second = new File(incoming, "second.csv");
+        Files.write(second.toPath(), "2,ab,1,a".getBytes(StandardCharsets.UTF_8));
+        Files.write(second.toPath(), "a,3\n3,zz,1\n4,aa,1\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        Job job = take();
+        Assert.assertEquals("2", job.getName());
+        Assert.assertEquals(2, job.numOfTasks());
+        // Job 3 has an unknown item and is skipped
+        Assert.assertEquals("4", take().getName());
+    }
+
+    @Test
+    public void skipsJobsAlreadyReadWhenFileShrinks() throws Exception {
+        File incoming = folder.newFolder("shrinking");
+        File file = new File(incoming, "jobs.csv");
+        Files.write(file.toPath(), "6,aa,1\n7,ab,1\n10,aa,1\n".getBytes(StandardCharsets.UTF_8));
+        stream.watch(incoming.toPath());
+        Assert.assertEquals("6", take().getName());
+        Assert.assertEquals("7", take().getName());
+        Assert.assertEquals("10", take().getName());
+
+        // Replaced with a shorter file holding an old job and a new one
+        Files.write(file.toPath(), "7,ab,1\n8,aa,1\n".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals("8", take().getName());
+        Assert.assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void skipsJobsReadAtStartup() throws Exception {
+        File items = new File(folder.getRoot(), "items.csv");
+        File locations = new File(folder.getRoot(), "locations.csv");
+        File jobs = write("startup.csv", "9,aa,1\n");
+        JobInput input = new JobInput(items.getPath(), jobs.getPath(), locations.getPath(), "");
+        try (JobStream startup = new JobStream(input, (List<Job> newJobs) -> received.addAll(newJobs))) {
+            File incoming = folder.newFolder("startup");
+            Files.write(new File(incoming, "jobs.csv").toPath(), "9,ab,1\n11,ab,1\n".getBytes(StandardCharsets.UTF_8));
+            startup.watch(incoming.toPath());
+
+            Assert.assertEquals("11", take().getName());
+            Assert.assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void readsJobsFromSocket() throws Exception {
+        int port = stream.listen(0);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            writer.write("5,ab,2\n");
+            writer.flush();
+
+            Job job = take();
+            Assert.assertEquals("5", job.getName());
+            Assert.assertEquals(2, job.getItems().get(0).getCount());
+        }
+    }
+
+    private Job take() throws InterruptedException {
+        Job job = received.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull("No job read", job);
+        return job;
+    }
+
+    private File write(String name, String contents) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,159 @@
+package rp.warehouse.pc.data.robot.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.input.Job;
+import rp.warehouse.pc.management.providers.main.WarehouseInfoListener;
+
+public class RewardLedgerTest {
+
+    @Test
+    public void countsTasksFromManyThreads() throws InterruptedException {
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        Item item = new Item("aa", 1.0f, 1.0f, new Location(0, 0));
+        List<Job> jobs = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ArrayList<Task> jobTasks = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                jobTasks.add(new Task(item, 2, "ledger" + i));
+            }
+            jobs.add(new Job("ledger" + i, jobTasks));
+            tasks.addAll(jobTasks);
+        }
+        ledger.addJobs(jobs);
+        Collections.shuffle(tasks);
+
+        ExecutorService robots = Executors.newFixedThreadPool(4);
+        for (Task task : tasks) {
+            robots.execute(() -> ledger.addCompletedJob(task));
+        }
+        robots.shutdown();
+        Assert.assertTrue(robots.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(200, ledger.getJobsDone());
+        Assert.assertEquals(0, ledger.getNumberUncompletedJobs());
+        Assert.assertEquals(1200.0f, ledger.getPointsEarned(), 0);
+    }
+
+    @Test
+    public void refusesTasksOfCancelledJobs() {
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        Item item = new Item("aa", 5.0f, 1.0f, new Location(0, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(item, 1, "cancelled"));
+        tasks.add(new Task(item, 1, "cancelled"));
+        ledger.addJobs(Collections.singletonList(new Job("cancelled", tasks)));
+
+        ledger.addCompletedJob(tasks.get(0));
+        Assert.assertEquals(1, ledger.getNumberUncompletedJobs());
+        ledger.addCancelledJob(tasks.get(0));
+        ledger.addCancelledJob(tasks.get(1));
+        ledger.addCompletedJob(tasks.get(1));
+
+        Assert.assertTrue(ledger.checkIfCancelled(tasks.get(1)));
+        Assert.assertEquals(1, ledger.getNumberJobsCancelled());
+        Assert.assertEquals(0, ledger.getNumberUncompletedJobs());
+        Assert.assertEquals(0, ledger.getJobsDone());
+        Assert.assertEquals(0.0f, ledger.getPointsEarned(), 0);
+    }
+
+    @Test
+    public void paysForJobAddedAgainOnce() {
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        Item item = new Item("aa", 5.0f, 1.0f, new Location(0, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(item, 1, "again"));
+        List<Job> jobs = Collections.singletonList(new Job("again", tasks));
+
+        ledger.addJobs(jobs);
+        ledger.addCompletedJob(tasks.get(0));
+        ledger.addJobs(jobs);
+        ledger.addCompletedJob(tasks.get(0));
+
+        Assert.assertEquals(1, ledger.getJobsDone());
+        Assert.assertEquals(5.0f, ledger.getPointsEarned(), 0);
+    }
+
+    @Test
+    public void keepsCompletedJobsWhenCancelled() {
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        Item item = new Item("aa", 5.0f, 1.0f, new Location(0, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(item, 1, "finished"));
+        ledger.addJobs(Collections.singletonList(new Job("finished", tasks)));
+
+        ledger.addCompletedJob(tasks.get(0));
+        ledger.addCancelledJob(tasks.get(0));
+
+        Assert.assertFalse(ledger.checkIfCancelled(tasks.get(0)));
+        Assert.assertEquals(1, ledger.getJobsDone());
+        Assert.assertEquals(0, ledger.getNumberJobsCancelled());
+    }
+
+    @Test
+    public void remembersJobsCancelledBeforeAdded() {
+        RewardLedger ledger = new RewardLedger(Runnable::run);
+        Item item = new Item("aa", 5.0f, 1.0f, new Location(0, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(item, 1, "early"));
+
+        ledger.addCancelledJob(tasks.get(0));
+        ledger.addJobs(Collections.singletonList(new Job("early", tasks)));
+        ledger.addCompletedJob(tasks.get(0));
+
+        Assert.assertTrue(ledger.checkIfCancelled(tasks.get(0)));
+        Assert.assertEquals(1, ledger.getNumberJobsCancelled());
+        Assert.assertEquals(0, ledger.getJobsDone());
+    }
+
+    @Test
+    public void tellsListenersOnEventThread() throws InterruptedException {
+        ExecutorService events = Executors.newSingleThreadExecutor();
+        RewardLedger ledger = new RewardLedger(events);
+        Item item = new Item("aa", 3.0f, 1.0f, new Location(0, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(item, 2, "listened"));
+        ledger.addJobs(Collections.singletonList(new Job("listened", tasks)));
+
+        List<Float> rewards = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        ledger.addListener(new WarehouseInfoListener() {
+            @Override
+            public void rewardChanged(float newReward) {
+                rewards.add(newReward);
+                threads.add(Thread.currentThread());
+            }
+
+            @Override
+            public void jobCountChanged(int newJobCount) {
+            }
+
+            @Override
+            public void cancelledJobsChanged(int newCancelledCount) {
+            }
+
+            @Override
+            public void uncompletedJobsChanged(int newUncompletedCount) {
+            }
+        });
+
+        ledger.addCompletedJob(tasks.get(0));
+        events.shutdown();
+        Assert.assertTrue(events.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(Collections.singletonList(6.0f), rewards);
+        Assert.assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+}
@@ -0,0 +1,112 @@
+package rp.warehouse.pc.input;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rp.warehouse.pc.data.JobIndex;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class CsvReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEveryLineEnding() throws IOException {
+        Items items = new Items();
+        CsvReader reader = new CsvReader();
+        reader.readItems(write("items.csv", "aa,11.1,1.23\rab, 12.01 ,3.93\r\nac,12.36,4.28\n"), items);
+        reader.readLocations(write("locations.csv", "2,1,aa\r2,2,ab\r\n\r\n2,3,ac"), items);
+
+        Assert.assertEquals(3.93f, items.getItem("ab").getWeight(), 0);
+        Assert.assertEquals(new Location(2, 3), items.getItem("ac").getLocation());
+    }
+
+    @Test
+    public void readsJobsAcrossChunks() throws IOException {
+        Items items = new Items();
+        CsvReader reader = new CsvReader(16);
+        reader.readItems(write("items.csv", "aa,1,1\nab,1,1\n"), items);
+
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            file.append(i).append(",aa,").append(i % 7 + 1);
+            // Some lines longer than a chunk
+            for (int j = 0; j < i % 5; j++) {
+                file.append(",ab,").append(j + 10);
+            }
+            file.append('\n');
+        }
+        List<Job> jobs = reader.readJobs(write("jobs.csv", file.toString()), items);
+
+        Assert.assertEquals(100, jobs.size());
+        for (int i = 0; i < 100; i++) {
+            Job job = jobs.get(i);
+            Assert.assertEquals(String.valueOf(i), job.getName());
+            Assert.assertEquals(1 + i % 5, job.numOfTasks());
+            Assert.assertEquals(i % 7 + 1, job.getItems().get(0).getCount());
+            Assert.assertSame(items.getItem("aa"), job.getItems().get(0).getItem());
+        }
+    }
+
+    @Test
+    public void numbersItemsAndJobs() throws IOException {
+        Items items = new Items();
+        CsvReader reader = new CsvReader();
+        reader.readItems(write("items.csv", "aa,1,1\nab,1,1\nac,1,1\n"), items);
+        List<Job> jobs = reader.readJobs(write("jobs.csv", "2001,ac,1,aa,2\n2002,ab,1\n"), items);
+
+        Assert.assertEquals(3, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Assert.assertEquals(i, items.getItem(i).getId());
+        }
+        Assert.assertNotEquals(jobs.get(0).getId(), jobs.get(1).getId());
+        for (Job job : jobs) {
+            Assert.assertEquals(job.getName(), JobIndex.getName(job.getId()));
+            for (Task task : job.getItems()) {
+                Assert.assertEquals(job.getId(), task.getJob());
+            }
+        }
+    }
+
+    @Test
+    public void numbersJobsInFileOrder() throws IOException {
+        Items items = new Items();
+        CsvReader reader = new CsvReader(64);
+        reader.readItems(write("items.csv", "aa,1,1\n"), items);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            lines.append("order").append(i).append(",aa,1\n");
+        }
+        List<Job> jobs = reader.readJobs(write("jobs.csv", lines.toString()), items);
+
+        Assert.assertEquals(200, jobs.size());
+        for (int i = 1; i < jobs.size(); i++) {
+            Assert.assertEquals(jobs.get(i - 1).getId() + 1, jobs.get(i).getId());
+        }
+        Assert.assertEquals("order7", jobs.get(7).getItems().get(0).getJobID());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownItem() throws IOException {
+        Items items = new Items();
+        CsvReader reader = new CsvReader();
+        reader.readItems(write("items.csv", "aa,1,1\n"), items);
+        reader.readJobs(write("jobs.csv", "1,aa,1\n2,zz,1\n"), items);
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file.toPath();
+    }
+}
@@ -0,0 +1,100 @@
+package rp.warehouse.pc.input;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rp.warehouse.pc.data.Location;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+public class JobSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File items, locations, jobs, snapshot;
+
+    @Before
+    public void setup() throws IOException {
+        items = write("items.csv", "aa,11.1,1.23\nab,12.01,3.93\n");
+        locations = write("locations.csv", "2,1,aa\n2,2,ab\n");
+        jobs = write("jobs.csv", "10000,aa,2,ab,3\n10001,ab,1\n");
+        snapshot = new File(folder.getRoot(), "inputs.bin");
+    }
+
+    @Test
+    public void readsBackWhatWasParsed() throws IOException {
+        load();
+        Assert.assertTrue(snapshot.isFile());
+
+        Items items = new Items();
+        Jobs read = new Jobs();
+        Assert.assertTrue(JobSnapshot.read(snapshot, checksum(), items, read));
+
+        Assert.assertEquals(2, read.getJobs().size());
+        Job job = read.getJobs().get(0);
+        Assert.assertEquals("10000", job.getName());
+        Assert.assertEquals(3, job.getItems().get(1).getCount());
+        Assert.assertEquals(new Location(2, 2), job.getItems().get(1).getItem().getLocation());
+        Assert.assertSame(items.getItem("ab"), job.getItems().get(1).getItem());
+        Assert.assertEquals(12.01f, items.getItem("ab").getReward(), 0);
+    }
+
+    @Test
+    public void changedInputsAreReadAgain() throws IOException {
+        load();
+        Files.write(jobs.toPath(), "10002,aa,1\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Assert.assertFalse(JobSnapshot.read(snapshot, checksum(), new Items(), new Jobs()));
+        Assert.assertEquals(3, load().getJobs().getJobs().size());
+        Assert.assertTrue(JobSnapshot.read(snapshot, checksum(), new Items(), new Jobs()));
+    }
+
+    @Test
+    public void damagedSnapshotIsIgnored() throws IOException {
+        load();
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        Jobs read = new Jobs();
+        Assert.assertFalse(JobSnapshot.read(snapshot, checksum(), new Items(), read));
+        Assert.assertTrue(read.getJobs().isEmpty());
+        Assert.assertEquals(2, load().getJobs().getJobs().size());
+    }
+
+    @Test
+    public void corruptedCountIsIgnored() throws IOException {
+        load();
+        // Item count, just after the header
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.seek(28);
+            file.writeInt(-1);
+        }
+
+        Jobs read = new Jobs();
+        Assert.assertFalse(JobSnapshot.read(snapshot, checksum(), new Items(), read));
+        Assert.assertTrue(read.getJobs().isEmpty());
+    }
+
+    private JobInput load() throws IOException {
+        return new JobInput(items.getPath(), jobs.getPath(), locations.getPath(), "", snapshot);
+    }
+
+    private long checksum() {
+        return JobSnapshot.checksum(items.toPath(), locations.toPath(), jobs.toPath());
+    }
+
+    private File write(String name, String contents) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
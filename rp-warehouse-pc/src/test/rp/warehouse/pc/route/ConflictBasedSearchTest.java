@@ -0,0 +1,112 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import rp.warehouse.pc.data.DistanceOracle;
+import rp.warehouse.pc.data.WarehouseLayout;
+
+import java.util.BitSet;
+
+class ConflictBasedSearchTest {
+
+    /**
+     * Checks no two robots are ever within one tick of each other in the same cell
+     */
+    private static void assertNoConflicts(int[][] paths) {
+        int length = 0;
+        for (int[] path : paths) {
+            length = Math.max(length, path.length);
+        }
+        for (int a = 0; a < paths.length; a++) {
+            for (int b = a + 1; b < paths.length; b++) {
+                for (int t = 0; t < length; t++) {
+                    int cellA = paths[a][Math.min(t, paths[a].length - 1)];
+                    for (int s = Math.max(0, t - 1); s <= t + 1; s++) {
+                        Assertions.assertNotEquals(cellA, paths[b][Math.min(s, paths[b].length - 1)],
+                                "Robots " + a + " and " + b + " meet at tick " + t);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void robotsCrossingTakeTurns() {
+        // Plus shaped junction in a 3x3 grid, corners blocked
+        BitSet blocked = new BitSet();
+        blocked.set(0);
+        blocked.set(2);
+        blocked.set(6);
+        blocked.set(8);
+        ConflictBasedSearch search = new ConflictBasedSearch(3, 3, blocked, 1, 1000);
+
+        int[][] paths = search.solve(new int[][]{{3}, {1}}, new int[]{5, 7});
+
+        Assertions.assertNotNull(paths);
+        Assertions.assertEquals(5, paths[0][paths[0].length - 1]);
+        Assertions.assertEquals(7, paths[1][paths[1].length - 1]);
+        assertNoConflicts(paths);
+    }
+
+    @Test
+    void robotsInCorridorPassUsingSideCell() {
+        // Corridor along the bottom with one free cell above the middle
+        BitSet blocked = new BitSet();
+        for (int x = 0; x < 5; x++) {
+            if (x != 2) {
+                blocked.set(5 + x);
+            }
+        }
+        ConflictBasedSearch search = new ConflictBasedSearch(5, 2, blocked, 1, 1000);
+
+        int[][] paths = search.solve(new int[][]{{0}, {4}}, new int[]{4, 0});
+
+        Assertions.assertNotNull(paths);
+        assertNoConflicts(paths);
+    }
+
+    @Test
+    void fixedRobotIsAvoided() {
+        ConflictBasedSearch search = new ConflictBasedSearch(3, 3, new BitSet(), 1.5, 1000);
+
+        int[][] paths = search.solve(new int[][]{{3}, {4}}, new int[]{5, -1});
+
+        Assertions.assertNotNull(paths);
+        Assertions.assertArrayEquals(new int[]{4}, paths[1]);
+        assertNoConflicts(paths);
+    }
+
+    @Test
+    void sharedGoalHasNoSolution() {
+        ConflictBasedSearch search = new ConflictBasedSearch(3, 3, new BitSet(), 1, 1000);
+
+        Assertions.assertNull(search.solve(new int[][]{{0}, {4}}, new int[]{4, -1}));
+    }
+
+    @Test
+    void respectsPrefix() {
+        ConflictBasedSearch search = new ConflictBasedSearch(4, 1, new BitSet(), 1, 1000);
+
+        int[][] paths = search.solve(new int[][]{{0, 1}}, new int[]{3});
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, paths[0]);
+    }
+
+    @Test
+    void sameAnswerWhenSolverIsReused() {
+        WarehouseLayout layout = WarehouseLayout.createDefault();
+        int width = layout.getGridWidth();
+        ConflictBasedSearch search = new ConflictBasedSearch(width, layout.getGridHeight(), layout.getBlocked(),
+                new DistanceOracle(layout), 1, 1000);
+        int[][] prefixes = {{0}, {width - 1}};
+        int[] goals = {width - 1, 0};
+
+        int[][] first = search.solve(prefixes, goals);
+        search.solve(new int[][]{{width}}, new int[]{2 * width + 2});
+        int[][] second = search.solve(prefixes, goals);
+
+        Assertions.assertNotNull(first);
+        assertNoConflicts(first);
+        Assertions.assertArrayEquals(first, second);
+    }
+}
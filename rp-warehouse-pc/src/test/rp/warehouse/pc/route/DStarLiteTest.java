@@ -0,0 +1,93 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+class DStarLiteTest {
+
+    private static void assertValidPath(int[] path, int width, BitSet blocked, BitSet occupied) {
+        for (int i = 1; i < path.length; i++) {
+            int dx = Math.abs(path[i] % width - path[i - 1] % width);
+            int dy = Math.abs(path[i] / width - path[i - 1] / width);
+            Assertions.assertEquals(1, dx + dy);
+            Assertions.assertFalse(blocked.get(path[i]));
+            Assertions.assertFalse(occupied.get(path[i]));
+        }
+    }
+
+    @Test
+    void matchesGridPlannerAsObstaclesMove() {
+        Random random = new Random(4);
+        int width = 15, height = 10;
+        BitSet blocked = new BitSet();
+        for (int i = 0; i < 25; i++) {
+            blocked.set(random.nextInt(width * height));
+        }
+        GridPlanner planner = new GridPlanner(width, height, blocked);
+        DStarLite incremental = new DStarLite(width, height, blocked);
+
+        int start = planner.cell(0, 0);
+        int goal = planner.cell(14, 9);
+        blocked.clear(start);
+        blocked.clear(goal);
+
+        BitSet occupied = new BitSet();
+        for (int step = 0; step < 40; step++) {
+            // Move some of the other robots around
+            for (int i = 0; i < 3; i++) {
+                occupied.flip(random.nextInt(width * height));
+            }
+            occupied.clear(goal);
+
+            int[] path = incremental.plan(start, goal, occupied);
+            BitSet others = (BitSet) occupied.clone();
+            int[] expected = planner.plan(start, goal, (cell, tick) -> others.get(cell));
+
+            Assertions.assertEquals(expected.length, path.length);
+            Assertions.assertEquals(start, path[0]);
+            assertValidPath(path, width, blocked, others);
+
+            // Follow the path a step
+            if (path.length > 1) {
+                start = path[1];
+            }
+        }
+    }
+
+    @Test
+    void smallChangeReusesSearch() {
+        int width = 30, height = 30;
+        DStarLite incremental = new DStarLite(width, height, new BitSet());
+        BitSet occupied = new BitSet();
+
+        incremental.plan(0, width * height - 1, occupied);
+        long first = incremental.getExpanded();
+
+        occupied.set(width * height - 2);
+        incremental.plan(1, width * height - 1, occupied);
+        long second = incremental.getExpanded() - first;
+
+        Assertions.assertTrue(second * 10 < first, "Replan expanded " + second + ", first plan " + first);
+    }
+
+    @Test
+    void occupiedGoalStopsNextToIt() {
+        DStarLite incremental = new DStarLite(4, 1, new BitSet());
+        BitSet occupied = new BitSet();
+        occupied.set(3);
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, incremental.plan(0, 3, occupied));
+    }
+
+    @Test
+    void unreachableGoalGivesStart() {
+        BitSet blocked = new BitSet();
+        blocked.set(1);
+        DStarLite incremental = new DStarLite(3, 1, blocked);
+
+        Assertions.assertArrayEquals(new int[]{0}, incremental.plan(0, 2, new BitSet()));
+    }
+}
@@ -0,0 +1,67 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import rp.warehouse.pc.data.DistanceOracle;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.Robot;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.data.robot.utils.Status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DropOffSelectorTest {
+
+    private final Location left = new Location(0, 0);
+    private final Location right = new Location(9, 0);
+    private final List<Location> dropOffs = Arrays.asList(left, right);
+    private final DistanceOracle distances = new DistanceOracle(new WarehouseLayout(10, 3, 0.3f, 0.15f, 0.15f, 3f,
+            0.9f, Collections.<int[]>emptyList(), dropOffs));
+
+    private Robot robotAt(int x, int y, int status) {
+        Robot robot = mock(Robot.class);
+        when(robot.getLocation()).thenReturn(new RobotLocation(x, y, 3));
+        when(robot.getStatus()).thenReturn(status);
+        return robot;
+    }
+
+    @Test
+    void picksNearestWhenNothingQueued() {
+        DropOffSelector selector = new DropOffSelector(dropOffs, distances, 10);
+        Robot robot = robotAt(3, 1, Status.DROPPING_OFF);
+
+        Assertions.assertEquals(left, selector.select(robot, new ArrayList<>(Collections.singletonList(robot))));
+    }
+
+    @Test
+    void queueSendsRobotFurther() {
+        DropOffSelector selector = new DropOffSelector(dropOffs, distances, 10);
+        Robot first = robotAt(1, 0, Status.WAITING_FOR_DROPOFF);
+        Robot second = robotAt(3, 1, Status.DROPPING_OFF);
+        List<Robot> robots = new ArrayList<>(Arrays.asList(first, second));
+
+        Assertions.assertEquals(left, selector.select(first, robots));
+        // 4 to the left plus one robot waiting is worse than 7 to the right
+        Assertions.assertEquals(right, selector.select(second, robots));
+    }
+
+    @Test
+    void finishedRobotsDoNotQueue() {
+        DropOffSelector selector = new DropOffSelector(dropOffs, distances, 10);
+        Robot first = robotAt(1, 0, Status.DROPPING_OFF);
+        Robot second = robotAt(3, 1, Status.DROPPING_OFF);
+        List<Robot> robots = new ArrayList<>(Arrays.asList(first, second));
+
+        selector.select(first, robots);
+        when(first.getStatus()).thenReturn(Status.PICKING_UP);
+
+        Assertions.assertEquals(left, selector.select(second, robots));
+    }
+}
@@ -0,0 +1,63 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+class GridPlannerTest {
+
+    @Test
+    void planAroundWallIsShortest() {
+        // 5x5 grid with a wall in column 2, open only at the top
+        BitSet blocked = new BitSet();
+        GridPlanner planner = new GridPlanner(5, 5, blocked);
+        for (int y = 0; y < 4; y++) {
+            blocked.set(planner.cell(2, y));
+        }
+
+        int[] path = planner.plan(planner.cell(0, 0), planner.cell(4, 0), GridPlanner.EMPTY);
+
+        Assertions.assertEquals(13, path.length);
+        Assertions.assertEquals(planner.cell(0, 0), path[0]);
+        Assertions.assertEquals(planner.cell(4, 0), path[path.length - 1]);
+        for (int cell : path) {
+            Assertions.assertFalse(blocked.get(cell));
+        }
+    }
+
+    @Test
+    void planToStartIsJustStart() {
+        GridPlanner planner = new GridPlanner(3, 3, new BitSet());
+
+        Assertions.assertArrayEquals(new int[]{4}, planner.plan(4, 4, GridPlanner.EMPTY));
+    }
+
+    @Test
+    void unreachableGoalGivesStart() {
+        BitSet blocked = new BitSet();
+        GridPlanner planner = new GridPlanner(3, 1, blocked);
+        blocked.set(1);
+
+        Assertions.assertArrayEquals(new int[]{0}, planner.plan(0, 2, GridPlanner.EMPTY));
+    }
+
+    @Test
+    void occupiedGoalStopsNextToIt() {
+        GridPlanner planner = new GridPlanner(4, 1, new BitSet());
+
+        int[] path = planner.plan(0, 3, (cell, tick) -> cell == 3);
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, path);
+    }
+
+    @Test
+    void plannerCanBeReused() {
+        GridPlanner planner = new GridPlanner(12, 8, new BitSet());
+
+        for (int i = 0; i < 1000; i++) {
+            int[] path = planner.plan(planner.cell(0, 0), planner.cell(11, 7), GridPlanner.EMPTY);
+            Assertions.assertEquals(19, path.length);
+        }
+    }
+}
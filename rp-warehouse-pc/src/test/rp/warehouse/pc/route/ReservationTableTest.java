@@ -0,0 +1,82 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+class ReservationTableTest {
+
+    @Test
+    void standingRobotHoldsCellUntilHorizon() {
+        ReservationTable table = new ReservationTable(10, 4);
+        table.add(3);
+
+        for (int tick = 0; tick <= 4; tick++) {
+            Assertions.assertTrue(table.isOccupied(3, tick));
+        }
+        Assertions.assertFalse(table.isOccupied(3, 5));
+        Assertions.assertFalse(table.isOccupied(4, 0));
+    }
+
+    @Test
+    void commitReservesBothEndsOfEachMove() {
+        ReservationTable table = new ReservationTable(10, 4);
+        int id = table.add(0);
+        table.commit(id, new int[]{0, 1, 2});
+
+        Assertions.assertTrue(table.isOccupied(0, 1));
+        Assertions.assertTrue(table.isOccupied(1, 1));
+        Assertions.assertFalse(table.isOccupied(2, 1));
+        Assertions.assertTrue(table.isOccupied(1, 2));
+        Assertions.assertTrue(table.isOccupied(2, 2));
+        Assertions.assertFalse(table.isOccupied(0, 2));
+        Assertions.assertTrue(table.isOccupied(2, 4));
+    }
+
+    @Test
+    void releaseFreesOnlyThatRobot() {
+        ReservationTable table = new ReservationTable(10, 2);
+        int first = table.add(5);
+        table.add(5);
+
+        table.release(first);
+        Assertions.assertTrue(table.isOccupied(5, 0));
+
+        table.release(first + 1);
+        Assertions.assertFalse(table.isOccupied(5, 0));
+    }
+
+    @Test
+    void advanceKeepsCellJustLeft() {
+        ReservationTable table = new ReservationTable(10, 3);
+        int id = table.add(0);
+        table.commit(id, new int[]{0, 1, 2});
+        table.advance(id);
+
+        Assertions.assertArrayEquals(new int[]{1, 2}, table.getPath(id));
+        Assertions.assertTrue(table.isOccupied(0, 0));
+        Assertions.assertTrue(table.isOccupied(0, 1));
+        Assertions.assertFalse(table.isOccupied(0, 2));
+        Assertions.assertTrue(table.isOccupied(2, 3));
+
+        // The cell left behind is only kept while the robot drives out of it
+        table.advance(id);
+        Assertions.assertFalse(table.isOccupied(0, 0));
+    }
+
+    @Test
+    void plannerAvoidsReservedPath() {
+        GridPlanner planner = new GridPlanner(3, 3, new BitSet());
+        ReservationTable table = new ReservationTable(9, 6);
+        // Another robot sits in the middle of the grid
+        table.add(planner.cell(1, 1));
+
+        int[] path = planner.plan(planner.cell(0, 1), planner.cell(2, 1), table);
+
+        Assertions.assertEquals(planner.cell(2, 1), path[path.length - 1]);
+        for (int cell : path) {
+            Assertions.assertNotEquals(planner.cell(1, 1), cell);
+        }
+    }
+}
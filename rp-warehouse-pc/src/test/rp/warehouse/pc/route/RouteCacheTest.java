@@ -0,0 +1,46 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RouteCacheTest {
+
+    @Test
+    void restOfPathIsCachedFromEveryCell() {
+        RouteCache cache = new RouteCache(10, 100);
+        cache.put(new int[]{0, 1, 2, 3}, 3);
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, cache.get(0, 3));
+        Assertions.assertArrayEquals(new int[]{2, 3}, cache.get(2, 3));
+        Assertions.assertNull(cache.get(0, 2));
+    }
+
+    @Test
+    void leastRecentlyUsedIsDropped() {
+        RouteCache cache = new RouteCache(10, 2);
+        cache.put(new int[]{0}, 5);
+        cache.put(new int[]{1}, 5);
+        cache.get(0, 5);
+        cache.put(new int[]{2}, 5);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNotNull(cache.get(0, 5));
+        Assertions.assertNull(cache.get(1, 5));
+    }
+
+    @Test
+    void hitRateCountsLookups() {
+        RouteCache cache = new RouteCache(10, 100);
+        Assertions.assertEquals(0, cache.getHitRate());
+
+        cache.get(0, 1);
+        cache.put(new int[]{0, 1}, 1);
+        cache.get(0, 1);
+        cache.get(0, 1);
+        cache.get(1, 1);
+
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(3, cache.getHits());
+        Assertions.assertEquals(0.75, cache.getHitRate());
+    }
+}
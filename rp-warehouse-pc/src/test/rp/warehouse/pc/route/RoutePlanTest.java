@@ -105,4 +105,30 @@ class RoutePlanTest {
         Assertions.assertEquals(Protocol.WAITING, route.poll());
     }
 
-}
\ No newline at end of file
+    @Test
+    void conflictBasedPlansAroundOtherRobot() {
+        Robot mockedPlanningRobot = mock(Robot.class);
+        when(mockedPlanningRobot.getLocation()).thenReturn(new RobotLocation(0, 7, 3));
+
+        Robot mockedStaticRobot = mock(Robot.class);
+        when(mockedStaticRobot.getLocation()).thenReturn(new RobotLocation(2, 7, 3));
+
+        RoutePlan.setRobots(new ArrayList<>(Arrays.asList(mockedPlanningRobot, mockedStaticRobot)));
+        RoutePlan.setConflictBasedSearch(1, 1000);
+        try {
+            Route route = RoutePlan.plan(mockedPlanningRobot, new Location(3, 7));
+
+            Assertions.assertNotEquals(new Location(2, 7), route.getLocation(1));
+            Assertions.assertNotEquals(new Location(2, 7), route.getLocation(2));
+
+            // Nothing can get to a robot that isn't moving, so this goes back to greedy planning
+            route = RoutePlan.plan(mockedPlanningRobot, new Location(2, 7));
+
+            Assertions.assertEquals(Protocol.EAST, route.poll());
+            Assertions.assertEquals(Protocol.WAITING, route.poll());
+        } finally {
+            RoutePlan.setGreedy();
+        }
+    }
+
+}
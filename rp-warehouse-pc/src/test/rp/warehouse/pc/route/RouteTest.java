@@ -0,0 +1,38 @@
+package rp.warehouse.pc.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import rp.warehouse.pc.communication.Protocol;
+import rp.warehouse.pc.data.Location;
+
+import java.util.Arrays;
+
+class RouteTest {
+
+    @Test
+    void snapshotDoesNotChangeWhenPolled() {
+        Route route = new Route(Arrays.asList(new Location(0, 0), new Location(1, 0), new Location(1, 1)), true,
+                new Location(3, 3));
+        Route snapshot = route.snapshot();
+
+        Assertions.assertEquals(Protocol.EAST, route.poll());
+        Assertions.assertEquals(1, route.size());
+        Assertions.assertEquals(new Location(1, 0), route.getLocation(0));
+
+        Assertions.assertEquals(2, snapshot.size());
+        Assertions.assertEquals(Protocol.EAST, snapshot.peek());
+        Assertions.assertEquals(Protocol.NORTH, snapshot.get(1));
+        Assertions.assertEquals(0, snapshot.getX(0));
+        Assertions.assertThrows(UnsupportedOperationException.class, snapshot::poll);
+    }
+
+    @Test
+    void waitStepEndsRoute() {
+        Route route = new Route(Arrays.asList(new Location(2, 2), new Location(2, 2), new Location(2, 3)), true,
+                new Location(2, 3));
+
+        Assertions.assertEquals(1, route.size());
+        Assertions.assertEquals(Protocol.WAITING, route.poll());
+        Assertions.assertTrue(route.isEmpty());
+    }
+}
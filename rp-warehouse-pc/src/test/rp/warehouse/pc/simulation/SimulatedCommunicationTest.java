@@ -0,0 +1,74 @@
+package rp.warehouse.pc.simulation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.communication.Protocol;
+import rp.warehouse.pc.communication.SimulatedNXT;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.utils.Clock;
+import rp.warehouse.pc.data.robot.utils.RobotLocation;
+import rp.warehouse.pc.localisation.Ranges;
+
+import java.io.IOException;
+
+public class SimulatedCommunicationTest {
+
+    // Jumps straight to any time waited for
+    private final Clock clock = new Clock() {
+        private long now = 0;
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public void sleepUntil(long time) {
+            now = Math.max(now, time);
+        }
+    };
+
+    private SimulatedCommunication communication;
+
+    @Before
+    public void setUp() throws IOException {
+        Warehouse.setLayout(WarehouseLayout.createDefault());
+        communication = new SimulatedCommunication("Simulated", new RobotLocation(0, 0, Protocol.NORTH), clock,
+                100, 100, 100);
+    }
+
+    @Test
+    public void readsRangesWhereTheRobotIs() {
+        Assert.assertEquals(ranges(0, 0, Protocol.NORTH), communication.getRanges());
+
+        communication.queueMovement(Protocol.EAST);
+        communication.queueMovement(Protocol.EAST);
+        Assert.assertEquals(ranges(2, 0, Protocol.EAST), communication.getRanges());
+        Assert.assertEquals(200, clock.now());
+    }
+
+    @Test
+    public void staysPutWhenMovingIntoShelf() {
+        communication.queueMovement(Protocol.EAST);
+        communication.queueMovement(Protocol.NORTH);
+        Assert.assertEquals(ranges(1, 0, Protocol.EAST), communication.getRanges());
+    }
+
+    @Test
+    public void countsMovesOnceFinished() throws InterruptedException {
+        communication.queueMovement(Protocol.EAST);
+        communication.queueMovement(Protocol.EAST);
+        Assert.assertEquals(0, communication.getFinishedMoves());
+
+        clock.sleepUntil(100);
+        Assert.assertEquals(1, communication.getFinishedMoves());
+        clock.sleepUntil(200);
+        Assert.assertEquals(2, communication.getFinishedMoves());
+    }
+
+    private static Ranges ranges(int x, int y, int direction) {
+        return Ranges.fromArray(SimulatedNXT.getRanges(x, y, direction), Ranges.physicalConverter);
+    }
+}
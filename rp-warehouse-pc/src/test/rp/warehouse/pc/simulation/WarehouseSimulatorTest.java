@@ -0,0 +1,86 @@
+package rp.warehouse.pc.simulation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import rp.warehouse.pc.data.Item;
+import rp.warehouse.pc.data.Location;
+import rp.warehouse.pc.data.Task;
+import rp.warehouse.pc.data.Warehouse;
+import rp.warehouse.pc.data.WarehouseLayout;
+import rp.warehouse.pc.data.robot.Robot;
+import rp.warehouse.pc.input.Job;
+import rp.warehouse.pc.route.RoutePlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class WarehouseSimulatorTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Before
+    public void setup() {
+        Warehouse.setLayout(WarehouseLayout.createDefault());
+    }
+
+    @Test(timeout = 60000)
+    public void finishesEveryJob() throws InterruptedException {
+        WarehouseSimulator simulator = new WarehouseSimulator(1000, 2000, 1000, 8 * HOUR);
+        SimulationReport report = simulator.run(jobs(4, 3), WarehouseSimulator.getStarts(2));
+
+        Assert.assertTrue(report.isFinished());
+        Assert.assertEquals(12, report.getPicks());
+        Assert.assertEquals(4, report.getJobsDone());
+        Assert.assertEquals(12.0f, report.getReward(), 0.001f);
+        // Every pick takes time on the clock
+        Assert.assertTrue(report.getDuration() > 12 * 2000);
+        Assert.assertTrue(report.getPicksPerHour() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void stopsAtEndOfShift() throws InterruptedException {
+        WarehouseSimulator simulator = new WarehouseSimulator(1000, 2000, 1000, 20000);
+        SimulationReport report = simulator.run(jobs(4, 3), WarehouseSimulator.getStarts(2));
+
+        Assert.assertFalse(report.isFinished());
+        Assert.assertEquals(20000, report.getDuration());
+        Assert.assertTrue(report.getPicks() < 12);
+    }
+
+    @Test(timeout = 60000)
+    public void robotDoesItsOnlyItem() throws InterruptedException {
+        WarehouseSimulator simulator = new WarehouseSimulator(1000, 2000, 1000, 8 * HOUR);
+        SimulationReport report = simulator.run(jobs(1, 1), WarehouseSimulator.getStarts(1));
+
+        Assert.assertTrue(report.isFinished());
+        Assert.assertEquals(1, report.getPicks());
+        Assert.assertEquals(1, report.getJobsDone());
+    }
+
+    @Test(timeout = 60000)
+    public void putsBackRoutePlanRobots() throws InterruptedException {
+        List<Robot> before = new ArrayList<>();
+        RoutePlan.setRobots(before);
+        WarehouseSimulator simulator = new WarehouseSimulator(1000, 2000, 1000, 8 * HOUR);
+        simulator.run(jobs(2, 2), WarehouseSimulator.getStarts(2));
+
+        Assert.assertSame(before, RoutePlan.getRobots());
+    }
+
+    private List<Job> jobs(int count, int items) {
+        Random random = new Random(3);
+        List<Location> free = Warehouse.getFreeLocations();
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ArrayList<Task> tasks = new ArrayList<>();
+            for (int j = 0; j < items; j++) {
+                Item item = new Item("item" + j, 1f, 5f, free.get(random.nextInt(free.size())));
+                tasks.add(new Task(item, 1, "simulated" + i));
+            }
+            jobs.add(new Job("simulated" + i, tasks));
+        }
+        return jobs;
+    }
+}